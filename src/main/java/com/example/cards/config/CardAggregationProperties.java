@@ -0,0 +1,97 @@
+package com.example.cards.config;
+
+import java.time.Duration;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * Configuração do consumidor de agregação de tarifas (cards.aggregation.*)
+ */
+@ConfigurationProperties(prefix = "cards.aggregation")
+public class CardAggregationProperties {
+
+    private boolean enabled = false;
+
+    private String groupId = "cards-fee-aggregator";
+
+    /** Consumidores paralelos; cada um recebe parte das partições */
+    private int concurrency = 3;
+
+    private int maxPollRecords = 500;
+
+    /** Tamanho da janela fixa (tumbling), pelo timestamp dos registros */
+    private Duration window = Duration.ofMinutes(1);
+
+    /** Valor de referência usado no cálculo da tarifa de cada cartão */
+    private double feeBaseAmount = 100.0;
+
+    /** Tópico onde os totais de cada janela fechada são publicados */
+    private String summaryTopic = "cartoes-tarifas-janela";
+
+    /** Janelas fechadas mantidas em memória para o endpoint */
+    private int retainedWindows = 1000;
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public String getGroupId() {
+        return groupId;
+    }
+
+    public void setGroupId(String groupId) {
+        this.groupId = groupId;
+    }
+
+    public int getConcurrency() {
+        return concurrency;
+    }
+
+    public void setConcurrency(int concurrency) {
+        this.concurrency = concurrency;
+    }
+
+    public int getMaxPollRecords() {
+        return maxPollRecords;
+    }
+
+    public void setMaxPollRecords(int maxPollRecords) {
+        this.maxPollRecords = maxPollRecords;
+    }
+
+    public Duration getWindow() {
+        return window;
+    }
+
+    public void setWindow(Duration window) {
+        this.window = window;
+    }
+
+    public double getFeeBaseAmount() {
+        return feeBaseAmount;
+    }
+
+    public void setFeeBaseAmount(double feeBaseAmount) {
+        this.feeBaseAmount = feeBaseAmount;
+    }
+
+    public String getSummaryTopic() {
+        return summaryTopic;
+    }
+
+    public void setSummaryTopic(String summaryTopic) {
+        this.summaryTopic = summaryTopic;
+    }
+
+    public int getRetainedWindows() {
+        return retainedWindows;
+    }
+
+    public void setRetainedWindows(int retainedWindows) {
+        this.retainedWindows = retainedWindows;
+    }
+}
@@ -0,0 +1,88 @@
+package com.example.cards.config;
+
+import java.time.Duration;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.util.unit.DataSize;
+
+/**
+ * Circuito de proteção do envio por bandeira e spool local usado enquanto ele está aberto (cards.breaker.*)
+ */
+@ConfigurationProperties(prefix = "cards.breaker")
+public class CardBreakerProperties {
+
+    private boolean enabled = false;
+
+    /** Lotes seguidos com falha ou sem confirmação no prazo que abrem o circuito */
+    private int failureThreshold = 3;
+
+    /** Prazo de confirmação de um lote; depois dele o lote conta como falha */
+    private Duration callTimeout = Duration.ofSeconds(5);
+
+    /** Tempo com o circuito aberto antes de testar o destino com um lote */
+    private Duration openDuration = Duration.ofSeconds(30);
+
+    /** Diretório dos segmentos com os lotes desviados enquanto o circuito está aberto */
+    private String spoolDir = "data/spool";
+
+    private DataSize segmentSize = DataSize.ofMegabytes(4);
+
+    /** Cartões por segundo reenviados do spool por bandeira, para não competir com o tráfego normal */
+    private int drainRate = 1000;
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public int getFailureThreshold() {
+        return failureThreshold;
+    }
+
+    public void setFailureThreshold(int failureThreshold) {
+        this.failureThreshold = failureThreshold;
+    }
+
+    public Duration getCallTimeout() {
+        return callTimeout;
+    }
+
+    public void setCallTimeout(Duration callTimeout) {
+        this.callTimeout = callTimeout;
+    }
+
+    public Duration getOpenDuration() {
+        return openDuration;
+    }
+
+    public void setOpenDuration(Duration openDuration) {
+        this.openDuration = openDuration;
+    }
+
+    public String getSpoolDir() {
+        return spoolDir;
+    }
+
+    public void setSpoolDir(String spoolDir) {
+        this.spoolDir = spoolDir;
+    }
+
+    public DataSize getSegmentSize() {
+        return segmentSize;
+    }
+
+    public void setSegmentSize(DataSize segmentSize) {
+        this.segmentSize = segmentSize;
+    }
+
+    public int getDrainRate() {
+        return drainRate;
+    }
+
+    public void setDrainRate(int drainRate) {
+        this.drainRate = drainRate;
+    }
+}
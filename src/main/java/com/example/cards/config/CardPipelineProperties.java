@@ -0,0 +1,120 @@
+package com.example.cards.config;
+
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Map;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import com.example.cards.domain.BrandPipelineSettings;
+import com.example.cards.domain.CreditCardBrand;
+
+/**
+ * Configuração do pipeline por bandeira (cards.pipeline.brands.&lt;bandeira&gt;.*).
+ * Propriedades não informadas ficam com os valores de {@link BrandPipelineSettings#DEFAULTS}.
+ */
+@ConfigurationProperties(prefix = "cards.pipeline")
+public class CardPipelineProperties {
+
+    private final Map<CreditCardBrand, Brand> brands = new EnumMap<>(CreditCardBrand.class);
+
+    public Map<CreditCardBrand, Brand> getBrands() {
+        return brands;
+    }
+
+    public BrandPipelineSettings forBrand(CreditCardBrand brand) {
+        Brand settings = brands.get(brand);
+        return settings != null ? settings.toSettings() : BrandPipelineSettings.DEFAULTS;
+    }
+
+    /** Propriedades de uma bandeira; os campos estão descritos em {@link BrandPipelineSettings} */
+    public static class Brand {
+
+        private int bufferCapacity = BrandPipelineSettings.DEFAULTS.bufferCapacity();
+        private int flushSize = BrandPipelineSettings.DEFAULTS.flushSize();
+        private Duration linger = BrandPipelineSettings.DEFAULTS.linger();
+        private String acks = BrandPipelineSettings.DEFAULTS.acks();
+        private String compression = BrandPipelineSettings.DEFAULTS.compression();
+        private int maxInFlight = BrandPipelineSettings.DEFAULTS.maxInFlight();
+        private int envelopeSize = BrandPipelineSettings.DEFAULTS.envelopeSize();
+        private String sink = BrandPipelineSettings.DEFAULTS.sink();
+        private Duration flushTimeout = BrandPipelineSettings.DEFAULTS.flushTimeout();
+
+        public BrandPipelineSettings toSettings() {
+            return new BrandPipelineSettings(bufferCapacity, flushSize, linger, acks, compression,
+                    maxInFlight, envelopeSize, sink, flushTimeout);
+        }
+
+        public int getBufferCapacity() {
+            return bufferCapacity;
+        }
+
+        public void setBufferCapacity(int bufferCapacity) {
+            this.bufferCapacity = bufferCapacity;
+        }
+
+        public int getFlushSize() {
+            return flushSize;
+        }
+
+        public void setFlushSize(int flushSize) {
+            this.flushSize = flushSize;
+        }
+
+        public Duration getLinger() {
+            return linger;
+        }
+
+        public void setLinger(Duration linger) {
+            this.linger = linger;
+        }
+
+        public String getAcks() {
+            return acks;
+        }
+
+        public void setAcks(String acks) {
+            this.acks = acks;
+        }
+
+        public String getCompression() {
+            return compression;
+        }
+
+        public void setCompression(String compression) {
+            this.compression = compression;
+        }
+
+        public int getMaxInFlight() {
+            return maxInFlight;
+        }
+
+        public void setMaxInFlight(int maxInFlight) {
+            this.maxInFlight = maxInFlight;
+        }
+
+        public int getEnvelopeSize() {
+            return envelopeSize;
+        }
+
+        public void setEnvelopeSize(int envelopeSize) {
+            this.envelopeSize = envelopeSize;
+        }
+
+        public String getSink() {
+            return sink;
+        }
+
+        public void setSink(String sink) {
+            this.sink = sink;
+        }
+
+        public Duration getFlushTimeout() {
+            return flushTimeout;
+        }
+
+        public void setFlushTimeout(Duration flushTimeout) {
+            this.flushTimeout = flushTimeout;
+        }
+    }
+}
@@ -0,0 +1,127 @@
+package com.example.cards.config;
+
+import java.time.Duration;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.util.unit.DataSize;
+
+/**
+ * Limites do ajuste automático de lotes por bandeira (cards.tuning.*)
+ */
+@ConfigurationProperties(prefix = "cards.tuning")
+public class CardTuningProperties {
+
+    private boolean enabled = false;
+
+    /** Latência alvo entre o cadastro e a confirmação do Kafka */
+    private Duration targetLatency = Duration.ofMillis(250);
+
+    private int minFlushSize = 100;
+
+    private int maxFlushSize = 10000;
+
+    private Duration minLinger = Duration.ofMillis(20);
+
+    private Duration maxLinger = Duration.ofSeconds(2);
+
+    /** Limites de linger.ms do producer */
+    private Duration minProducerLinger = Duration.ZERO;
+
+    private Duration maxProducerLinger = Duration.ofMillis(50);
+
+    /** Limites de batch.size do producer */
+    private DataSize minBatchSize = DataSize.ofKilobytes(16);
+
+    private DataSize maxBatchSize = DataSize.ofMegabytes(1);
+
+    /** Intervalo mínimo entre duas trocas de producer da mesma bandeira */
+    private Duration producerSwapCooldown = Duration.ofMinutes(1);
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public Duration getTargetLatency() {
+        return targetLatency;
+    }
+
+    public void setTargetLatency(Duration targetLatency) {
+        this.targetLatency = targetLatency;
+    }
+
+    public int getMinFlushSize() {
+        return minFlushSize;
+    }
+
+    public void setMinFlushSize(int minFlushSize) {
+        this.minFlushSize = minFlushSize;
+    }
+
+    public int getMaxFlushSize() {
+        return maxFlushSize;
+    }
+
+    public void setMaxFlushSize(int maxFlushSize) {
+        this.maxFlushSize = maxFlushSize;
+    }
+
+    public Duration getMinLinger() {
+        return minLinger;
+    }
+
+    public void setMinLinger(Duration minLinger) {
+        this.minLinger = minLinger;
+    }
+
+    public Duration getMaxLinger() {
+        return maxLinger;
+    }
+
+    public void setMaxLinger(Duration maxLinger) {
+        this.maxLinger = maxLinger;
+    }
+
+    public Duration getMinProducerLinger() {
+        return minProducerLinger;
+    }
+
+    public void setMinProducerLinger(Duration minProducerLinger) {
+        this.minProducerLinger = minProducerLinger;
+    }
+
+    public Duration getMaxProducerLinger() {
+        return maxProducerLinger;
+    }
+
+    public void setMaxProducerLinger(Duration maxProducerLinger) {
+        this.maxProducerLinger = maxProducerLinger;
+    }
+
+    public DataSize getMinBatchSize() {
+        return minBatchSize;
+    }
+
+    public void setMinBatchSize(DataSize minBatchSize) {
+        this.minBatchSize = minBatchSize;
+    }
+
+    public DataSize getMaxBatchSize() {
+        return maxBatchSize;
+    }
+
+    public void setMaxBatchSize(DataSize maxBatchSize) {
+        this.maxBatchSize = maxBatchSize;
+    }
+
+    public Duration getProducerSwapCooldown() {
+        return producerSwapCooldown;
+    }
+
+    public void setProducerSwapCooldown(Duration producerSwapCooldown) {
+        this.producerSwapCooldown = producerSwapCooldown;
+    }
+}
@@ -0,0 +1,103 @@
+package com.example.cards.config;
+
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Map;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.util.unit.DataSize;
+
+import com.example.cards.domain.CreditCardBrand;
+
+/**
+ * Configuração da verificação de velocidade de cadastros (cards.velocity.*)
+ */
+@ConfigurationProperties(prefix = "cards.velocity")
+public class CardVelocityProperties {
+
+    private boolean enabled = false;
+
+    /** Janela deslizante de contagem */
+    private Duration window = Duration.ofMinutes(1);
+
+    /** Quantidade de sub-janelas em que a janela é dividida */
+    private int buckets = 6;
+
+    /** Linhas de hash de cada sketch */
+    private int depth = 4;
+
+    /** Memória máxima dos sketches de titular e BIN de todas as bandeiras; acima dela a aplicação não sobe */
+    private DataSize memoryBudget = DataSize.ofMegabytes(16);
+
+    /** Superestimativa tolerada de cada contagem, como fração do limite da bandeira (entre 0 e 1) */
+    private double maxErrorRatio = 0.5;
+
+    /** Cadastros esperados na janela, por bandeira; define a largura dos sketches da bandeira */
+    private final Map<CreditCardBrand, Long> expectedPerWindow = new EnumMap<>(CreditCardBrand.class);
+
+    /** Cadastros permitidos por titular na janela, por bandeira */
+    private final Map<CreditCardBrand, Integer> maxPerHolder = new EnumMap<>(CreditCardBrand.class);
+
+    /** Cadastros permitidos por BIN (6 primeiros dígitos) na janela, por bandeira */
+    private final Map<CreditCardBrand, Integer> maxPerBin = new EnumMap<>(CreditCardBrand.class);
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public Duration getWindow() {
+        return window;
+    }
+
+    public void setWindow(Duration window) {
+        this.window = window;
+    }
+
+    public int getBuckets() {
+        return buckets;
+    }
+
+    public void setBuckets(int buckets) {
+        this.buckets = buckets;
+    }
+
+    public int getDepth() {
+        return depth;
+    }
+
+    public void setDepth(int depth) {
+        this.depth = depth;
+    }
+
+    public DataSize getMemoryBudget() {
+        return memoryBudget;
+    }
+
+    public void setMemoryBudget(DataSize memoryBudget) {
+        this.memoryBudget = memoryBudget;
+    }
+
+    public double getMaxErrorRatio() {
+        return maxErrorRatio;
+    }
+
+    public void setMaxErrorRatio(double maxErrorRatio) {
+        this.maxErrorRatio = maxErrorRatio;
+    }
+
+    public Map<CreditCardBrand, Long> getExpectedPerWindow() {
+        return expectedPerWindow;
+    }
+
+    public Map<CreditCardBrand, Integer> getMaxPerHolder() {
+        return maxPerHolder;
+    }
+
+    public Map<CreditCardBrand, Integer> getMaxPerBin() {
+        return maxPerBin;
+    }
+}
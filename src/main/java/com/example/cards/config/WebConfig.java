@@ -0,0 +1,20 @@
+package com.example.cards.config;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.converter.HttpMessageConverters;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import com.example.cards.web.PreSerializedCreditCardHttpMessageConverter;
+
+/**
+ * Configuração do Spring MVC
+ */
+@Configuration
+public class WebConfig implements WebMvcConfigurer {
+
+    @Override
+    public void configureMessageConverters(HttpMessageConverters.ServerBuilder builder) {
+        // Conversores customizados entram antes dos padrões, então o Jackson não é usado para cartões pré-serializados
+        builder.addCustomConverter(new PreSerializedCreditCardHttpMessageConverter());
+    }
+}
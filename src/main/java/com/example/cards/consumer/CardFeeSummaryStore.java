@@ -0,0 +1,49 @@
+package com.example.cards.consumer;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import com.example.cards.config.CardAggregationProperties;
+import com.example.cards.domain.CreditCardBrand;
+
+/**
+ * Últimas janelas fechadas, pela chave da janela. Uma janela reemitida após
+ * reinício substitui a anterior, que tem os mesmos valores.
+ */
+@Component
+@ConditionalOnProperty(name = "cards.aggregation.enabled", havingValue = "true")
+public class CardFeeSummaryStore {
+
+    private final Map<String, CardFeeWindowSummary> summaries;
+
+    public CardFeeSummaryStore(CardAggregationProperties properties) {
+        int retained = properties.getRetainedWindows();
+        this.summaries = new LinkedHashMap<>() {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, CardFeeWindowSummary> eldest) {
+                return size() > retained;
+            }
+        };
+    }
+
+    public synchronized void put(CardFeeWindowSummary summary) {
+        summaries.put(summary.key(), summary);
+    }
+
+    /** Janelas mais recentes primeiro, opcionalmente de uma única bandeira */
+    public synchronized List<CardFeeWindowSummary> recent(CreditCardBrand brand) {
+        List<CardFeeWindowSummary> result = new ArrayList<>(summaries.size());
+        for (CardFeeWindowSummary summary : summaries.values()) {
+            if (brand == null || summary.brand() == brand) {
+                result.add(summary);
+            }
+        }
+        result.sort((a, b) -> b.windowStart().compareTo(a.windowStart()));
+        return result;
+    }
+}
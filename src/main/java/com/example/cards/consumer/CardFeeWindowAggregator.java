@@ -0,0 +1,422 @@
+package com.example.cards.consumer;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.OffsetAndMetadata;
+import org.apache.kafka.clients.producer.ProducerConfig;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.common.errors.SerializationException;
+import org.apache.kafka.common.serialization.StringSerializer;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.kafka.autoconfigure.KafkaProperties;
+import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.kafka.core.DefaultKafkaProducerFactory;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.listener.ConsumerSeekAware;
+import org.springframework.stereotype.Component;
+
+import com.example.cards.config.CardAggregationProperties;
+import com.example.cards.domain.CreditCardBrand;
+import com.example.cards.domain.CreditCardBrandStrategyRegistry;
+import com.example.cards.domain.KafkaTopicStrategyProvider;
+import com.example.cards.domain.kafka.CreditCardEnvelopeDeserializer;
+
+import tools.jackson.databind.json.JsonMapper;
+
+/**
+ * Consumidor em lote dos tópicos das bandeiras que calcula, por bandeira, a quantidade de cartões
+ * e a tarifa total em janelas fixas pelo timestamp dos registros. Envelopes com vários cartões
+ * são contados pelo header de quantidade, sem desempacotar o valor.
+ *
+ * Cada partição acumula a sua janela aberta; ao fechar, a parcial entra na janela da bandeira, publicada
+ * uma única vez quando todas as partições da bandeira atribuídas ao processo já passaram dela. Uma partição
+ * sem registros há mais de uma janela (pelo relógio) não segura as demais; se voltar com registros de uma
+ * janela já publicada, a sua parcial sai num resumo à parte, com chave própria.
+ *
+ * O envio não bloqueia a thread do consumidor: a cada lote, o offset confirmado de cada partição é o do primeiro
+ * registro da sua janela mais antiga ainda sem resumo confirmado pelo Kafka. Depois de um reinício ou
+ * rebalanceamento, essas janelas são recontadas desde o início com os mesmos registros e fecham com os
+ * mesmos valores; uma janela reemitida com as mesmas partições tem a mesma chave e o mesmo conteúdo.
+ */
+@Component
+@ConditionalOnProperty(name = "cards.aggregation.enabled", havingValue = "true")
+public class CardFeeWindowAggregator implements ConsumerSeekAware, DisposableBean {
+
+    private static final org.slf4j.Logger log = org.slf4j.LoggerFactory.getLogger(CardFeeWindowAggregator.class);
+
+    private final Map<String, CreditCardBrand> brandsByTopic = new HashMap<>();
+    private final double feeBaseAmount;
+    private final long windowMillis;
+    private final String summaryTopic;
+    private final CardFeeSummaryStore summaryStore;
+    private final JsonMapper jsonMapper;
+    private final DefaultKafkaProducerFactory<String, String> summaryProducerFactory;
+    private final KafkaTemplate<String, String> summaryTemplate;
+
+    // Estado das partições atribuídas a este processo; cada partição é usada por uma única thread por vez
+    private final Map<TopicPartition, PartitionWindow> windows = new ConcurrentHashMap<>();
+    // Janelas fechadas em alguma partição e ainda sem resumo confirmado, indexadas pelo ordinal da bandeira
+    private final BrandWindows[] brandWindows = new BrandWindows[CreditCardBrand.values().length];
+
+    public CardFeeWindowAggregator(CardAggregationProperties properties,
+                                   KafkaTopicStrategyProvider topicStrategyProvider,
+                                   KafkaProperties kafkaProperties,
+                                   CardFeeSummaryStore summaryStore,
+                                   JsonMapper jsonMapper) {
+        for (CreditCardBrand brand : CreditCardBrand.values()) {
+            brandsByTopic.put(topicStrategyProvider.getTopicName(brand), brand);
+        }
+        this.feeBaseAmount = properties.getFeeBaseAmount();
+        this.windowMillis = properties.getWindow().toMillis();
+        for (int i = 0; i < brandWindows.length; i++) {
+            brandWindows[i] = new BrandWindows();
+        }
+        this.summaryTopic = properties.getSummaryTopic();
+        this.summaryStore = summaryStore;
+        this.jsonMapper = jsonMapper;
+
+        Map<String, Object> producerProperties = kafkaProperties.buildProducerProperties();
+        producerProperties.put(ProducerConfig.CLIENT_ID_CONFIG, "cards-fee-summary");
+        producerProperties.put(ProducerConfig.ACKS_CONFIG, "all");
+        this.summaryProducerFactory = new DefaultKafkaProducerFactory<>(
+                producerProperties, new StringSerializer(), new StringSerializer());
+        this.summaryTemplate = new KafkaTemplate<>(summaryProducerFactory);
+    }
+
+    public String[] getTopics() {
+        return brandsByTopic.keySet().toArray(String[]::new);
+    }
+
+    @KafkaListener(id = "card-fee-aggregator", groupId = "${cards.aggregation.group-id:cards-fee-aggregator}",
+                   topics = "#{__listener.topics}", containerFactory = "cardAggregationContainerFactory")
+    public void onBatch(List<ConsumerRecord<String, byte[]>> records, Consumer<?, ?> consumer) {
+        List<PartitionWindow> touched = new ArrayList<>();
+        PartitionWindow current = null;
+
+        for (ConsumerRecord<String, byte[]> record : records) {
+            // Os registros de um lote vêm agrupados por partição
+            if (current == null || current.partition != record.partition() || !current.topic.equals(record.topic())) {
+                current = windowFor(record, touched);
+                if (current == null) {
+                    continue;
+                }
+            }
+            long start = Math.floorDiv(record.timestamp(), windowMillis) * windowMillis;
+            if (current.windowStart == PartitionWindow.NONE) {
+                current.open(start, record.offset(), feeCents(current.brand));
+            } else if (start > current.windowStart) {
+                // A parcial entra na janela da bandeira antes de a partição abrir a próxima
+                brandWindows[current.brand.ordinal()].add(current, windowMillis);
+                current.open(start, record.offset(), feeCents(current.brand));
+            }
+            // Registro atrasado (timestamp de janela anterior) conta na janela aberta,
+            // o que é determinístico porque a ordem dentro da partição é fixa
+            int cards = cardCount(record);
+            current.count += cards;
+            current.totalFeeCents += cards * current.feeCents;
+        }
+
+        long now = System.nanoTime();
+        for (PartitionWindow window : touched) {
+            window.lastRecordNanos = now;
+        }
+        for (CreditCardBrand brand : CreditCardBrand.values()) {
+            emitReady(brand, now);
+        }
+
+        try {
+            commit(consumer);
+        } catch (RuntimeException e) {
+            // Volta cada partição para o último offset confirmado e recomeça a contagem de lá
+            log.error("Falha ao confirmar janelas de tarifa; reprocessando a partir do último offset confirmado", e);
+            for (PartitionWindow window : touched) {
+                reset(window.topicPartition);
+                consumer.seek(window.topicPartition, window.committedOffset);
+            }
+        }
+    }
+
+    /** Cartões do registro; um envelope ilegível conta como um cartão para não travar a partição */
+    private static int cardCount(ConsumerRecord<String, byte[]> record) {
+        try {
+            return Math.max(1, CreditCardEnvelopeDeserializer.cardCount(record.headers(), record.value()));
+        } catch (SerializationException e) {
+            log.warn("Registro {}-{}@{} com envelope ilegível, contado como um cartão: {}",
+                     record.topic(), record.partition(), record.offset(), e.getMessage());
+            return 1;
+        }
+    }
+
+    private PartitionWindow windowFor(ConsumerRecord<String, byte[]> record, List<PartitionWindow> touched) {
+        CreditCardBrand brand = brandsByTopic.get(record.topic());
+        if (brand == null) {
+            return null;
+        }
+        TopicPartition topicPartition = new TopicPartition(record.topic(), record.partition());
+        // Estado novo começa no offset de onde o consumidor partiu: o confirmado ou o do reset
+        PartitionWindow window = windows.computeIfAbsent(topicPartition,
+                tp -> new PartitionWindow(tp, brand, record.offset()));
+        if (!touched.contains(window)) {
+            touched.add(window);
+        }
+        return window;
+    }
+
+    // Os cartões não têm valor de transação: a tarifa é a da bandeira sobre o valor de referência.
+    // Lida na abertura de cada janela, para que uma recarga das regras valha a partir da próxima janela
+    private long feeCents(CreditCardBrand brand) {
+        return Math.round(CreditCardBrandStrategyRegistry.get(brand).calculateFee(feeBaseAmount) * 100);
+    }
+
+    /**
+     * Publica as janelas da bandeira que todas as partições ativas já passaram. O envio é assíncrono:
+     * a janela só sai das pendentes, liberando o offset das suas partições, quando o Kafka confirma.
+     */
+    private void emitReady(CreditCardBrand brand, long now) {
+        long windowNanos = TimeUnit.MILLISECONDS.toNanos(windowMillis);
+        long watermark = Long.MAX_VALUE;
+        for (PartitionWindow window : windows.values()) {
+            // Partição ainda sem registro desde a atribuição (NONE) segura todas as janelas até ficar ociosa
+            if (window.brand == brand && now - window.lastRecordNanos <= windowNanos) {
+                watermark = Math.min(watermark, window.windowStart);
+            }
+        }
+        BrandWindows pending = brandWindows[brand.ordinal()];
+        for (BrandWindow window : pending.takeReady(watermark)) {
+            CardFeeWindowSummary summary = window.summary(brand);
+            CompletableFuture<?> send;
+            try {
+                send = summaryTemplate.send(summaryTopic, summary.key(), jsonMapper.writeValueAsString(summary));
+            } catch (RuntimeException e) {
+                send = CompletableFuture.failedFuture(e);
+            }
+            send.whenComplete((result, e) -> {
+                if (e != null) {
+                    // Continua pendente, segurando o offset; o próximo lote tenta de novo
+                    log.error("Falha ao publicar a janela de tarifas {}", summary.key(), e);
+                    pending.release(window);
+                    return;
+                }
+                pending.remove(window);
+                summaryStore.put(summary);
+                log.info("### Janela de tarifas fechada: {} cartões, tarifa {} ({})",
+                         summary.count(), summary.totalFee(), summary.key());
+            });
+        }
+    }
+
+    /** Confirma, para as partições deste consumidor, o início da janela mais antiga ainda sem resumo confirmado */
+    private void commit(Consumer<?, ?> consumer) {
+        Map<TopicPartition, OffsetAndMetadata> offsets = new HashMap<>();
+        for (TopicPartition topicPartition : consumer.assignment()) {
+            PartitionWindow window = windows.get(topicPartition);
+            if (window == null || window.windowStart == PartitionWindow.NONE) {
+                continue;
+            }
+            long offset = Math.min(window.firstOffset,
+                    brandWindows[window.brand.ordinal()].oldestPendingOffset(window.partition));
+            if (offset > window.committedOffset) {
+                offsets.put(topicPartition, new OffsetAndMetadata(offset));
+            }
+        }
+        if (offsets.isEmpty()) {
+            return;
+        }
+        consumer.commitSync(offsets);
+        offsets.forEach((topicPartition, committed) -> {
+            PartitionWindow window = windows.get(topicPartition);
+            if (window != null) {
+                window.committedOffset = committed.offset();
+            }
+        });
+    }
+
+    /** Descarta o estado da partição e as suas parciais ainda não enviadas; ela será recontada do offset confirmado */
+    private void reset(TopicPartition topicPartition) {
+        PartitionWindow window = windows.remove(topicPartition);
+        if (window != null) {
+            brandWindows[window.brand.ordinal()].discard(window.partition);
+        }
+    }
+
+    @Override
+    public void onPartitionsAssigned(Map<TopicPartition, Long> assignments, ConsumerSeekCallback callback) {
+        // Partições recebidas recomeçam do offset confirmado, então o estado anterior não vale mais.
+        // O estado novo já entra na marca d'água da bandeira antes do primeiro registro
+        assignments.forEach((topicPartition, offset) -> {
+            reset(topicPartition);
+            CreditCardBrand brand = brandsByTopic.get(topicPartition.topic());
+            if (brand != null) {
+                windows.put(topicPartition, new PartitionWindow(topicPartition, brand, offset));
+            }
+        });
+    }
+
+    @Override
+    public void onPartitionsRevoked(Collection<TopicPartition> partitions) {
+        partitions.forEach(this::reset);
+    }
+
+    @Override
+    public void destroy() {
+        summaryProducerFactory.destroy();
+    }
+
+    /** Acumuladores da janela aberta de uma partição */
+    private static final class PartitionWindow {
+
+        static final long NONE = Long.MIN_VALUE;
+
+        final TopicPartition topicPartition;
+        final String topic;
+        final int partition;
+        final CreditCardBrand brand;
+
+        long committedOffset;
+        // Lidos pelas threads das outras partições da bandeira ao decidir quais janelas publicar
+        volatile long windowStart = NONE;
+        volatile long lastRecordNanos = System.nanoTime();
+        long firstOffset;
+        long feeCents;
+        long count;
+        long totalFeeCents;
+
+        PartitionWindow(TopicPartition topicPartition, CreditCardBrand brand, long startOffset) {
+            this.topicPartition = topicPartition;
+            this.topic = topicPartition.topic();
+            this.partition = topicPartition.partition();
+            this.brand = brand;
+            this.committedOffset = startOffset;
+        }
+
+        void open(long start, long offset, long feeCents) {
+            firstOffset = offset;
+            this.feeCents = feeCents;
+            count = 0;
+            totalFeeCents = 0;
+            windowStart = start;
+        }
+    }
+
+    /** Parcial de uma partição numa janela fechada; firstOffset é de onde a partição recontaria a janela */
+    private record Partial(long firstOffset, long count, long totalFeeCents) {
+    }
+
+    /** Janela fechada de uma bandeira, somando as parciais das partições */
+    private static final class BrandWindow {
+
+        final long windowStart;
+        final long windowEnd;
+        final TreeMap<Integer, Partial> partials = new TreeMap<>();
+        boolean sending;
+
+        BrandWindow(long windowStart, long windowEnd) {
+            this.windowStart = windowStart;
+            this.windowEnd = windowEnd;
+        }
+
+        CardFeeWindowSummary summary(CreditCardBrand brand) {
+            long count = 0;
+            long totalFeeCents = 0;
+            for (Partial partial : partials.values()) {
+                count += partial.count();
+                totalFeeCents += partial.totalFeeCents();
+            }
+            return new CardFeeWindowSummary(brand, List.copyOf(partials.keySet()), Instant.ofEpochMilli(windowStart),
+                    Instant.ofEpochMilli(windowEnd), count, BigDecimal.valueOf(totalFeeCents, 2));
+        }
+    }
+
+    /**
+     * Janelas pendentes de uma bandeira, em ordem de início. Usada pelas threads de todas as partições
+     * da bandeira e pelo callback do envio, sempre sob o lock da instância.
+     */
+    private static final class BrandWindows {
+
+        private final List<BrandWindow> pending = new ArrayList<>();
+
+        /** Junta a janela que a partição está fechando; uma janela já em envio não recebe parciais atrasadas */
+        synchronized void add(PartitionWindow window, long windowMillis) {
+            BrandWindow target = null;
+            int index = 0;
+            for (; index < pending.size() && pending.get(index).windowStart <= window.windowStart; index++) {
+                BrandWindow candidate = pending.get(index);
+                if (candidate.windowStart == window.windowStart && !candidate.sending
+                        && !candidate.partials.containsKey(window.partition)) {
+                    target = candidate;
+                }
+            }
+            if (target == null) {
+                target = new BrandWindow(window.windowStart, window.windowStart + windowMillis);
+                pending.add(index, target);
+            }
+            target.partials.put(window.partition, new Partial(window.firstOffset, window.count, window.totalFeeCents));
+        }
+
+        /** Marca para envio as janelas que começam antes da marca d'água */
+        synchronized List<BrandWindow> takeReady(long watermark) {
+            List<BrandWindow> ready = new ArrayList<>();
+            for (BrandWindow window : pending) {
+                if (window.windowStart >= watermark) {
+                    break;
+                }
+                if (!window.sending) {
+                    window.sending = true;
+                    ready.add(window);
+                }
+            }
+            return ready;
+        }
+
+        /** Devolve às pendentes uma janela cujo envio falhou, já sem as parciais descartadas nesse meio tempo */
+        synchronized void release(BrandWindow window) {
+            window.sending = false;
+            if (window.partials.isEmpty()) {
+                pending.remove(window);
+            }
+        }
+
+        synchronized void remove(BrandWindow window) {
+            pending.remove(window);
+        }
+
+        /** Offset de onde a partição recontaria a sua janela pendente mais antiga, ou Long.MAX_VALUE */
+        synchronized long oldestPendingOffset(int partition) {
+            long offset = Long.MAX_VALUE;
+            for (BrandWindow window : pending) {
+                Partial partial = window.partials.get(partition);
+                if (partial != null) {
+                    offset = Math.min(offset, partial.firstOffset());
+                }
+            }
+            return offset;
+        }
+
+        /**
+         * Tira as parciais da partição, que será recontada. Uma janela em envio segue com o resumo já montado;
+         * se o envio falhar, a nova tentativa sai sem a partição.
+         */
+        synchronized void discard(int partition) {
+            for (Iterator<BrandWindow> it = pending.iterator(); it.hasNext(); ) {
+                BrandWindow window = it.next();
+                if (window.partials.remove(partition) != null && window.partials.isEmpty() && !window.sending) {
+                    it.remove();
+                }
+            }
+        }
+    }
+}
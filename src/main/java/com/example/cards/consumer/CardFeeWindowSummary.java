@@ -0,0 +1,38 @@
+package com.example.cards.consumer;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import com.example.cards.domain.CreditCardBrand;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+
+/**
+ * Totais de uma janela fechada da bandeira, somados sobre as partições do tópico atribuídas ao processo
+ */
+@Schema(description = "Quantidade de cartões e tarifa total de uma janela fechada")
+public record CardFeeWindowSummary(
+        @Schema(description = "Bandeira do tópico", example = "VISA")
+        CreditCardBrand brand,
+        @Schema(description = "Partições do tópico da bandeira somadas na janela", example = "[0, 1, 2]")
+        List<Integer> partitions,
+        @Schema(description = "Início da janela (inclusivo)")
+        Instant windowStart,
+        @Schema(description = "Fim da janela (exclusivo)")
+        Instant windowEnd,
+        @Schema(description = "Cartões na janela", example = "1520")
+        long count,
+        @Schema(description = "Soma das tarifas dos cartões da janela", example = "2736.00")
+        BigDecimal totalFee) {
+
+    /**
+     * Chave estável da janela: a mesma janela reprocessada gera a mesma chave. As partições fazem parte
+     * da chave para que processos do mesmo grupo não sobrescrevam a soma uns dos outros.
+     */
+    public String key() {
+        return brand + ":" + windowStart.toEpochMilli() + ":"
+                + partitions.stream().map(String::valueOf).collect(Collectors.joining(","));
+    }
+}
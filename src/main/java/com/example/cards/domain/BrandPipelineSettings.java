@@ -0,0 +1,41 @@
+package com.example.cards.domain;
+
+import java.time.Duration;
+
+/**
+ * Configuração do pipeline de envio de uma bandeira: buffer em memória,
+ * tamanho e espera máxima do lote, e parâmetros do producer Kafka dedicado.
+ *
+ * @param bufferCapacity quantidade máxima de cartões aguardando envio
+ * @param flushSize      quantidade de cartões por lote enviado
+ * @param linger         espera máxima de um cartão no buffer antes do envio
+ * @param acks           confirmação exigida do broker (acks do producer)
+ * @param compression    algoritmo de compressão do producer
+ * @param maxInFlight    requisições não confirmadas por conexão
+ * @param envelopeSize   cartões agrupados em cada registro Kafka (0 ou 1 = um registro por cartão)
+ * @param sink           destino dos lotes: kafka, file ou memory
+ * @param flushTimeout   prazo de confirmação de cada envio agendado; depois dele o ciclo segue sem esperar a bandeira
+ */
+public record BrandPipelineSettings(
+        int bufferCapacity,
+        int flushSize,
+        Duration linger,
+        String acks,
+        String compression,
+        int maxInFlight,
+        int envelopeSize,
+        String sink,
+        Duration flushTimeout) {
+
+    /** Valores padrão de cada parâmetro, usados para bandeiras sem configuração própria */
+    public static final BrandPipelineSettings DEFAULTS =
+            new BrandPipelineSettings(100_000, 1000, Duration.ofMillis(500), "1", "lz4", 5, 0, "kafka", Duration.ofSeconds(2));
+
+    public boolean usesEnvelopes() {
+        return envelopeSize > 1;
+    }
+
+    public BrandPipelineSettings withBatching(int newFlushSize, Duration newLinger) {
+        return new BrandPipelineSettings(bufferCapacity, newFlushSize, newLinger, acks, compression, maxInFlight, envelopeSize, sink, flushTimeout);
+    }
+}
@@ -0,0 +1,8 @@
+package com.example.cards.domain;
+
+/**
+ * Situação de entrega de um cartão ao Kafka (SPOOLED: gravado no spool local com o circuito aberto, aguardando reenvio)
+ */
+public enum CardDeliveryStatus {
+    QUEUED, PUBLISHED, FAILED, SPOOLED
+}
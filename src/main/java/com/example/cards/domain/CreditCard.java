@@ -2,8 +2,9 @@ package com.example.cards.domain;
 
 
 public interface CreditCard {
+    long getId();
     String getUUID();
     String getHolderName();
     String getNumber();
     CreditCardBrand getBrand();
-}
\ No newline at end of file
+}
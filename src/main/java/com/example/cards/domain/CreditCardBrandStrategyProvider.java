@@ -1,26 +1,23 @@
 package com.example.cards.domain;
 
-import com.example.cards.domain.amex.AmexStrategy;
-import com.example.cards.domain.master.MasterCardStrategy;
-import com.example.cards.domain.visa.VisaStrategy;
-
 public enum CreditCardBrandStrategyProvider {
     
-    VISA(new VisaStrategy()),
-    MASTERCARD(new MasterCardStrategy()),
-    AMEX(new AmexStrategy());
+    VISA(CreditCardBrand.VISA),
+    MASTERCARD(CreditCardBrand.MASTERCARD),
+    AMEX(CreditCardBrand.AMEX);
 
-    private final CreditCardBrandStrategy strategy;
+    private final CreditCardBrand brand;
 
-    CreditCardBrandStrategyProvider(CreditCardBrandStrategy strategy) {
-        this.strategy = strategy;
+    CreditCardBrandStrategyProvider(CreditCardBrand brand) {
+        this.brand = brand;
     }
 
+    /** Estratégia vigente da bandeira; acompanha as recargas do arquivo de regras */
     public CreditCardBrandStrategy get() {
-        return strategy;
+        return CreditCardBrandStrategyRegistry.get(brand);
     }
 
     public static CreditCardBrandStrategy getByBrand(CreditCardBrand brand) {
-        return valueOf(brand.name()).get();
+        return CreditCardBrandStrategyRegistry.get(brand);
     }
 }
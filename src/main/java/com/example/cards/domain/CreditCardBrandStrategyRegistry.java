@@ -0,0 +1,44 @@
+package com.example.cards.domain;
+
+import java.util.Map;
+
+import com.example.cards.domain.amex.AmexStrategy;
+import com.example.cards.domain.master.MasterCardStrategy;
+import com.example.cards.domain.visa.VisaStrategy;
+
+/**
+ * Estratégias das bandeiras num array indexado por {@link CreditCardBrand#ordinal()}.
+ *
+ * A consulta é uma leitura volátil e um acesso ao array, sem hash nem lock. Uma troca de regras monta
+ * um array novo e o publica de uma vez: quem já leu o array anterior termina a validação com ele e as
+ * threads de requisição nunca esperam pela recarga.
+ */
+public final class CreditCardBrandStrategyRegistry {
+
+    private static volatile CreditCardBrandStrategy[] strategies = defaults();
+
+    private CreditCardBrandStrategyRegistry() {
+    }
+
+    public static CreditCardBrandStrategy get(CreditCardBrand brand) {
+        return strategies[brand.ordinal()];
+    }
+
+    /**
+     * Publica as estratégias informadas; bandeiras ausentes do mapa voltam às regras embutidas.
+     */
+    public static synchronized void replace(Map<CreditCardBrand, ? extends CreditCardBrandStrategy> replacements) {
+        CreditCardBrandStrategy[] next = defaults();
+        replacements.forEach((brand, strategy) -> next[brand.ordinal()] = strategy);
+        strategies = next;
+    }
+
+    /** Regras embutidas, usadas enquanto não houver arquivo de regras */
+    public static CreditCardBrandStrategy[] defaults() {
+        CreditCardBrandStrategy[] array = new CreditCardBrandStrategy[CreditCardBrand.values().length];
+        array[CreditCardBrand.VISA.ordinal()] = new VisaStrategy();
+        array[CreditCardBrand.MASTERCARD.ordinal()] = new MasterCardStrategy();
+        array[CreditCardBrand.AMEX.ordinal()] = new AmexStrategy();
+        return array;
+    }
+}
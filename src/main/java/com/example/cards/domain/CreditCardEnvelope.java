@@ -0,0 +1,55 @@
+package com.example.cards.domain;
+
+import java.nio.ByteBuffer;
+import java.util.List;
+
+/**
+ * Vários cartões de um mesmo lote num único registro Kafka.
+ *
+ * O valor do registro é a sequência {@code [int tamanho][JSON do cartão]}, uma vez por cartão,
+ * e a quantidade vai no header {@value #COUNT_HEADER}. O JSON de cada cartão é o mesmo do modo
+ * um-registro-por-cartão, então cartões pré-serializados entram sem nova codificação.
+ */
+public final class CreditCardEnvelope {
+
+    /** Header com a quantidade de cartões do registro (decimal ASCII) */
+    public static final String COUNT_HEADER = "cards-count";
+
+    private final List<CreditCard> cards;
+    private final byte[] payload;
+
+    private CreditCardEnvelope(List<CreditCard> cards, byte[] payload) {
+        this.cards = cards;
+        this.payload = payload;
+    }
+
+    public static CreditCardEnvelope of(List<CreditCard> cards) {
+        byte[][] encoded = new byte[cards.size()][];
+        int size = 0;
+        for (int i = 0; i < encoded.length; i++) {
+            CreditCard card = cards.get(i);
+            encoded[i] = card instanceof PreSerializedCreditCard preSerialized
+                    ? preSerialized.getPayload()
+                    : CreditCardJsonCodec.encode(card);
+            size += Integer.BYTES + encoded[i].length;
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(size);
+        for (byte[] card : encoded) {
+            buffer.putInt(card.length).put(card);
+        }
+        return new CreditCardEnvelope(cards, buffer.array());
+    }
+
+    public List<CreditCard> getCards() {
+        return cards;
+    }
+
+    /** Valor do registro. Não deve ser alterado por quem o recebe. */
+    public byte[] getPayload() {
+        return payload;
+    }
+
+    public int size() {
+        return cards.size();
+    }
+}
@@ -0,0 +1,129 @@
+package com.example.cards.domain;
+
+import java.util.Arrays;
+
+/**
+ * Codificação JSON de cartões sem reflexão, no formato que os consumidores dos tópicos leem
+ * (o mesmo que o JsonSerializer do Kafka gerava para {@link DefaultCreditCard} com o Jackson 2).
+ * Usa um buffer de trabalho reaproveitado por thread, então a única alocação por cartão é o array
+ * final com o tamanho exato.
+ */
+public final class CreditCardJsonCodec {
+
+    private static final int INITIAL_SCRATCH_SIZE = 512;
+    private static final int MAX_RETAINED_SCRATCH_SIZE = 64 * 1024;
+    private static final byte[] HEX = "0123456789abcdef".getBytes();
+
+    private static final ThreadLocal<Scratch> SCRATCH = ThreadLocal.withInitial(Scratch::new);
+
+    private CreditCardJsonCodec() {
+    }
+
+    public static byte[] encode(CreditCard card) {
+        Scratch out = SCRATCH.get();
+        out.reset();
+        out.ascii("{\"id\":");
+        out.number(card.getId());
+        out.ascii(",\"uuid\":");
+        out.string(card.getUUID());
+        out.ascii(",\"holderName\":");
+        out.string(card.getHolderName());
+        out.ascii(",\"number\":");
+        out.string(card.getNumber());
+        out.ascii(",\"brand\":");
+        out.string(card.getBrand().name());
+        out.put('}');
+        return out.toByteArray();
+    }
+
+    /** Buffer de bytes crescente, reaproveitado entre codificações da mesma thread */
+    private static final class Scratch {
+
+        private byte[] buf = new byte[INITIAL_SCRATCH_SIZE];
+        private int len;
+
+        void reset() {
+            if (buf.length > MAX_RETAINED_SCRATCH_SIZE) {
+                buf = new byte[INITIAL_SCRATCH_SIZE];
+            }
+            len = 0;
+        }
+
+        byte[] toByteArray() {
+            return Arrays.copyOf(buf, len);
+        }
+
+        void put(int b) {
+            if (len == buf.length) {
+                buf = Arrays.copyOf(buf, buf.length * 2);
+            }
+            buf[len++] = (byte) b;
+        }
+
+        void ascii(String s) {
+            for (int i = 0; i < s.length(); i++) {
+                put(s.charAt(i));
+            }
+        }
+
+        void number(long value) {
+            if (value < 0) {
+                if (value == Long.MIN_VALUE) {
+                    ascii(Long.toString(value));
+                    return;
+                }
+                put('-');
+                value = -value;
+            }
+            int start = len;
+            do {
+                put((int) ('0' + value % 10));
+                value /= 10;
+            } while (value != 0);
+            // Os dígitos foram escritos do menos para o mais significativo
+            for (int i = start, j = len - 1; i < j; i++, j--) {
+                byte tmp = buf[i];
+                buf[i] = buf[j];
+                buf[j] = tmp;
+            }
+        }
+
+        void string(String s) {
+            if (s == null) {
+                ascii("null");
+                return;
+            }
+            put('"');
+            for (int i = 0; i < s.length(); i++) {
+                char c = s.charAt(i);
+                if (c == '"' || c == '\\') {
+                    put('\\');
+                    put(c);
+                } else if (c < 0x20) {
+                    ascii("\\u00");
+                    put(HEX[c >> 4]);
+                    put(HEX[c & 0xF]);
+                } else if (c < 0x80) {
+                    put(c);
+                } else if (c < 0x800) {
+                    put(0xC0 | (c >> 6));
+                    put(0x80 | (c & 0x3F));
+                } else if (Character.isHighSurrogate(c) && i + 1 < s.length()
+                        && Character.isLowSurrogate(s.charAt(i + 1))) {
+                    int cp = Character.toCodePoint(c, s.charAt(++i));
+                    put(0xF0 | (cp >> 18));
+                    put(0x80 | ((cp >> 12) & 0x3F));
+                    put(0x80 | ((cp >> 6) & 0x3F));
+                    put(0x80 | (cp & 0x3F));
+                } else if (Character.isSurrogate(c)) {
+                    put('?');
+                } else {
+                    put(0xE0 | (c >> 12));
+                    put(0x80 | ((c >> 6) & 0x3F));
+                    put(0x80 | (c & 0x3F));
+                }
+            }
+            put('"');
+        }
+    }
+}
@@ -1,9 +1,15 @@
 package com.example.cards.domain;
 
 import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
 
 public class DefaultCreditCard implements CreditCard {
 
+    // Sequência iniciada pelo relógio para não repetir IDs entre reinícios
+    private static final AtomicLong SEQUENCE = new AtomicLong(System.currentTimeMillis() << 20);
+
+    private final long id;
+    private final String uuid;
     private final String holderName;
     private final String number;
     private final CreditCardBrand brand;
@@ -20,6 +26,14 @@ public class DefaultCreditCard implements CreditCard {
         CreditCardBrandStrategy strategy = CreditCardBrandFactory.getStrategy(brand);
         strategy.validate(number);
         this.number = strategy.normalize(number);
+        this.uuid = UUID.randomUUID().toString();
+        this.id = SEQUENCE.incrementAndGet();
+    }
+
+
+    @Override
+    public long getId() {
+        return id;
     }
 
 
@@ -43,6 +57,6 @@ public class DefaultCreditCard implements CreditCard {
 
     @Override
     public String getUUID() {
-        return UUID.randomUUID().toString();
+        return uuid;
     }
 }
@@ -0,0 +1,41 @@
+package com.example.cards.domain;
+
+/**
+ * Cartão com o número substituído pelo token cifrado do envelope do lote.
+ * Usado apenas para serializar o registro enviado ao Kafka.
+ */
+public final class EncryptedPanCreditCard implements CreditCard {
+
+    private final CreditCard card;
+    private final String encryptedNumber;
+
+    public EncryptedPanCreditCard(CreditCard card, String encryptedNumber) {
+        this.card = card;
+        this.encryptedNumber = encryptedNumber;
+    }
+
+    @Override
+    public long getId() {
+        return card.getId();
+    }
+
+    @Override
+    public String getUUID() {
+        return card.getUUID();
+    }
+
+    @Override
+    public String getHolderName() {
+        return card.getHolderName();
+    }
+
+    @Override
+    public String getNumber() {
+        return encryptedNumber;
+    }
+
+    @Override
+    public CreditCardBrand getBrand() {
+        return card.getBrand();
+    }
+}
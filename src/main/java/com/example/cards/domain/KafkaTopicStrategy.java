@@ -3,4 +3,5 @@ package com.example.cards.domain;
 public interface KafkaTopicStrategy {
     String getTopicName();
     CreditCardBrand getBrand();
+    BrandPipelineSettings getPipelineSettings();
 }
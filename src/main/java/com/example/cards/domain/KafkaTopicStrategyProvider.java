@@ -4,6 +4,7 @@ import org.springframework.stereotype.Component;
 
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicReferenceArray;
 import java.util.function.Function;
 import java.util.stream.Collectors;
 
@@ -11,6 +12,10 @@ import java.util.stream.Collectors;
 public class KafkaTopicStrategyProvider {
     
     private final Map<CreditCardBrand, KafkaTopicStrategy> strategies;
+
+    // Configuração em vigor de cada bandeira, pelo ordinal; começa com a configurada e pode ser ajustada em execução
+    private final AtomicReferenceArray<BrandPipelineSettings> effectiveSettings =
+            new AtomicReferenceArray<>(CreditCardBrand.values().length);
     
     public KafkaTopicStrategyProvider(List<KafkaTopicStrategy> strategyList) {
         this.strategies = strategyList.stream()
@@ -18,6 +23,9 @@ public class KafkaTopicStrategyProvider {
                 KafkaTopicStrategy::getBrand,
                 Function.identity()
             ));
+        for (CreditCardBrand brand : CreditCardBrand.values()) {
+            effectiveSettings.set(brand.ordinal(), getConfiguredPipelineSettings(brand));
+        }
     }
     
     public String getTopicName(CreditCardBrand brand) {
@@ -27,4 +35,23 @@ public class KafkaTopicStrategyProvider {
         }
         return "cartoes-outros"; // fallback
     }
+
+    /** Configuração em vigor do pipeline da bandeira */
+    public BrandPipelineSettings getPipelineSettings(CreditCardBrand brand) {
+        return effectiveSettings.get(brand.ordinal());
+    }
+
+    /** Configuração da bandeira como definida em cards.pipeline.brands.*, sem ajustes em execução */
+    public BrandPipelineSettings getConfiguredPipelineSettings(CreditCardBrand brand) {
+        KafkaTopicStrategy strategy = strategies.get(brand);
+        if (strategy != null) {
+            return strategy.getPipelineSettings();
+        }
+        return BrandPipelineSettings.DEFAULTS;
+    }
+
+    /** Substitui a configuração em vigor; os próximos lotes da bandeira já usam a nova */
+    public void updatePipelineSettings(CreditCardBrand brand, BrandPipelineSettings settings) {
+        effectiveSettings.set(brand.ordinal(), settings);
+    }
 }
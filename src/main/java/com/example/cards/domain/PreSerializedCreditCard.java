@@ -0,0 +1,61 @@
+package com.example.cards.domain;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
+/**
+ * Cartão acompanhado do seu JSON já codificado no cadastro.
+ * Os mesmos bytes são usados como valor do registro no Kafka e no corpo das respostas HTTP.
+ */
+public final class PreSerializedCreditCard implements CreditCard {
+
+    private final CreditCard card;
+    private final byte[] payload;
+
+    private PreSerializedCreditCard(CreditCard card, byte[] payload) {
+        this.card = card;
+        this.payload = payload;
+    }
+
+    public static PreSerializedCreditCard of(CreditCard card) {
+        if (card instanceof PreSerializedCreditCard preSerialized) {
+            return preSerialized;
+        }
+        return new PreSerializedCreditCard(card, CreditCardJsonCodec.encode(card));
+    }
+
+    /** JSON do cartão. Não deve ser alterado por quem o recebe. */
+    @JsonIgnore
+    public byte[] getPayload() {
+        return payload;
+    }
+
+    @JsonIgnore
+    public CreditCard getCard() {
+        return card;
+    }
+
+    @Override
+    public long getId() {
+        return card.getId();
+    }
+
+    @Override
+    public String getUUID() {
+        return card.getUUID();
+    }
+
+    @Override
+    public String getHolderName() {
+        return card.getHolderName();
+    }
+
+    @Override
+    public String getNumber() {
+        return card.getNumber();
+    }
+
+    @Override
+    public CreditCardBrand getBrand() {
+        return card.getBrand();
+    }
+}
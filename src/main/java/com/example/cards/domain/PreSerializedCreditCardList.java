@@ -0,0 +1,27 @@
+package com.example.cards.domain;
+
+import java.util.AbstractList;
+import java.util.RandomAccess;
+
+/**
+ * Lista imutável de cartões pré-serializados, escrita nas respostas HTTP
+ * concatenando os JSONs de cada cartão sem nova serialização.
+ */
+public final class PreSerializedCreditCardList extends AbstractList<CreditCard> implements RandomAccess {
+
+    private final PreSerializedCreditCard[] cards;
+
+    public PreSerializedCreditCardList(PreSerializedCreditCard[] cards) {
+        this.cards = cards;
+    }
+
+    @Override
+    public PreSerializedCreditCard get(int index) {
+        return cards[index];
+    }
+
+    @Override
+    public int size() {
+        return cards.length;
+    }
+}
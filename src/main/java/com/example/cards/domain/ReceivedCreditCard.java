@@ -0,0 +1,47 @@
+package com.example.cards.domain;
+
+/**
+ * Cartão lido de um registro do Kafka, com o ID e o UUID atribuídos no cadastro.
+ * Não repete a validação da bandeira, que já foi feita por quem publicou.
+ */
+public final class ReceivedCreditCard implements CreditCard {
+
+    private final long id;
+    private final String uuid;
+    private final String holderName;
+    private final String number;
+    private final CreditCardBrand brand;
+
+    public ReceivedCreditCard(long id, String uuid, String holderName, String number, CreditCardBrand brand) {
+        this.id = id;
+        this.uuid = uuid;
+        this.holderName = holderName;
+        this.number = number;
+        this.brand = brand;
+    }
+
+    @Override
+    public long getId() {
+        return id;
+    }
+
+    @Override
+    public String getUUID() {
+        return uuid;
+    }
+
+    @Override
+    public String getHolderName() {
+        return holderName;
+    }
+
+    @Override
+    public String getNumber() {
+        return number;
+    }
+
+    @Override
+    public CreditCardBrand getBrand() {
+        return brand;
+    }
+}
@@ -0,0 +1,135 @@
+package com.example.cards.domain;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Estratégia montada a partir das regras do arquivo de bandeiras (faixas de prefixo, tamanhos aceitos e tarifa).
+ *
+ * Uma faixa é um prefixo único ("4") ou um intervalo de prefixos com a mesma quantidade de dígitos
+ * ("51-55", "2221-2720"). As mensagens de erro seguem as das estratégias embutidas.
+ */
+public class RuleBasedBrandStrategy implements CreditCardBrandStrategy {
+
+    private final String label;
+    private final int[] prefixWidths;
+    private final long[] prefixLows;
+    private final long[] prefixHighs;
+    private final int[] lengths;
+    private final double feeRate;
+    private final String prefixMessage;
+    private final String lengthMessage;
+
+    public RuleBasedBrandStrategy(String label, List<String> prefixes, List<Integer> lengths, double feeRate) {
+        if (prefixes.isEmpty()) {
+            throw new IllegalArgumentException(label + ": informe ao menos um prefixo");
+        }
+        if (lengths.isEmpty()) {
+            throw new IllegalArgumentException(label + ": informe ao menos um tamanho");
+        }
+        if (!(feeRate >= 0 && feeRate < 1)) {
+            throw new IllegalArgumentException(label + ": tarifa inválida " + feeRate);
+        }
+        this.label = label;
+        this.prefixWidths = new int[prefixes.size()];
+        this.prefixLows = new long[prefixes.size()];
+        this.prefixHighs = new long[prefixes.size()];
+        for (int i = 0; i < prefixes.size(); i++) {
+            String range = prefixes.get(i).trim();
+            int dash = range.indexOf('-');
+            String low = dash < 0 ? range : range.substring(0, dash).trim();
+            String high = dash < 0 ? range : range.substring(dash + 1).trim();
+            if (low.isEmpty() || low.length() != high.length() || low.length() > 18
+                    || !low.chars().allMatch(Character::isDigit) || !high.chars().allMatch(Character::isDigit)) {
+                throw new IllegalArgumentException(label + ": faixa de prefixo inválida '" + range + "'");
+            }
+            prefixWidths[i] = low.length();
+            prefixLows[i] = Long.parseLong(low);
+            prefixHighs[i] = Long.parseLong(high);
+            if (prefixLows[i] > prefixHighs[i]) {
+                throw new IllegalArgumentException(label + ": faixa de prefixo invertida '" + range + "'");
+            }
+        }
+        this.lengths = lengths.stream().mapToInt(Integer::intValue).distinct().sorted().toArray();
+        for (int length : this.lengths) {
+            if (length <= 0) {
+                throw new IllegalArgumentException(label + ": tamanho inválido " + length);
+            }
+        }
+        this.feeRate = feeRate;
+        this.prefixMessage = label + ": número deve iniciar com " + joinPortuguese(prefixes.stream().map(String::trim).toList());
+        this.lengthMessage = label + ": tamanho inválido (esperado "
+                + joinPortuguese(Arrays.stream(this.lengths).mapToObj(Integer::toString).toList()) + " dígitos)";
+    }
+
+    @Override
+    public void validate(String number) {
+        String n = normalize(number);
+
+        if (!matchesPrefix(n)) {
+            throw new IllegalArgumentException(prefixMessage);
+        }
+
+        if (!matchesLength(n.length())) {
+            throw new IllegalArgumentException(lengthMessage);
+        }
+    }
+
+    @Override
+    public String normalize(String number) {
+        return number == null ? "" : number.replaceAll("\\s|-", "");
+    }
+
+    @Override
+    public double calculateFee(double amount) {
+        return amount * feeRate;
+    }
+
+    public String getLabel() {
+        return label;
+    }
+
+    public double getFeeRate() {
+        return feeRate;
+    }
+
+    private boolean matchesPrefix(String n) {
+        for (int i = 0; i < prefixWidths.length; i++) {
+            int width = prefixWidths[i];
+            if (n.length() < width) {
+                continue;
+            }
+            long value = 0;
+            boolean digits = true;
+            for (int c = 0; c < width; c++) {
+                char ch = n.charAt(c);
+                if (ch < '0' || ch > '9') {
+                    digits = false;
+                    break;
+                }
+                value = value * 10 + (ch - '0');
+            }
+            if (digits && value >= prefixLows[i] && value <= prefixHighs[i]) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private boolean matchesLength(int length) {
+        for (int allowed : lengths) {
+            if (allowed == length) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // "16", "15 ou 16", "13, 16 ou 19"
+    private static String joinPortuguese(List<String> items) {
+        if (items.size() == 1) {
+            return items.get(0);
+        }
+        return String.join(", ", items.subList(0, items.size() - 1)) + " ou " + items.get(items.size() - 1);
+    }
+}
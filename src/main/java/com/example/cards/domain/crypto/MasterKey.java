@@ -0,0 +1,113 @@
+package com.example.cards.domain.crypto;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.Base64;
+import java.util.HexFormat;
+
+import javax.crypto.Cipher;
+import javax.crypto.SecretKey;
+import javax.crypto.spec.GCMParameterSpec;
+import javax.crypto.spec.SecretKeySpec;
+
+/**
+ * Chave mestra AES-256 guardada em arquivo local (base64 de 32 bytes).
+ * Só é usada para cifrar e decifrar as chaves de dados de cada lote (envelope).
+ */
+public final class MasterKey {
+
+    static final int KEY_BYTES = 32;
+    static final int IV_BYTES = 12;
+    static final int TAG_BITS = 128;
+
+    private static final SecureRandom RANDOM = new SecureRandom();
+
+    private final SecretKey key;
+    private final String id;
+
+    private MasterKey(byte[] keyBytes) {
+        if (keyBytes.length != KEY_BYTES) {
+            throw new IllegalArgumentException("Chave mestra deve ter " + KEY_BYTES + " bytes");
+        }
+        this.key = new SecretKeySpec(keyBytes, "AES");
+        this.id = fingerprint(keyBytes);
+    }
+
+    /**
+     * Lê a chave mestra do arquivo. Se não existir e {@code createIfMissing} for verdadeiro,
+     * gera uma chave nova com permissão apenas para o dono.
+     */
+    public static MasterKey load(Path file, boolean createIfMissing) {
+        try {
+            if (!Files.exists(file)) {
+                if (!createIfMissing) {
+                    throw new IllegalStateException("Arquivo da chave mestra não encontrado: " + file);
+                }
+                byte[] generated = new byte[KEY_BYTES];
+                RANDOM.nextBytes(generated);
+                Path parent = file.toAbsolutePath().getParent();
+                if (parent != null) {
+                    Files.createDirectories(parent);
+                }
+                Files.writeString(file, Base64.getEncoder().encodeToString(generated), StandardCharsets.US_ASCII);
+                try {
+                    Files.setPosixFilePermissions(file, PosixFilePermissions.fromString("rw-------"));
+                } catch (UnsupportedOperationException e) {
+                    // Sistema de arquivos sem permissões POSIX
+                }
+            }
+            return new MasterKey(Base64.getDecoder().decode(Files.readString(file, StandardCharsets.US_ASCII).trim()));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Falha ao ler a chave mestra de " + file, e);
+        }
+    }
+
+    /** Identificador público da chave (prefixo do SHA-256), gravado junto com cada chave de dados */
+    public String getId() {
+        return id;
+    }
+
+    /** Cifra a chave de dados: IV (12 bytes) seguido da chave cifrada e da tag GCM */
+    byte[] wrap(byte[] dataKey) {
+        byte[] iv = new byte[IV_BYTES];
+        RANDOM.nextBytes(iv);
+        try {
+            Cipher cipher = Cipher.getInstance("AES/GCM/NoPadding");
+            cipher.init(Cipher.ENCRYPT_MODE, key, new GCMParameterSpec(TAG_BITS, iv));
+            cipher.updateAAD(id.getBytes(StandardCharsets.US_ASCII));
+            byte[] wrapped = new byte[IV_BYTES + cipher.getOutputSize(dataKey.length)];
+            System.arraycopy(iv, 0, wrapped, 0, IV_BYTES);
+            cipher.doFinal(dataKey, 0, dataKey.length, wrapped, IV_BYTES);
+            return wrapped;
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("Falha ao cifrar a chave de dados", e);
+        }
+    }
+
+    SecretKey unwrap(byte[] wrapped) {
+        try {
+            Cipher cipher = Cipher.getInstance("AES/GCM/NoPadding");
+            cipher.init(Cipher.DECRYPT_MODE, key, new GCMParameterSpec(TAG_BITS, wrapped, 0, IV_BYTES));
+            cipher.updateAAD(id.getBytes(StandardCharsets.US_ASCII));
+            return new SecretKeySpec(cipher.doFinal(wrapped, IV_BYTES, wrapped.length - IV_BYTES), "AES");
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("Chave de dados inválida ou cifrada com outra chave mestra", e);
+        }
+    }
+
+    private static String fingerprint(byte[] keyBytes) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(keyBytes);
+            return HexFormat.of().formatHex(digest, 0, 8);
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,110 @@
+package com.example.cards.domain.crypto;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.SecureRandom;
+import java.util.Base64;
+
+import javax.crypto.Cipher;
+import javax.crypto.SecretKey;
+import javax.crypto.spec.GCMParameterSpec;
+import javax.crypto.spec.SecretKeySpec;
+
+/**
+ * Cifragem de PANs por envelope: cada lote usa uma chave de dados própria, cifrada pela
+ * {@link MasterKey} e enviada nos headers dos registros do lote.
+ *
+ * Cada PAN é cifrado com AES-GCM, com o ID do cartão como dado autenticado, e vira um token
+ * base64 com o IV seguido do texto cifrado e da tag. O IV é um sal aleatório do lote mais um
+ * contador, o que basta porque a chave de dados nunca é reutilizada entre lotes.
+ * As instâncias de {@link Cipher} são reaproveitadas por thread; por cartão há apenas o init.
+ */
+public final class PanEnvelope {
+
+    /** Header com a chave de dados do lote cifrada pela chave mestra */
+    public static final String DATA_KEY_HEADER = "cards-dek";
+
+    /** Header com o identificador da chave mestra */
+    public static final String MASTER_KEY_ID_HEADER = "cards-kid";
+
+    private static final String TRANSFORMATION = "AES/GCM/NoPadding";
+    private static final int TAG_BYTES = MasterKey.TAG_BITS / 8;
+    private static final SecureRandom RANDOM = new SecureRandom();
+
+    private static final ThreadLocal<Cipher> CIPHERS = ThreadLocal.withInitial(() -> {
+        try {
+            return Cipher.getInstance(TRANSFORMATION);
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException(e);
+        }
+    });
+
+    private final SecretKey dataKey;
+    private final byte[] wrappedKey;
+    private final byte[] masterKeyId;
+    private final int salt;
+    private long counter;
+
+    private PanEnvelope(SecretKey dataKey, byte[] wrappedKey, byte[] masterKeyId, int salt) {
+        this.dataKey = dataKey;
+        this.wrappedKey = wrappedKey;
+        this.masterKeyId = masterKeyId;
+        this.salt = salt;
+    }
+
+    /** Gera a chave de dados de um novo lote. O envelope deve ser usado por uma única thread. */
+    public static PanEnvelope forNewBatch(MasterKey masterKey) {
+        byte[] keyBytes = new byte[MasterKey.KEY_BYTES];
+        RANDOM.nextBytes(keyBytes);
+        return new PanEnvelope(new SecretKeySpec(keyBytes, "AES"), masterKey.wrap(keyBytes),
+                masterKey.getId().getBytes(StandardCharsets.US_ASCII), RANDOM.nextInt());
+    }
+
+    /** Chave de dados cifrada, compartilhada por todos os registros do lote. Não deve ser alterada. */
+    public byte[] getWrappedKey() {
+        return wrappedKey;
+    }
+
+    public byte[] getMasterKeyId() {
+        return masterKeyId;
+    }
+
+    public String encrypt(long cardId, String pan) {
+        byte[] iv = ByteBuffer.allocate(MasterKey.IV_BYTES).putInt(salt).putLong(counter++).array();
+        byte[] plain = pan.getBytes(StandardCharsets.US_ASCII);
+        byte[] out = new byte[MasterKey.IV_BYTES + plain.length + TAG_BYTES];
+        System.arraycopy(iv, 0, out, 0, MasterKey.IV_BYTES);
+        try {
+            Cipher cipher = CIPHERS.get();
+            cipher.init(Cipher.ENCRYPT_MODE, dataKey, new GCMParameterSpec(MasterKey.TAG_BITS, iv));
+            cipher.updateAAD(aad(cardId));
+            cipher.doFinal(plain, 0, plain.length, out, MasterKey.IV_BYTES);
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("Falha ao cifrar o número do cartão", e);
+        }
+        return Base64.getEncoder().encodeToString(out);
+    }
+
+    /** Decifra a chave de dados recebida no header {@link #DATA_KEY_HEADER} */
+    public static SecretKey unwrapDataKey(MasterKey masterKey, byte[] wrappedKey) {
+        return masterKey.unwrap(wrappedKey);
+    }
+
+    public static String decrypt(SecretKey dataKey, long cardId, String token) {
+        byte[] in = Base64.getDecoder().decode(token);
+        try {
+            Cipher cipher = CIPHERS.get();
+            cipher.init(Cipher.DECRYPT_MODE, dataKey, new GCMParameterSpec(MasterKey.TAG_BITS, in, 0, MasterKey.IV_BYTES));
+            cipher.updateAAD(aad(cardId));
+            byte[] plain = cipher.doFinal(in, MasterKey.IV_BYTES, in.length - MasterKey.IV_BYTES);
+            return new String(plain, StandardCharsets.US_ASCII);
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("Falha ao decifrar o número do cartão " + cardId, e);
+        }
+    }
+
+    private static byte[] aad(long cardId) {
+        return ByteBuffer.allocate(Long.BYTES).putLong(cardId).array();
+    }
+}
@@ -0,0 +1,96 @@
+package com.example.cards.domain.kafka;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Map;
+
+import javax.crypto.SecretKey;
+
+import org.apache.kafka.common.errors.SerializationException;
+import org.apache.kafka.common.header.Header;
+import org.apache.kafka.common.header.Headers;
+import org.apache.kafka.common.serialization.Deserializer;
+
+import com.example.cards.domain.CreditCard;
+import com.example.cards.domain.CreditCardBrand;
+import com.example.cards.domain.ReceivedCreditCard;
+import com.example.cards.domain.crypto.MasterKey;
+import com.example.cards.domain.crypto.PanEnvelope;
+
+import tools.jackson.databind.JsonNode;
+import tools.jackson.databind.json.JsonMapper;
+
+/**
+ * Deserializer de cartões para consumidores dos tópicos das bandeiras.
+ *
+ * Registros com o header {@link PanEnvelope#DATA_KEY_HEADER} têm o número decifrado com a
+ * chave de dados do lote, que por sua vez é decifrada com a chave mestra do arquivo
+ * configurado em {@value #MASTER_KEY_FILE_CONFIG}. Como todos os registros de um lote
+ * compartilham a mesma chave de dados, a última chave decifrada é reaproveitada.
+ * Registros sem o header são lidos como estão.
+ */
+public class CreditCardDecryptingDeserializer implements Deserializer<CreditCard> {
+
+    public static final String MASTER_KEY_FILE_CONFIG = "cards.encryption.master-key-file";
+
+    private static final JsonMapper JSON = JsonMapper.builder().build();
+
+    private MasterKey masterKey;
+
+    // Deserializers são usados por uma única thread de consumo
+    private byte[] lastWrappedKey;
+    private SecretKey lastDataKey;
+
+    @Override
+    public void configure(Map<String, ?> configs, boolean isKey) {
+        Object file = configs.get(MASTER_KEY_FILE_CONFIG);
+        if (file != null) {
+            masterKey = MasterKey.load(Path.of(file.toString()), false);
+        }
+    }
+
+    @Override
+    public CreditCard deserialize(String topic, byte[] data) {
+        return deserialize(topic, null, data);
+    }
+
+    @Override
+    public CreditCard deserialize(String topic, Headers headers, byte[] data) {
+        if (data == null) {
+            return null;
+        }
+        return decode(headers, data, 0, data.length);
+    }
+
+    /** Lê um cartão de um trecho do valor; usado também para os cartões de um envelope */
+    CreditCard decode(Headers headers, byte[] data, int offset, int length) {
+        JsonNode node = JSON.readTree(data, offset, length);
+        long id = node.path("id").asLong();
+        String number = node.path("number").asString();
+
+        Header wrappedKey = headers != null ? headers.lastHeader(PanEnvelope.DATA_KEY_HEADER) : null;
+        if (wrappedKey != null) {
+            number = PanEnvelope.decrypt(dataKey(headers, wrappedKey.value()), id, number);
+        }
+        return new ReceivedCreditCard(id, node.path("uuid").asString(), node.path("holderName").asString(),
+                number, CreditCardBrand.valueOf(node.path("brand").asString()));
+    }
+
+    private SecretKey dataKey(Headers headers, byte[] wrappedKey) {
+        if (Arrays.equals(wrappedKey, lastWrappedKey)) {
+            return lastDataKey;
+        }
+        if (masterKey == null) {
+            throw new SerializationException("Registro com número cifrado, mas " + MASTER_KEY_FILE_CONFIG + " não foi configurado");
+        }
+        Header keyId = headers.lastHeader(PanEnvelope.MASTER_KEY_ID_HEADER);
+        if (keyId != null && !masterKey.getId().equals(new String(keyId.value(), StandardCharsets.US_ASCII))) {
+            throw new SerializationException("Registro cifrado com outra chave mestra: "
+                    + new String(keyId.value(), StandardCharsets.US_ASCII));
+        }
+        lastDataKey = PanEnvelope.unwrapDataKey(masterKey, wrappedKey);
+        lastWrappedKey = wrappedKey;
+        return lastDataKey;
+    }
+}
@@ -0,0 +1,108 @@
+package com.example.cards.domain.kafka;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.kafka.common.errors.SerializationException;
+import org.apache.kafka.common.header.Header;
+import org.apache.kafka.common.header.Headers;
+import org.apache.kafka.common.serialization.Deserializer;
+
+import com.example.cards.domain.CreditCard;
+import com.example.cards.domain.CreditCardEnvelope;
+
+/**
+ * Deserializer para consumidores que leem tópicos com registros de um cartão e com
+ * envelopes ({@link CreditCardEnvelope}): todo registro vira a lista dos seus cartões.
+ * Números cifrados são decifrados como no {@link CreditCardDecryptingDeserializer},
+ * com a mesma configuração.
+ */
+public class CreditCardEnvelopeDeserializer implements Deserializer<List<CreditCard>> {
+
+    private final CreditCardDecryptingDeserializer cardDeserializer = new CreditCardDecryptingDeserializer();
+
+    @Override
+    public void configure(Map<String, ?> configs, boolean isKey) {
+        cardDeserializer.configure(configs, isKey);
+    }
+
+    @Override
+    public List<CreditCard> deserialize(String topic, byte[] data) {
+        return deserialize(topic, null, data);
+    }
+
+    @Override
+    public List<CreditCard> deserialize(String topic, Headers headers, byte[] data) {
+        if (data == null) {
+            return null;
+        }
+        int count = cardCount(headers, data);
+        if (count < 0) {
+            return List.of(cardDeserializer.decode(headers, data, 0, data.length));
+        }
+        List<CreditCard> cards = new ArrayList<>(count);
+        ByteBuffer buffer = ByteBuffer.wrap(data);
+        for (int i = 0; i < count; i++) {
+            int length = buffer.getInt();
+            if (length < 0 || length > buffer.remaining()) {
+                throw new SerializationException("Envelope de cartões truncado no tópico " + topic);
+            }
+            cards.add(cardDeserializer.decode(headers, data, buffer.position(), length));
+            buffer.position(buffer.position() + length);
+        }
+        if (buffer.hasRemaining()) {
+            throw new SerializationException("Envelope de cartões com " + buffer.remaining()
+                    + " bytes além dos " + count + " cartões no tópico " + topic);
+        }
+        return cards;
+    }
+
+    /**
+     * Quantidade de cartões do envelope, ou -1 se o registro tem um único cartão.
+     * Com o header {@value CreditCardEnvelope#COUNT_HEADER} ilegível ou sem um número positivo,
+     * conta os cartões pelos tamanhos no corpo do registro.
+     *
+     * @throws SerializationException se o header é inválido e o corpo não é uma sequência de cartões
+     */
+    public static int cardCount(Headers headers, byte[] data) {
+        Header header = headers != null ? headers.lastHeader(CreditCardEnvelope.COUNT_HEADER) : null;
+        if (header == null) {
+            return -1;
+        }
+        if (header.value() != null) {
+            try {
+                int count = Integer.parseInt(new String(header.value(), StandardCharsets.US_ASCII));
+                if (count > 0) {
+                    return count;
+                }
+            } catch (NumberFormatException e) {
+                // Conta pelo corpo abaixo
+            }
+        }
+        return countLengthPrefixed(data);
+    }
+
+    private static int countLengthPrefixed(byte[] data) {
+        if (data == null) {
+            throw new SerializationException("Header " + CreditCardEnvelope.COUNT_HEADER + " inválido num registro sem corpo");
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(data);
+        int count = 0;
+        while (buffer.remaining() >= Integer.BYTES) {
+            int length = buffer.getInt();
+            if (length < 0 || length > buffer.remaining()) {
+                break;
+            }
+            buffer.position(buffer.position() + length);
+            count++;
+        }
+        if (count == 0 || buffer.hasRemaining()) {
+            throw new SerializationException("Header " + CreditCardEnvelope.COUNT_HEADER
+                    + " inválido e o corpo do registro não é um envelope de cartões");
+        }
+        return count;
+    }
+}
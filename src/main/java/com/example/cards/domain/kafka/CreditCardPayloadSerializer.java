@@ -0,0 +1,76 @@
+package com.example.cards.domain.kafka;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+
+import org.apache.kafka.common.header.Headers;
+import org.apache.kafka.common.serialization.Serializer;
+import org.springframework.kafka.support.serializer.JacksonJsonSerializer;
+
+import com.example.cards.domain.CreditCard;
+import com.example.cards.domain.CreditCardEnvelope;
+import com.example.cards.domain.CreditCardJsonCodec;
+import com.example.cards.domain.PreSerializedCreditCard;
+
+/**
+ * Serializer de valores do Kafka que repassa o JSON já codificado de um
+ * {@link PreSerializedCreditCard} e os bytes de um {@link CreditCardEnvelope},
+ * codifica os demais cartões com o {@link CreditCardJsonCodec} e delega os outros
+ * valores ao {@link JacksonJsonSerializer}.
+ *
+ * Os cartões não passam pelo Jackson 3: com a nomenclatura padrão de beans, getUUID() viraria
+ * "UUID", e os consumidores leem o campo "uuid" que o codec grava.
+ */
+public class CreditCardPayloadSerializer implements Serializer<Object> {
+
+    // Mesmo header de tipo que o JacksonJsonSerializer grava (AbstractJavaTypeMapper.DEFAULT_CLASSID_FIELD_NAME)
+    private static final String TYPE_ID_HEADER = "__TypeId__";
+
+    private final JacksonJsonSerializer<Object> delegate = new JacksonJsonSerializer<>();
+
+    @Override
+    public void configure(Map<String, ?> configs, boolean isKey) {
+        delegate.configure(configs, isKey);
+    }
+
+    @Override
+    public byte[] serialize(String topic, Object data) {
+        if (data instanceof PreSerializedCreditCard preSerialized) {
+            return preSerialized.getPayload();
+        }
+        if (data instanceof CreditCardEnvelope envelope) {
+            return envelope.getPayload();
+        }
+        if (data instanceof CreditCard card) {
+            return CreditCardJsonCodec.encode(card);
+        }
+        return delegate.serialize(topic, data);
+    }
+
+    @Override
+    public byte[] serialize(String topic, Headers headers, Object data) {
+        if (data instanceof PreSerializedCreditCard preSerialized) {
+            setTypeId(headers, preSerialized.getCard().getClass());
+            return preSerialized.getPayload();
+        }
+        if (data instanceof CreditCardEnvelope envelope) {
+            setTypeId(headers, CreditCardEnvelope.class);
+            return envelope.getPayload();
+        }
+        if (data instanceof CreditCard card) {
+            setTypeId(headers, card.getClass());
+            return CreditCardJsonCodec.encode(card);
+        }
+        return delegate.serialize(topic, headers, data);
+    }
+
+    private static void setTypeId(Headers headers, Class<?> type) {
+        headers.remove(TYPE_ID_HEADER);
+        headers.add(TYPE_ID_HEADER, type.getName().getBytes(StandardCharsets.US_ASCII));
+    }
+
+    @Override
+    public void close() {
+        delegate.close();
+    }
+}
@@ -1,11 +1,19 @@
 package com.example.cards.domain.kafka;
 
+import com.example.cards.config.CardPipelineProperties;
+import com.example.cards.domain.BrandPipelineSettings;
 import com.example.cards.domain.CreditCardBrand;
 import com.example.cards.domain.KafkaTopicStrategy;
 import org.springframework.stereotype.Component;
 
 @Component
 public class VisaKafkaTopicStrategy implements KafkaTopicStrategy {
+
+    private final CardPipelineProperties pipelineProperties;
+
+    public VisaKafkaTopicStrategy(CardPipelineProperties pipelineProperties) {
+        this.pipelineProperties = pipelineProperties;
+    }
     
     @Override
     public String getTopicName() {
@@ -16,4 +24,9 @@ public class VisaKafkaTopicStrategy implements KafkaTopicStrategy {
     public CreditCardBrand getBrand() {
         return CreditCardBrand.VISA;
     }
+
+    @Override
+    public BrandPipelineSettings getPipelineSettings() {
+        return pipelineProperties.forBrand(getBrand());
+    }
 }
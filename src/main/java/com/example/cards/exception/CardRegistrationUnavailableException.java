@@ -0,0 +1,19 @@
+package com.example.cards.exception;
+
+/**
+ * Exceção lançada quando o serviço não está aceitando novos cadastros
+ * (ex: durante o desligamento da aplicação)
+ */
+public class CardRegistrationUnavailableException extends RuntimeException {
+
+    private final long retryAfterSeconds;
+
+    public CardRegistrationUnavailableException(String message, long retryAfterSeconds) {
+        super(message);
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+
+    public long getRetryAfterSeconds() {
+        return retryAfterSeconds;
+    }
+}
@@ -5,6 +5,7 @@ import java.util.HashMap;
 import java.util.Map;
 
 import org.slf4j.Logger;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.http.converter.HttpMessageNotReadableException;
@@ -120,6 +121,80 @@ public class GlobalExceptionHandler{
         return ResponseEntity.badRequest().body(errorResponse);
     }
 
+    /**
+     * Trata cadastros recusados enquanto o serviço não aceita novos cartões
+     */
+    @ExceptionHandler(CardRegistrationUnavailableException.class)
+    @ApiResponse(
+        responseCode = "503",
+        description = "Serviço temporariamente indisponível para novos cadastros",
+        content = @Content(schema = @Schema(implementation = ErrorResponse.class))
+    )
+    public ResponseEntity<ErrorResponse> handleCardRegistrationUnavailableException(
+            CardRegistrationUnavailableException ex, WebRequest request) {
+
+        ErrorResponse errorResponse = ErrorResponse.builder()
+                .timestamp(LocalDateTime.now())
+                .status(HttpStatus.SERVICE_UNAVAILABLE.value())
+                .error("Service Unavailable")
+                .message(ex.getMessage())
+                .path(request.getDescription(false).replace("uri=", ""))
+                .build();
+
+        logger.warn("Card registration rejected: {}", errorResponse.getMessage());
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(ex.getRetryAfterSeconds()))
+                .body(errorResponse);
+    }
+
+    /**
+     * Trata cadastros bloqueados pela verificação de velocidade (abuso)
+     */
+    @ExceptionHandler(VelocityLimitExceededException.class)
+    @ApiResponse(
+        responseCode = "429",
+        description = "Limite de cadastros por titular ou BIN excedido",
+        content = @Content(schema = @Schema(implementation = ErrorResponse.class))
+    )
+    public ResponseEntity<ErrorResponse> handleVelocityLimitExceededException(
+            VelocityLimitExceededException ex, WebRequest request) {
+
+        ErrorResponse errorResponse = ErrorResponse.builder()
+                .timestamp(LocalDateTime.now())
+                .status(HttpStatus.TOO_MANY_REQUESTS.value())
+                .error("Too Many Requests")
+                .message(ex.getMessage())
+                .path(request.getDescription(false).replace("uri=", ""))
+                .build();
+
+        logger.warn("Velocity limit exceeded: {}", errorResponse.getMessage());
+        return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS).body(errorResponse);
+    }
+
+    /**
+     * Trata Idempotency-Key reenviada com outro cartão
+     */
+    @ExceptionHandler(IdempotencyKeyConflictException.class)
+    @ApiResponse(
+        responseCode = "422",
+        description = "Idempotency-Key já usada para outro cartão",
+        content = @Content(schema = @Schema(implementation = ErrorResponse.class))
+    )
+    public ResponseEntity<ErrorResponse> handleIdempotencyKeyConflictException(
+            IdempotencyKeyConflictException ex, WebRequest request) {
+
+        ErrorResponse errorResponse = ErrorResponse.builder()
+                .timestamp(LocalDateTime.now())
+                .status(HttpStatus.UNPROCESSABLE_CONTENT.value())
+                .error("Unprocessable Content")
+                .message(ex.getMessage())
+                .path(request.getDescription(false).replace("uri=", ""))
+                .build();
+
+        logger.warn("Idempotency key conflict: {}", errorResponse.getMessage());
+        return ResponseEntity.status(HttpStatus.UNPROCESSABLE_CONTENT).body(errorResponse);
+    }
+
     /**
      * Trata erros de recursos estáticos não encontrados (ex: favicon.ico)
      */
@@ -0,0 +1,11 @@
+package com.example.cards.exception;
+
+/**
+ * Exceção lançada quando uma Idempotency-Key já usada é reenviada com outro cartão
+ */
+public class IdempotencyKeyConflictException extends RuntimeException {
+
+    public IdempotencyKeyConflictException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,11 @@
+package com.example.cards.exception;
+
+/**
+ * Exceção lançada quando um titular ou BIN excede o limite de cadastros na janela de tempo
+ */
+public class VelocityLimitExceededException extends RuntimeException {
+
+    public VelocityLimitExceededException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,130 @@
+package com.example.cards.importer;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+
+import com.example.cards.domain.CreditCard;
+import com.example.cards.domain.CreditCardBrand;
+import com.example.cards.domain.DefaultCreditCard;
+
+import tools.jackson.databind.JsonNode;
+import tools.jackson.databind.json.JsonMapper;
+
+/**
+ * Formatos aceitos na importação de arquivos. Cada linha é um cartão; linhas inválidas
+ * lançam IllegalArgumentException com o motivo, que vai para o arquivo de rejeitados.
+ */
+public enum CardFileFormat {
+
+    /** holderName,number,brand — campos podem vir entre aspas, com "" para aspas internas */
+    CSV {
+        @Override
+        CreditCard parse(byte[] line, int length, JsonMapper jsonMapper) {
+            String[] fields = new String[3];
+            int count = 0;
+            int i = 0;
+            while (i <= length) {
+                if (count == fields.length) {
+                    throw new IllegalArgumentException("Linha com mais de 3 campos");
+                }
+                StringBuilder field = new StringBuilder();
+                if (i < length && line[i] == '"') {
+                    int start = ++i;
+                    while (true) {
+                        if (i >= length) {
+                            throw new IllegalArgumentException("Aspas não fechadas");
+                        }
+                        if (line[i] == '"') {
+                            field.append(new String(line, start, i - start, StandardCharsets.UTF_8));
+                            if (i + 1 < length && line[i + 1] == '"') {
+                                field.append('"');
+                                start = i += 2;
+                                continue;
+                            }
+                            i++;
+                            break;
+                        }
+                        i++;
+                    }
+                    if (i < length && line[i] != ',') {
+                        throw new IllegalArgumentException("Conteúdo após aspas de fechamento");
+                    }
+                } else {
+                    int start = i;
+                    while (i < length && line[i] != ',') {
+                        i++;
+                    }
+                    field.append(new String(line, start, i - start, StandardCharsets.UTF_8));
+                }
+                fields[count++] = field.toString().trim();
+                i++;
+            }
+            if (count != fields.length) {
+                throw new IllegalArgumentException("Esperados 3 campos (holderName,number,brand), encontrados " + count);
+            }
+            return card(fields[0], fields[1], fields[2]);
+        }
+
+        @Override
+        boolean isHeader(byte[] line, int length) {
+            String text = new String(line, 0, length, StandardCharsets.UTF_8).toLowerCase(Locale.ROOT);
+            return text.startsWith("holdername") || text.startsWith("\"holdername\"");
+        }
+    },
+
+    /** Um objeto JSON por linha: {"holderName": "...", "number": "...", "brand": "VISA"} */
+    NDJSON {
+        @Override
+        CreditCard parse(byte[] line, int length, JsonMapper jsonMapper) {
+            JsonNode node;
+            try {
+                node = jsonMapper.readTree(line, 0, length);
+            } catch (RuntimeException e) {
+                throw new IllegalArgumentException("JSON inválido");
+            }
+            return card(text(node, "holderName"), text(node, "number"), text(node, "brand"));
+        }
+
+        private String text(JsonNode node, String field) {
+            JsonNode value = node.get(field);
+            return value == null || value.isNull() ? null : value.asString();
+        }
+    };
+
+    abstract CreditCard parse(byte[] line, int length, JsonMapper jsonMapper);
+
+    boolean isHeader(byte[] line, int length) {
+        return false;
+    }
+
+    public static CardFileFormat forFileName(String fileName) {
+        String name = fileName.toLowerCase(Locale.ROOT);
+        if (name.endsWith(".csv")) {
+            return CSV;
+        }
+        if (name.endsWith(".ndjson") || name.endsWith(".jsonl")) {
+            return NDJSON;
+        }
+        throw new IllegalArgumentException("Formato de arquivo não suportado (use .csv, .ndjson ou .jsonl): " + fileName);
+    }
+
+    private static CreditCard card(String holderName, String number, String brand) {
+        if (holderName == null || holderName.isBlank()) {
+            throw new IllegalArgumentException("Nome do titular é obrigatório");
+        }
+        if (number == null || number.isBlank()) {
+            throw new IllegalArgumentException("Número do cartão é obrigatório");
+        }
+        if (brand == null || brand.isBlank()) {
+            throw new IllegalArgumentException("Bandeira é obrigatória");
+        }
+        CreditCardBrand cardBrand;
+        try {
+            cardBrand = CreditCardBrand.valueOf(brand.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Bandeira desconhecida: " + brand);
+        }
+        // Valida e normaliza pela estratégia da bandeira
+        return new DefaultCreditCard(holderName, number, cardBrand);
+    }
+}
@@ -0,0 +1,363 @@
+package com.example.cards.importer;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.util.unit.DataSize;
+
+import com.example.cards.domain.CreditCard;
+import com.example.cards.domain.CreditCardBrand;
+import com.example.cards.domain.KafkaTopicStrategyProvider;
+import com.example.cards.service.CardLookupIndex;
+import com.example.cards.service.CreditCardBatchProcessor;
+
+import tools.jackson.databind.json.JsonMapper;
+
+/**
+ * Importação de arquivos de cartões (CSV ou NDJSON) direto para o {@link CreditCardBatchProcessor},
+ * sem passar pela API HTTP.
+ *
+ * O arquivo é dividido em blocos terminados em fim de linha, processados em paralelo num
+ * ForkJoinPool dedicado; cada bloco é mapeado em memória e lido sem cópia para o heap além
+ * da linha corrente. Um bloco só entra no checkpoint depois que todos os seus cartões foram
+ * confirmados pelo Kafka, então importar o mesmo arquivo de novo retoma dos blocos pendentes.
+ *
+ * Dentro do bloco, as linhas são agrupadas em fatias de cards.import.slice-lines e nenhum lote
+ * atravessa o limite de uma fatia. Num bloco incompleto, as fatias confirmadas vão para o checkpoint
+ * e a retomada só relê as demais, sem republicar lotes já aceitos. As linhas rejeitadas de uma fatia
+ * são gravadas quando ela é confirmada, então também não se repetem no arquivo .rejected.
+ */
+@Service
+public class CardFileImportService implements DisposableBean {
+
+    private static final org.slf4j.Logger log = org.slf4j.LoggerFactory.getLogger(CardFileImportService.class);
+
+    private static final int MAX_LINE_BYTES = 64 * 1024;
+
+    private final CreditCardBatchProcessor batchProcessor;
+    private final CardLookupIndex lookupIndex;
+    private final KafkaTopicStrategyProvider topicStrategyProvider;
+    private final JsonMapper jsonMapper;
+    private final Path baseDir;
+    private final long chunkSize;
+    private final int sliceLines;
+    private final ForkJoinPool pool;
+
+    private final Map<String, CardImportJob> jobs = new ConcurrentHashMap<>();
+    private final Map<Path, CardImportJob> running = new ConcurrentHashMap<>();
+
+    private final ThreadLocal<byte[]> lineScratch = ThreadLocal.withInitial(() -> new byte[1024]);
+
+    public CardFileImportService(CreditCardBatchProcessor batchProcessor,
+                                 CardLookupIndex lookupIndex,
+                                 KafkaTopicStrategyProvider topicStrategyProvider,
+                                 JsonMapper jsonMapper,
+                                 @Value("${cards.import.base-dir:data/import}") String baseDir,
+                                 @Value("${cards.import.chunk-size:8MB}") DataSize chunkSize,
+                                 @Value("${cards.import.slice-lines:20000}") int sliceLines,
+                                 @Value("${cards.import.parallelism:0}") int parallelism) {
+        this.batchProcessor = batchProcessor;
+        this.lookupIndex = lookupIndex;
+        this.topicStrategyProvider = topicStrategyProvider;
+        this.jsonMapper = jsonMapper;
+        this.baseDir = Path.of(baseDir).toAbsolutePath().normalize();
+        this.chunkSize = Math.max(MAX_LINE_BYTES, chunkSize.toBytes());
+        this.sliceLines = Math.max(1, sliceLines);
+        this.pool = new ForkJoinPool(parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Inicia (ou retoma) a importação de um arquivo do diretório de importação.
+     * Se o arquivo já está sendo importado, retorna o job em andamento.
+     */
+    public CardImportJobResponse start(String fileName) {
+        Path file = baseDir.resolve(fileName).normalize();
+        if (!file.startsWith(baseDir) || !Files.isRegularFile(file)) {
+            throw new IllegalArgumentException("Arquivo não encontrado no diretório de importação: " + fileName);
+        }
+        CardFileFormat format = CardFileFormat.forFileName(fileName);
+
+        CardImportJob job = new CardImportJob(UUID.randomUUID().toString(), baseDir.relativize(file).toString(),
+                file, file.resolveSibling(file.getFileName() + ".rejected"));
+        CardImportJob existing = running.putIfAbsent(file, job);
+        if (existing != null) {
+            return existing.toResponse();
+        }
+        jobs.put(job.id, job);
+        Thread.ofVirtual().name("card-import-" + job.id).start(() -> run(job, format));
+        return job.toResponse();
+    }
+
+    public CardImportJobResponse getJob(String id) {
+        CardImportJob job = jobs.get(id);
+        return job != null ? job.toResponse() : null;
+    }
+
+    private void run(CardImportJob job, CardFileFormat format) {
+        try (FileChannel channel = FileChannel.open(job.file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            long[] bounds = chunkBounds(channel, size);
+            String signature = size + " " + Files.getLastModifiedTime(job.file).toMillis() + " " + chunkSize
+                    + " " + sliceLines;
+            CardImportCheckpoint checkpoint = CardImportCheckpoint.open(
+                    job.file.resolveSibling(job.file.getFileName() + ".checkpoint"), signature);
+            if (!checkpoint.isResumed()) {
+                Files.deleteIfExists(job.rejectedFile);
+            }
+            job.checkpoint = checkpoint;
+            job.totalChunks = bounds.length - 1;
+            log.info("### Importando {} ({} bytes, {} blocos, {} já concluídos)",
+                     job.fileName, size, job.totalChunks, checkpoint.completedCount());
+
+            pool.invoke(new ChunkRange(job, format, channel, bounds, 0, job.totalChunks));
+
+            if (checkpoint.completedCount() == job.totalChunks) {
+                checkpoint.delete();
+                job.finish(CardImportStatus.COMPLETED);
+            } else {
+                job.finish(CardImportStatus.FAILED);
+            }
+            log.info("### Importação de {} terminou como {}: {} cartões, {} rejeitados, {} cartões/s",
+                     job.fileName, job.status, job.accepted.sum(), job.rejected.sum(), job.toResponse().cardsPerSecond());
+        } catch (IOException | RuntimeException e) {
+            log.error("Falha na importação de {}", job.fileName, e);
+            job.finish(CardImportStatus.FAILED);
+        } finally {
+            running.remove(job.file);
+        }
+    }
+
+    /** Início de cada bloco, sempre logo após um fim de linha; o último elemento é o tamanho do arquivo */
+    private long[] chunkBounds(FileChannel channel, long size) throws IOException {
+        List<Long> bounds = new ArrayList<>();
+        bounds.add(0L);
+        ByteBuffer probe = ByteBuffer.allocate(4096);
+        long position = chunkSize;
+        while (position < size) {
+            long newline = -1;
+            long scan = position;
+            while (newline < 0 && scan < size) {
+                probe.clear();
+                int read = channel.read(probe, scan);
+                if (read <= 0) {
+                    break;
+                }
+                for (int i = 0; i < read; i++) {
+                    if (probe.get(i) == '\n') {
+                        newline = scan + i;
+                        break;
+                    }
+                }
+                scan += read;
+            }
+            if (newline < 0 || newline + 1 >= size) {
+                break;
+            }
+            bounds.add(newline + 1);
+            position = newline + 1 + chunkSize;
+        }
+        bounds.add(size);
+        return bounds.stream().mapToLong(Long::longValue).toArray();
+    }
+
+    /** Divide o intervalo de blocos ao meio até chegar a um bloco */
+    private final class ChunkRange extends RecursiveAction {
+
+        private final CardImportJob job;
+        private final CardFileFormat format;
+        private final FileChannel channel;
+        private final long[] bounds;
+        private final int from;
+        private final int to;
+
+        ChunkRange(CardImportJob job, CardFileFormat format, FileChannel channel, long[] bounds, int from, int to) {
+            this.job = job;
+            this.format = format;
+            this.channel = channel;
+            this.bounds = bounds;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= 1) {
+                if (from < to && !job.checkpoint.isCompleted(from)) {
+                    importChunk(job, format, channel, from, bounds[from], bounds[from + 1]);
+                }
+                return;
+            }
+            int middle = (from + to) >>> 1;
+            invokeAll(new ChunkRange(job, format, channel, bounds, from, middle),
+                      new ChunkRange(job, format, channel, bounds, middle, to));
+        }
+    }
+
+    private void importChunk(CardImportJob job, CardFileFormat format, FileChannel channel,
+                             int chunk, long start, long end) {
+        MappedByteBuffer buffer;
+        try {
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, start, end - start);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+
+        Map<CreditCardBrand, List<CreditCard>> batches = new EnumMap<>(CreditCardBrand.class);
+        List<Slice> slices = new ArrayList<>();
+        Slice slice = null;
+        int lineIndex = 0;
+
+        int limit = buffer.limit();
+        int lineStart = 0;
+        while (lineStart < limit) {
+            int lineEnd = lineStart;
+            while (lineEnd < limit && buffer.get(lineEnd) != '\n') {
+                lineEnd++;
+            }
+            if (lineIndex % sliceLines == 0) {
+                // Fecha a fatia anterior com os lotes incompletos: nenhum lote pertence a duas fatias
+                flush(batches, slice);
+                int index = lineIndex / sliceLines;
+                slice = job.checkpoint.isCompleted(chunk, index) ? null : new Slice(index);
+                if (slice != null) {
+                    slices.add(slice);
+                }
+            }
+            lineIndex++;
+            if (slice == null) {
+                // Fatia confirmada numa importação anterior
+                lineStart = lineEnd + 1;
+                continue;
+            }
+
+            int length = lineEnd - lineStart;
+            if (length > 0 && buffer.get(lineEnd - 1) == '\r') {
+                length--;
+            }
+            long offset = start + lineStart;
+            if (length > MAX_LINE_BYTES) {
+                slice.rejected++;
+                slice.rejectedLines.append(offset).append('\t').append("Linha maior que ").append(MAX_LINE_BYTES)
+                        .append(" bytes").append('\t').append('\n');
+            } else if (length > 0) {
+                byte[] line = lineBytes(buffer, lineStart, length);
+                if (!(offset == 0 && format.isHeader(line, length))) {
+                    try {
+                        CreditCard card = format.parse(line, length, jsonMapper);
+                        slice.accepted++;
+                        lookupIndex.add(card);
+                        List<CreditCard> batch = batches.computeIfAbsent(card.getBrand(), b -> new ArrayList<>());
+                        batch.add(card);
+                        if (batch.size() >= topicStrategyProvider.getPipelineSettings(card.getBrand()).flushSize()) {
+                            slice.sends.add(batchProcessor.publish(card.getBrand(), batch));
+                            batches.remove(card.getBrand());
+                        }
+                    } catch (IllegalArgumentException e) {
+                        slice.rejected++;
+                        slice.rejectedLines.append(offset).append('\t').append(e.getMessage()).append('\t')
+                                .append(new String(line, 0, length, StandardCharsets.UTF_8)).append('\n');
+                    }
+                }
+            }
+            lineStart = lineEnd + 1;
+        }
+        flush(batches, slice);
+
+        // Aguarda as confirmações do Kafka antes de marcar fatias e bloco como concluídos
+        long failed = 0;
+        List<Integer> confirmed = new ArrayList<>();
+        for (Slice pending : slices) {
+            long sliceFailed = 0;
+            for (CompletableFuture<List<CreditCard>> send : pending.sends) {
+                sliceFailed += send.join().size();
+            }
+            job.accepted.add(pending.accepted - sliceFailed);
+            job.failed.add(sliceFailed);
+            failed += sliceFailed;
+            if (sliceFailed == 0) {
+                writeRejected(job, pending.rejectedLines);
+                job.rejected.add(pending.rejected);
+                confirmed.add(pending.index);
+            }
+        }
+        if (failed == 0) {
+            job.checkpoint.markCompleted(chunk);
+        } else {
+            job.checkpoint.markCompleted(chunk, confirmed);
+            log.error("Bloco {} de {} com {} cartões não confirmados pelo Kafka; {} de {} fatias pendentes "
+                      + "serão retomadas na próxima importação",
+                      chunk, job.fileName, failed, slices.size() - confirmed.size(), slices.size());
+        }
+    }
+
+    /** Publica os lotes incompletos como parte da fatia */
+    private void flush(Map<CreditCardBrand, List<CreditCard>> batches, Slice slice) {
+        if (slice != null) {
+            batches.forEach((brand, batch) -> slice.sends.add(batchProcessor.publish(brand, batch)));
+        }
+        batches.clear();
+    }
+
+    private byte[] lineBytes(MappedByteBuffer buffer, int start, int length) {
+        byte[] scratch = lineScratch.get();
+        if (scratch.length < length) {
+            scratch = Arrays.copyOf(scratch, Integer.highestOneBit(length) << 1);
+            lineScratch.set(scratch);
+        }
+        buffer.get(start, scratch, 0, length);
+        return scratch;
+    }
+
+    private void writeRejected(CardImportJob job, StringBuilder rejectedLines) {
+        if (rejectedLines.isEmpty()) {
+            return;
+        }
+        synchronized (job) {
+            try {
+                Files.writeString(job.rejectedFile, rejectedLines, StandardCharsets.UTF_8,
+                        StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Falha ao gravar linhas rejeitadas em " + job.rejectedFile, e);
+            }
+        }
+    }
+
+    /** Linhas de uma fatia do bloco: envios, contagens e linhas rejeitadas até a confirmação */
+    private static final class Slice {
+
+        final int index;
+        final List<CompletableFuture<List<CreditCard>>> sends = new ArrayList<>();
+        final StringBuilder rejectedLines = new StringBuilder();
+        long accepted;
+        long rejected;
+
+        Slice(int index) {
+            this.index = index;
+        }
+    }
+
+    @Override
+    public void destroy() {
+        pool.shutdownNow();
+    }
+}
@@ -0,0 +1,115 @@
+package com.example.cards.importer;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Blocos já importados de um arquivo. A primeira linha identifica o arquivo (tamanho,
+ * data de modificação, tamanho do bloco e da fatia); as demais são os índices dos blocos
+ * concluídos, ou bloco/fatia para as fatias confirmadas de um bloco que ficou incompleto.
+ * Se o arquivo mudou, o checkpoint é descartado e a importação recomeça do início.
+ */
+final class CardImportCheckpoint {
+
+    private final Path file;
+    private final BitSet completed = new BitSet();
+    private final Map<Integer, BitSet> completedSlices = new HashMap<>();
+    private final boolean resumed;
+
+    private CardImportCheckpoint(Path file, boolean resumed) {
+        this.file = file;
+        this.resumed = resumed;
+    }
+
+    static CardImportCheckpoint open(Path file, String signature) {
+        try {
+            if (Files.exists(file)) {
+                List<String> lines = Files.readAllLines(file, StandardCharsets.UTF_8);
+                if (!lines.isEmpty() && lines.get(0).equals(signature)) {
+                    CardImportCheckpoint checkpoint = new CardImportCheckpoint(file, true);
+                    for (String line : lines.subList(1, lines.size())) {
+                        String entry = line.trim();
+                        int slash = entry.indexOf('/');
+                        if (slash > 0) {
+                            checkpoint.completedSlices
+                                    .computeIfAbsent(Integer.parseInt(entry.substring(0, slash)), c -> new BitSet())
+                                    .set(Integer.parseInt(entry.substring(slash + 1)));
+                        } else if (!entry.isEmpty()) {
+                            checkpoint.completed.set(Integer.parseInt(entry));
+                        }
+                    }
+                    return checkpoint;
+                }
+            }
+            Files.writeString(file, signature + "\n", StandardCharsets.UTF_8);
+            return new CardImportCheckpoint(file, false);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Falha ao abrir checkpoint " + file, e);
+        }
+    }
+
+    boolean isResumed() {
+        return resumed;
+    }
+
+    synchronized boolean isCompleted(int chunk) {
+        return completed.get(chunk);
+    }
+
+    /** Se a fatia do bloco já foi confirmada numa importação anterior */
+    synchronized boolean isCompleted(int chunk, int slice) {
+        BitSet slices = completedSlices.get(chunk);
+        return slices != null && slices.get(slice);
+    }
+
+    synchronized int completedCount() {
+        return completed.cardinality();
+    }
+
+    /** Registra o bloco como concluído, com fsync, antes de seguir para o próximo */
+    synchronized void markCompleted(int chunk) {
+        try {
+            Files.writeString(file, chunk + "\n", StandardCharsets.UTF_8,
+                    StandardOpenOption.APPEND, StandardOpenOption.SYNC);
+            completed.set(chunk);
+            completedSlices.remove(chunk);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Falha ao gravar checkpoint " + file, e);
+        }
+    }
+
+    /** Registra, com fsync, as fatias confirmadas de um bloco que não terminou */
+    synchronized void markCompleted(int chunk, List<Integer> slices) {
+        if (slices.isEmpty()) {
+            return;
+        }
+        StringBuilder lines = new StringBuilder();
+        for (int slice : slices) {
+            lines.append(chunk).append('/').append(slice).append('\n');
+        }
+        try {
+            Files.writeString(file, lines, StandardCharsets.UTF_8,
+                    StandardOpenOption.APPEND, StandardOpenOption.SYNC);
+            BitSet completedOfChunk = completedSlices.computeIfAbsent(chunk, c -> new BitSet());
+            slices.forEach(completedOfChunk::set);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Falha ao gravar checkpoint " + file, e);
+        }
+    }
+
+    void delete() {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Falha ao remover checkpoint " + file, e);
+        }
+    }
+}
@@ -0,0 +1,52 @@
+package com.example.cards.importer;
+
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Estado de uma importação em andamento ou concluída
+ */
+final class CardImportJob {
+
+    final String id;
+    final String fileName;
+    final Path file;
+    final Path rejectedFile;
+    final Instant startedAt = Instant.now();
+    final long startNanos = System.nanoTime();
+
+    final LongAdder accepted = new LongAdder();
+    final LongAdder rejected = new LongAdder();
+    final LongAdder failed = new LongAdder();
+
+    volatile int totalChunks;
+    volatile CardImportCheckpoint checkpoint;
+    volatile CardImportStatus status = CardImportStatus.RUNNING;
+    volatile Instant finishedAt;
+    volatile long finishedNanos;
+
+    CardImportJob(String id, String fileName, Path file, Path rejectedFile) {
+        this.id = id;
+        this.fileName = fileName;
+        this.file = file;
+        this.rejectedFile = rejectedFile;
+    }
+
+    void finish(CardImportStatus finalStatus) {
+        finishedNanos = System.nanoTime();
+        finishedAt = Instant.now();
+        status = finalStatus;
+    }
+
+    CardImportJobResponse toResponse() {
+        long end = finishedAt != null ? finishedNanos : System.nanoTime();
+        double seconds = Math.max(1e-3, (end - startNanos) / 1e9);
+        CardImportCheckpoint current = checkpoint;
+        return new CardImportJobResponse(id, fileName, status, totalChunks,
+                current != null ? current.completedCount() : 0,
+                accepted.sum(), rejected.sum(), failed.sum(),
+                Math.round(accepted.sum() / seconds * 10) / 10.0,
+                rejectedFile.getFileName().toString(), startedAt, finishedAt);
+    }
+}
@@ -0,0 +1,33 @@
+package com.example.cards.importer;
+
+import java.time.Instant;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+
+/**
+ * Progresso de um job de importação
+ */
+@Schema(description = "Progresso de uma importação de arquivo de cartões")
+public record CardImportJobResponse(
+        @Schema(description = "ID do job", example = "5b0c6a7e-2f1d-4c1e-9a55-0e0c3c2f9b11")
+        String id,
+        @Schema(description = "Arquivo importado, relativo ao diretório de importação", example = "parceiro-20261019.csv")
+        String file,
+        CardImportStatus status,
+        @Schema(description = "Blocos em que o arquivo foi dividido")
+        int totalChunks,
+        @Schema(description = "Blocos concluídos, incluindo os de uma execução anterior")
+        int completedChunks,
+        @Schema(description = "Cartões enviados ao Kafka nesta execução")
+        long accepted,
+        @Schema(description = "Linhas rejeitadas nesta execução")
+        long rejected,
+        @Schema(description = "Cartões cujo envio ao Kafka falhou")
+        long failed,
+        @Schema(description = "Cartões por segundo nesta execução")
+        double cardsPerSecond,
+        @Schema(description = "Arquivo com as linhas rejeitadas e o motivo")
+        String rejectedFile,
+        Instant startedAt,
+        Instant finishedAt) {
+}
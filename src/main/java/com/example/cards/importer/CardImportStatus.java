@@ -0,0 +1,11 @@
+package com.example.cards.importer;
+
+/**
+ * Situação de um job de importação de arquivo
+ */
+public enum CardImportStatus {
+    RUNNING,
+    COMPLETED,
+    /** Terminou com blocos não confirmados pelo Kafka; importar o arquivo de novo retoma esses blocos */
+    FAILED
+}
@@ -0,0 +1,391 @@
+package com.example.cards.ingest;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedSelectorException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Component;
+
+import com.example.cards.domain.CreditCardBrand;
+import com.example.cards.domain.DefaultCreditCard;
+import com.example.cards.exception.CardRegistrationUnavailableException;
+import com.example.cards.exception.VelocityLimitExceededException;
+import com.example.cards.service.CreditCardRegistrationService;
+
+/**
+ * Listener TCP binário para cadastro de cartões em alto volume pelos gateways de pagamento.
+ *
+ * Cada conexão envia quadros em sequência, sem esperar a resposta do anterior:
+ * <pre>
+ * [int tamanho][int seq][byte bandeira][byte tamanhoPan][pan ASCII][short tamanhoTitular][titular UTF-8]
+ * </pre>
+ * O tamanho conta os bytes após o próprio campo e a bandeira é o ordinal de {@link CreditCardBrand}.
+ * Para cada quadro é devolvida uma confirmação de 5 bytes, na mesma ordem: {@code [int seq][byte status]}.
+ *
+ * Os cartões passam pelas mesmas validações e pelo mesmo {@link CreditCardRegistrationService#register}
+ * da API HTTP, então buffer cheio, desligamento e limite de velocidade valem para os dois canais.
+ *
+ * A thread do selector só lê, decodifica e escreve: cada conexão tem uma virtual thread que cadastra
+ * os quadros em ordem e devolve as confirmações ao selector, para que um cadastro lento ou bloqueado
+ * não atrase as demais conexões. Quando as confirmações ainda não escritas ocupam todo o buffer de saída
+ * (cliente que não as consome, ou cadastros atrasados), o listener para de ler a conexão até escrevê-las.
+ */
+@Component
+@ConditionalOnProperty(name = "cards.tcp.enabled", havingValue = "true")
+public class CardFrameTcpListener implements SmartLifecycle {
+
+    private static final org.slf4j.Logger log = org.slf4j.LoggerFactory.getLogger(CardFrameTcpListener.class);
+
+    public static final byte STATUS_ACCEPTED = 0;
+    public static final byte STATUS_INVALID = 1;
+    public static final byte STATUS_UNAVAILABLE = 2;
+    public static final byte STATUS_RATE_LIMITED = 3;
+    public static final byte STATUS_ERROR = 4;
+
+    private static final int ACK_SIZE = 5;
+    // seq + bandeira + tamanhoPan + tamanhoTitular
+    private static final int MIN_FRAME_SIZE = 4 + 1 + 1 + 2;
+    private static final CreditCardBrand[] BRANDS = CreditCardBrand.values();
+    // Sinaliza para a virtual thread da conexão que ela foi fechada
+    private static final Frame CLOSED = new Frame(-1, STATUS_ERROR, null, null, null);
+
+    private final CreditCardRegistrationService registrationService;
+    private final int port;
+    private final int maxFrameBytes;
+    private final int bufferSize;
+
+    // Usado apenas pela thread do listener para decodificar PAN e titular
+    private final byte[] scratch;
+    // Conexões com confirmações prontas para o selector escrever
+    private final ConcurrentLinkedQueue<Connection> acked = new ConcurrentLinkedQueue<>();
+
+    private volatile Selector selector;
+    private volatile boolean running;
+    private Thread thread;
+
+    public CardFrameTcpListener(CreditCardRegistrationService registrationService,
+                                @Value("${cards.tcp.port:9400}") int port,
+                                @Value("${cards.tcp.max-frame-bytes:1024}") int maxFrameBytes,
+                                @Value("${cards.tcp.buffer-size:65536}") int bufferSize) {
+        this.registrationService = registrationService;
+        this.port = port;
+        this.maxFrameBytes = maxFrameBytes;
+        this.bufferSize = Math.max(bufferSize, maxFrameBytes + 4);
+        this.scratch = new byte[maxFrameBytes];
+    }
+
+    @Override
+    public void start() {
+        try {
+            selector = Selector.open();
+            ServerSocketChannel server = ServerSocketChannel.open();
+            server.configureBlocking(false);
+            server.bind(new InetSocketAddress(port));
+            server.register(selector, SelectionKey.OP_ACCEPT);
+        } catch (IOException e) {
+            throw new IllegalStateException("Não foi possível abrir o listener TCP na porta " + port, e);
+        }
+        running = true;
+        thread = new Thread(this::run, "cards-tcp-listener");
+        thread.start();
+        log.info("### Listener TCP de cartões aguardando conexões na porta {}", port);
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+        Selector current = selector;
+        if (current != null) {
+            current.wakeup();
+        }
+        try {
+            if (thread != null) {
+                thread.join(5000);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    private void run() {
+        try (Selector sel = selector) {
+            while (running) {
+                sel.select();
+                writeAcks();
+                Iterator<SelectionKey> keys = sel.selectedKeys().iterator();
+                while (keys.hasNext()) {
+                    SelectionKey key = keys.next();
+                    keys.remove();
+                    try {
+                        if (!key.isValid()) {
+                            continue;
+                        }
+                        if (key.isAcceptable()) {
+                            accept((ServerSocketChannel) key.channel());
+                        } else {
+                            if (key.isWritable()) {
+                                onWritable(key);
+                            }
+                            if (key.isValid() && key.isReadable()) {
+                                onReadable(key);
+                            }
+                        }
+                    } catch (IOException e) {
+                        log.debug("Conexão TCP encerrada: {}", e.getMessage());
+                        close(key);
+                    }
+                }
+            }
+            for (SelectionKey key : sel.keys()) {
+                close(key);
+            }
+        } catch (IOException | ClosedSelectorException e) {
+            log.error("Listener TCP de cartões interrompido", e);
+        }
+        log.info("### Listener TCP de cartões encerrado");
+    }
+
+    private void accept(ServerSocketChannel server) throws IOException {
+        SocketChannel channel = server.accept();
+        if (channel == null) {
+            return;
+        }
+        channel.configureBlocking(false);
+        channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+        Connection connection = new Connection(bufferSize);
+        connection.key = channel.register(selector, SelectionKey.OP_READ, connection);
+        Thread.ofVirtual().name("cards-tcp-worker").start(() -> work(connection));
+    }
+
+    private void onReadable(SelectionKey key) throws IOException {
+        SocketChannel channel = (SocketChannel) key.channel();
+        Connection connection = (Connection) key.attachment();
+        if (channel.read(connection.in) < 0) {
+            close(key);
+            return;
+        }
+        processFrames(key, connection);
+        updateInterest(key, connection);
+    }
+
+    private void onWritable(SelectionKey key) throws IOException {
+        Connection connection = (Connection) key.attachment();
+        flush(key, connection);
+        // Confirmações escritas liberam espaço: retoma os quadros que ficaram no buffer
+        processFrames(key, connection);
+        updateInterest(key, connection);
+    }
+
+    /** Leva para o buffer de saída as confirmações devolvidas pelas virtual threads e tenta escrevê-las */
+    private void writeAcks() {
+        Connection connection;
+        while ((connection = acked.poll()) != null) {
+            connection.signalled.set(false);
+            SelectionKey key = connection.key;
+            if (!key.isValid()) {
+                continue;
+            }
+            synchronized (connection.acks) {
+                connection.acks.flip();
+                connection.out.put(connection.acks);
+                connection.acks.clear();
+            }
+            try {
+                flush(key, connection);
+                processFrames(key, connection);
+                updateInterest(key, connection);
+            } catch (IOException e) {
+                log.debug("Conexão TCP encerrada: {}", e.getMessage());
+                close(key);
+            }
+        }
+    }
+
+    /** Lê enquanto houver espaço para as confirmações; espera a escrita enquanto houver confirmações no buffer */
+    private void updateInterest(SelectionKey key, Connection connection) {
+        if (!key.isValid()) {
+            return;
+        }
+        int ops = 0;
+        if (connection.inFlightBytes + ACK_SIZE <= connection.out.capacity()) {
+            ops |= SelectionKey.OP_READ;
+        }
+        if (connection.out.position() > 0) {
+            ops |= SelectionKey.OP_WRITE;
+        }
+        key.interestOps(ops);
+    }
+
+    private void processFrames(SelectionKey key, Connection connection) {
+        ByteBuffer in = connection.in;
+        in.flip();
+        try {
+            while (in.remaining() >= 4) {
+                int length = in.getInt(in.position());
+                if (length < MIN_FRAME_SIZE || length > maxFrameBytes) {
+                    log.warn("Quadro TCP com tamanho inválido ({} bytes), encerrando conexão", length);
+                    close(key);
+                    return;
+                }
+                if (in.remaining() < 4 + length) {
+                    break;
+                }
+                if (connection.inFlightBytes + ACK_SIZE > connection.out.capacity()) {
+                    // Sem espaço para mais uma confirmação: o quadro espera no buffer de entrada
+                    break;
+                }
+                int frameEnd = in.position() + 4 + length;
+                in.position(in.position() + 4);
+                int seq = in.getInt();
+                Frame frame = decode(seq, in, frameEnd);
+                in.position(frameEnd);
+                connection.inFlightBytes += ACK_SIZE;
+                connection.frames.add(frame);
+            }
+        } finally {
+            in.compact();
+        }
+    }
+
+    private Frame decode(int seq, ByteBuffer in, int frameEnd) {
+        int brandOrdinal = in.get();
+        int panLength = in.get() & 0xFF;
+        if (brandOrdinal < 0 || brandOrdinal >= BRANDS.length || in.position() + panLength + 2 > frameEnd) {
+            return Frame.invalid(seq);
+        }
+        in.get(scratch, 0, panLength);
+        String pan = new String(scratch, 0, panLength, StandardCharsets.US_ASCII);
+        int holderLength = in.getShort() & 0xFFFF;
+        if (in.position() + holderLength > frameEnd) {
+            return Frame.invalid(seq);
+        }
+        in.get(scratch, 0, holderLength);
+        String holder = new String(scratch, 0, holderLength, StandardCharsets.UTF_8);
+        return new Frame(seq, STATUS_ACCEPTED, BRANDS[brandOrdinal], pan, holder);
+    }
+
+    /** Virtual thread da conexão: cadastra os quadros na ordem em que chegaram e devolve as confirmações */
+    private void work(Connection connection) {
+        List<Frame> batch = new ArrayList<>();
+        try {
+            while (true) {
+                batch.add(connection.frames.take());
+                connection.frames.drainTo(batch);
+                for (Frame frame : batch) {
+                    if (frame == CLOSED) {
+                        return;
+                    }
+                    byte status = frame.brand() == null ? frame.status() : register(frame);
+                    synchronized (connection.acks) {
+                        connection.acks.putInt(frame.seq()).put(status);
+                    }
+                }
+                batch.clear();
+                // Um aviso ao selector por lote de quadros, não por confirmação
+                if (connection.signalled.compareAndSet(false, true)) {
+                    acked.add(connection);
+                    selector.wakeup();
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private byte register(Frame frame) {
+        try {
+            registrationService.register(new DefaultCreditCard(frame.holder(), frame.pan(), frame.brand()));
+            return STATUS_ACCEPTED;
+        } catch (CardRegistrationUnavailableException e) {
+            return STATUS_UNAVAILABLE;
+        } catch (VelocityLimitExceededException e) {
+            return STATUS_RATE_LIMITED;
+        } catch (IllegalArgumentException e) {
+            return STATUS_INVALID;
+        } catch (RuntimeException e) {
+            log.error("Erro ao cadastrar cartão recebido via TCP", e);
+            return STATUS_ERROR;
+        }
+    }
+
+    /** Escreve as confirmações pendentes, liberando o espaço delas para novos quadros */
+    private void flush(SelectionKey key, Connection connection) throws IOException {
+        ByteBuffer out = connection.out;
+        if (out.position() == 0) {
+            return;
+        }
+        out.flip();
+        try {
+            connection.inFlightBytes -= ((SocketChannel) key.channel()).write(out);
+        } finally {
+            out.compact();
+        }
+    }
+
+    private void close(SelectionKey key) {
+        key.cancel();
+        if (key.attachment() instanceof Connection connection) {
+            // Quadros ainda não cadastrados ficam sem confirmação e o cliente os reenvia
+            connection.frames.clear();
+            connection.frames.add(CLOSED);
+        }
+        try {
+            key.channel().close();
+        } catch (IOException e) {
+            log.debug("Erro ao fechar conexão TCP", e);
+        }
+    }
+
+    /** Quadro decodificado; sem bandeira, já vem com a confirmação de quadro inválido */
+    private record Frame(int seq, byte status, CreditCardBrand brand, String pan, String holder) {
+
+        static Frame invalid(int seq) {
+            return new Frame(seq, STATUS_INVALID, null, null, null);
+        }
+    }
+
+    /**
+     * Buffers diretos da conexão, reaproveitados durante toda a sua vida. in, out e inFlightBytes
+     * são usados apenas pela thread do selector; frames e acks são a passagem para a virtual thread.
+     */
+    private static final class Connection {
+
+        final ByteBuffer in;
+        final ByteBuffer out;
+        final BlockingQueue<Frame> frames = new LinkedBlockingQueue<>();
+        // Confirmações devolvidas pela virtual thread, ainda não copiadas para out
+        final ByteBuffer acks;
+        final AtomicBoolean signalled = new AtomicBoolean();
+        // Quadros entregues à virtual thread cuja confirmação ainda não foi escrita no socket
+        int inFlightBytes;
+        SelectionKey key;
+
+        Connection(int bufferSize) {
+            this.in = ByteBuffer.allocateDirect(bufferSize);
+            this.out = ByteBuffer.allocateDirect(bufferSize);
+            this.acks = ByteBuffer.allocate(bufferSize);
+        }
+    }
+}
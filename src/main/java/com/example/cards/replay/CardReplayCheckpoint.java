@@ -0,0 +1,83 @@
+package com.example.cards.replay;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Próximo offset a reler de cada partição de um replay. A primeira linha identifica o pedido
+ * (tópico, limites e revalidação); as demais são "partição offset", e a última de cada partição vale.
+ * Se o pedido mudou, o checkpoint é descartado e o replay recomeça dos limites pedidos.
+ */
+final class CardReplayCheckpoint {
+
+    private final Path file;
+    private final Map<Integer, Long> positions = new HashMap<>();
+    private final boolean resumed;
+
+    private CardReplayCheckpoint(Path file, boolean resumed) {
+        this.file = file;
+        this.resumed = resumed;
+    }
+
+    static CardReplayCheckpoint open(Path file, String signature) {
+        try {
+            if (Files.exists(file)) {
+                List<String> lines = Files.readAllLines(file, StandardCharsets.UTF_8);
+                if (!lines.isEmpty() && lines.get(0).equals(signature)) {
+                    CardReplayCheckpoint checkpoint = new CardReplayCheckpoint(file, true);
+                    for (String line : lines.subList(1, lines.size())) {
+                        String[] fields = line.trim().split(" ");
+                        if (fields.length == 2) {
+                            checkpoint.positions.put(Integer.parseInt(fields[0]), Long.parseLong(fields[1]));
+                        }
+                    }
+                    return checkpoint;
+                }
+            }
+            Files.createDirectories(file.toAbsolutePath().getParent());
+            Files.writeString(file, signature + "\n", StandardCharsets.UTF_8);
+            return new CardReplayCheckpoint(file, false);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Falha ao abrir checkpoint " + file, e);
+        }
+    }
+
+    boolean isResumed() {
+        return resumed;
+    }
+
+    Path getFile() {
+        return file;
+    }
+
+    /** Próximo offset registrado da partição, ou -1 se ela ainda não avançou */
+    synchronized long position(int partition) {
+        return positions.getOrDefault(partition, -1L);
+    }
+
+    /** Registra, com fsync, que tudo antes de offset já foi republicado e confirmado */
+    synchronized void advance(int partition, long offset) {
+        try {
+            Files.writeString(file, partition + " " + offset + "\n", StandardCharsets.UTF_8,
+                    StandardOpenOption.APPEND, StandardOpenOption.SYNC);
+            positions.put(partition, offset);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Falha ao gravar checkpoint " + file, e);
+        }
+    }
+
+    void delete() {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Falha ao remover checkpoint " + file, e);
+        }
+    }
+}
@@ -0,0 +1,68 @@
+package com.example.cards.replay;
+
+import java.time.Instant;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Estado de um replay em andamento ou concluído. Os arrays são indexados pela partição.
+ */
+final class CardReplayJob {
+
+    final String id;
+    final String topic;
+    final String targetTopic;
+    final CardReplayCheckpoint checkpoint;
+    final long[] startOffsets;
+    final long[] endOffsets;
+    final AtomicLongArray positions;
+    final Instant startedAt = Instant.now();
+    final long startNanos = System.nanoTime();
+
+    final LongAdder replayed = new LongAdder();
+    final LongAdder rejected = new LongAdder();
+    final LongAdder failed = new LongAdder();
+
+    volatile CardReplayStatus status = CardReplayStatus.RUNNING;
+    volatile Instant finishedAt;
+    volatile long finishedNanos;
+
+    CardReplayJob(String id, String topic, String targetTopic, CardReplayCheckpoint checkpoint,
+                  long[] startOffsets, long[] endOffsets) {
+        this.id = id;
+        this.topic = topic;
+        this.targetTopic = targetTopic;
+        this.checkpoint = checkpoint;
+        this.startOffsets = startOffsets;
+        this.endOffsets = endOffsets;
+        this.positions = new AtomicLongArray(startOffsets.length);
+        for (int p = 0; p < startOffsets.length; p++) {
+            positions.set(p, Math.max(startOffsets[p], checkpoint.position(p)));
+        }
+    }
+
+    boolean isDone(int partition) {
+        return positions.get(partition) >= endOffsets[partition];
+    }
+
+    void finish(CardReplayStatus finalStatus) {
+        finishedNanos = System.nanoTime();
+        finishedAt = Instant.now();
+        status = finalStatus;
+    }
+
+    CardReplayJobResponse toResponse() {
+        long end = finishedAt != null ? finishedNanos : System.nanoTime();
+        double seconds = Math.max(1e-3, (end - startNanos) / 1e9);
+        long total = 0;
+        long completed = 0;
+        for (int p = 0; p < startOffsets.length; p++) {
+            total += Math.max(0, endOffsets[p] - startOffsets[p]);
+            completed += Math.max(0, Math.min(positions.get(p), endOffsets[p]) - startOffsets[p]);
+        }
+        return new CardReplayJobResponse(id, topic, targetTopic, status, startOffsets.length, total, completed,
+                replayed.sum(), rejected.sum(), failed.sum(),
+                Math.round(replayed.sum() / seconds * 10) / 10.0,
+                checkpoint.getFile().getFileName().toString(), startedAt, finishedAt);
+    }
+}
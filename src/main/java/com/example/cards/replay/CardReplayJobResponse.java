@@ -0,0 +1,37 @@
+package com.example.cards.replay;
+
+import java.time.Instant;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+
+/**
+ * Progresso de um job de replay
+ */
+@Schema(description = "Progresso do replay de um tópico de bandeira")
+public record CardReplayJobResponse(
+        @Schema(description = "ID do job", example = "5b0c6a7e-2f1d-4c1e-9a55-0e0c3c2f9b11")
+        String id,
+        @Schema(description = "Tópico relido", example = "cartoes-visa")
+        String topic,
+        @Schema(description = "Tópico de destino, ou null quando segue o roteamento das bandeiras", example = "cartoes-visa-v2")
+        String targetTopic,
+        CardReplayStatus status,
+        @Schema(description = "Partições relidas em paralelo")
+        int partitions,
+        @Schema(description = "Registros entre os limites pedidos, incluindo os de uma execução anterior")
+        long totalRecords,
+        @Schema(description = "Registros já relidos e confirmados, incluindo os de uma execução anterior")
+        long completedRecords,
+        @Schema(description = "Cartões republicados nesta execução")
+        long replayed,
+        @Schema(description = "Cartões descartados na leitura ou na revalidação nesta execução")
+        long rejected,
+        @Schema(description = "Cartões cujo envio falhou")
+        long failed,
+        @Schema(description = "Cartões por segundo nesta execução")
+        double cardsPerSecond,
+        @Schema(description = "Arquivo de checkpoint usado para retomar o replay")
+        String checkpointFile,
+        Instant startedAt,
+        Instant finishedAt) {
+}
@@ -0,0 +1,398 @@
+package com.example.cards.replay;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CompletableFuture;
+
+import org.apache.kafka.clients.consumer.ConsumerConfig;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.KafkaConsumer;
+import org.apache.kafka.clients.consumer.OffsetAndTimestamp;
+import org.apache.kafka.common.PartitionInfo;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.common.serialization.ByteArrayDeserializer;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.kafka.autoconfigure.KafkaProperties;
+import org.springframework.stereotype.Service;
+
+import com.example.cards.domain.CreditCard;
+import com.example.cards.domain.CreditCardBrand;
+import com.example.cards.domain.CreditCardBrandFactory;
+import com.example.cards.domain.KafkaTopicStrategyProvider;
+import com.example.cards.domain.kafka.CreditCardDecryptingDeserializer;
+import com.example.cards.domain.kafka.CreditCardEnvelopeDeserializer;
+import com.example.cards.service.CreditCardBatchProcessor;
+import com.example.cards.sink.KafkaCardSink;
+
+/**
+ * Relê um tópico de bandeira entre offsets ou instantes e republica os cartões pelo
+ * {@link CreditCardBatchProcessor}, com o roteamento, o destino e a codificação atuais
+ * de cada bandeira (envelopes, cifragem). Com um tópico de destino, os cartões vão direto para ele
+ * pelo {@link KafkaCardSink}, com o producer e a codificação da bandeira, o que permite recodificar
+ * o tópico atual de uma bandeira num tópico novo. Usado em backfills após mudanças de tópico ou de formato.
+ *
+ * Cada partição é lida por um consumidor próprio, sem grupo, numa virtual thread; o ritmo
+ * de todas juntas é limitado a maxRate cartões por segundo. O checkpoint de uma partição só avança
+ * depois que os cartões lidos foram confirmados pelo destino, então repetir o mesmo pedido retoma
+ * de onde parou. Os limites finais são fixados no início, para que o replay termine.
+ */
+@Service
+public class CardReplayService {
+
+    private static final org.slf4j.Logger log = org.slf4j.LoggerFactory.getLogger(CardReplayService.class);
+
+    private static final Duration POLL_TIMEOUT = Duration.ofSeconds(1);
+    private static final int MAX_EMPTY_POLLS = 30;
+
+    private final KafkaProperties kafkaProperties;
+    private final CreditCardBatchProcessor batchProcessor;
+    private final KafkaTopicStrategyProvider topicStrategyProvider;
+    private final KafkaCardSink kafkaCardSink;
+    private final Path checkpointDir;
+    private final int defaultMaxRate;
+    private final int maxPollRecords;
+    private final String masterKeyFile;
+
+    private final Map<String, CardReplayJob> jobs = new ConcurrentHashMap<>();
+    private final Map<Path, CardReplayJob> running = new ConcurrentHashMap<>();
+
+    public CardReplayService(KafkaProperties kafkaProperties,
+                             CreditCardBatchProcessor batchProcessor,
+                             KafkaTopicStrategyProvider topicStrategyProvider,
+                             KafkaCardSink kafkaCardSink,
+                             @Value("${cards.replay.checkpoint-dir:data/replay}") String checkpointDir,
+                             @Value("${cards.replay.max-rate:5000}") int defaultMaxRate,
+                             @Value("${cards.replay.max-poll-records:500}") int maxPollRecords,
+                             @Value("${cards.encryption.master-key-file:data/keys/master.key}") String masterKeyFile) {
+        this.kafkaProperties = kafkaProperties;
+        this.batchProcessor = batchProcessor;
+        this.topicStrategyProvider = topicStrategyProvider;
+        this.kafkaCardSink = kafkaCardSink;
+        this.checkpointDir = Path.of(checkpointDir);
+        this.defaultMaxRate = defaultMaxRate;
+        this.maxPollRecords = maxPollRecords;
+        this.masterKeyFile = masterKeyFile;
+    }
+
+    /**
+     * Inicia (ou retoma) o replay do tópico. Os limites são por offset (aplicados a todas as partições)
+     * ou por instante, nunca os dois; sem limites, relê o tópico inteiro até o fim atual.
+     * Se o mesmo pedido já está em andamento, retorna o job existente.
+     *
+     * @param targetTopic tópico que recebe os cartões; null segue o roteamento atual das bandeiras
+     * @param maxRate cartões por segundo somando todas as partições; null usa cards.replay.max-rate, 0 não limita
+     */
+    public CardReplayJobResponse start(String topic, String targetTopic, Long fromOffset, Long toOffset,
+                                       Instant fromTimestamp, Instant toTimestamp,
+                                       boolean revalidate, Integer maxRate) {
+        if ((fromOffset != null || toOffset != null) && (fromTimestamp != null || toTimestamp != null)) {
+            throw new IllegalArgumentException("Informe limites por offset ou por instante, não os dois");
+        }
+        if (targetTopic != null && targetTopic.isBlank()) {
+            targetTopic = null;
+        }
+        if (topic.equals(targetTopic)) {
+            throw new IllegalArgumentException("O tópico de destino deve ser diferente do tópico relido");
+        }
+        if (targetTopic == null) {
+            for (CreditCardBrand brand : CreditCardBrand.values()) {
+                if (topic.equals(topicStrategyProvider.getTopicName(brand))
+                        && KafkaCardSink.NAME.equals(topicStrategyProvider.getPipelineSettings(brand).sink())) {
+                    throw new IllegalArgumentException("O tópico " + topic + " é o destino atual da bandeira " + brand
+                            + "; informe targetTopic para republicar os cartões em outro tópico");
+                }
+            }
+        }
+        int rate = maxRate != null ? maxRate : defaultMaxRate;
+        if (rate < 0) {
+            throw new IllegalArgumentException("maxRate deve ser maior ou igual a zero");
+        }
+
+        String signature = signature(topic, targetTopic, fromOffset, toOffset, fromTimestamp, toTimestamp, revalidate);
+        Path checkpointFile = checkpointFile(topic, signature);
+        CardReplayJob existing = running.get(checkpointFile);
+        if (existing != null) {
+            return existing.toResponse();
+        }
+
+        long[][] bounds = partitionBounds(topic, fromOffset, toOffset, fromTimestamp, toTimestamp);
+        CardReplayCheckpoint checkpoint = CardReplayCheckpoint.open(checkpointFile, signature);
+        CardReplayJob job = new CardReplayJob(UUID.randomUUID().toString(), topic, targetTopic, checkpoint, bounds[0], bounds[1]);
+        existing = running.putIfAbsent(checkpointFile, job);
+        if (existing != null) {
+            return existing.toResponse();
+        }
+        jobs.put(job.id, job);
+        Throttle throttle = new Throttle(rate);
+        Thread.ofVirtual().name("card-replay-" + job.id).start(() -> run(job, revalidate, throttle));
+        return job.toResponse();
+    }
+
+    /** Identifica o pedido no checkpoint: o mesmo pedido retoma, um pedido diferente recomeça */
+    static String signature(String topic, String targetTopic, Long fromOffset, Long toOffset,
+                            Instant fromTimestamp, Instant toTimestamp, boolean revalidate) {
+        return topic + (targetTopic != null ? " target=" + targetTopic : "") + " offsets=" + fromOffset + ".." + toOffset
+                + " timestamps=" + fromTimestamp + ".." + toTimestamp + " revalidate=" + revalidate;
+    }
+
+    Path checkpointFile(String topic, String signature) {
+        return checkpointDir.resolve(topic + "-" + String.format("%08x", signature.hashCode()) + ".checkpoint");
+    }
+
+    public CardReplayJobResponse getJob(String id) {
+        CardReplayJob job = jobs.get(id);
+        return job != null ? job.toResponse() : null;
+    }
+
+    /** Offsets inicial e final (exclusivo) de cada partição, pelo índice da partição */
+    private long[][] partitionBounds(String topic, Long fromOffset, Long toOffset,
+                                     Instant fromTimestamp, Instant toTimestamp) {
+        try (KafkaConsumer<byte[], byte[]> consumer = newConsumer()) {
+            List<PartitionInfo> infos = consumer.partitionsFor(topic, Duration.ofSeconds(30));
+            if (infos == null || infos.isEmpty()) {
+                throw new IllegalArgumentException("Tópico não encontrado: " + topic);
+            }
+            List<TopicPartition> partitions = new ArrayList<>();
+            for (PartitionInfo info : infos) {
+                partitions.add(new TopicPartition(topic, info.partition()));
+            }
+            Map<TopicPartition, Long> beginning = consumer.beginningOffsets(partitions);
+            Map<TopicPartition, Long> end = consumer.endOffsets(partitions);
+            Map<TopicPartition, OffsetAndTimestamp> fromTimes = offsetsForTimes(consumer, partitions, fromTimestamp);
+            Map<TopicPartition, OffsetAndTimestamp> toTimes = offsetsForTimes(consumer, partitions, toTimestamp);
+
+            long[][] bounds = new long[2][partitions.size()];
+            for (TopicPartition tp : partitions) {
+                long first = beginning.get(tp);
+                long last = end.get(tp);
+                long start = first;
+                long stop = last;
+                if (fromOffset != null) {
+                    start = Math.max(first, fromOffset);
+                }
+                if (toOffset != null) {
+                    stop = Math.min(last, toOffset);
+                }
+                if (fromTimestamp != null) {
+                    OffsetAndTimestamp found = fromTimes.get(tp);
+                    start = found != null ? found.offset() : last;
+                }
+                if (toTimestamp != null) {
+                    OffsetAndTimestamp found = toTimes.get(tp);
+                    stop = found != null ? found.offset() : last;
+                }
+                bounds[0][tp.partition()] = start;
+                bounds[1][tp.partition()] = Math.max(start, stop);
+            }
+            return bounds;
+        }
+    }
+
+    private static Map<TopicPartition, OffsetAndTimestamp> offsetsForTimes(KafkaConsumer<byte[], byte[]> consumer,
+                                                                           List<TopicPartition> partitions, Instant instant) {
+        if (instant == null) {
+            return Map.of();
+        }
+        Map<TopicPartition, Long> query = new HashMap<>();
+        partitions.forEach(tp -> query.put(tp, instant.toEpochMilli()));
+        Map<TopicPartition, OffsetAndTimestamp> found = consumer.offsetsForTimes(query);
+        return found != null ? found : Map.of();
+    }
+
+    private void run(CardReplayJob job, boolean revalidate, Throttle throttle) {
+        try {
+            log.info("### Replay de {} para {} ({} partições, {} registros{})", job.topic,
+                     job.targetTopic != null ? job.targetTopic : "o roteamento das bandeiras", job.startOffsets.length,
+                     job.toResponse().totalRecords(), job.checkpoint.isResumed() ? ", retomado do checkpoint" : "");
+            List<CompletableFuture<Boolean>> partitions = new ArrayList<>();
+            for (int p = 0; p < job.startOffsets.length; p++) {
+                int partition = p;
+                CompletableFuture<Boolean> done = new CompletableFuture<>();
+                Thread.ofVirtual().name("card-replay-" + job.topic + "-" + p).start(() -> {
+                    try {
+                        done.complete(replayPartition(job, partition, revalidate, throttle));
+                    } catch (RuntimeException e) {
+                        log.error("Falha no replay da partição {} de {}", partition, job.topic, e);
+                        done.complete(false);
+                    }
+                });
+                partitions.add(done);
+            }
+            boolean completed = partitions.stream().allMatch(CompletableFuture::join);
+            if (completed) {
+                job.checkpoint.delete();
+                job.finish(CardReplayStatus.COMPLETED);
+            } else {
+                job.finish(CardReplayStatus.FAILED);
+            }
+            log.info("### Replay de {} terminou como {}: {} cartões, {} descartados, {} cartões/s",
+                     job.topic, job.status, job.replayed.sum(), job.rejected.sum(), job.toResponse().cardsPerSecond());
+        } catch (RuntimeException e) {
+            log.error("Falha no replay de {}", job.topic, e);
+            job.finish(CardReplayStatus.FAILED);
+        } finally {
+            running.remove(job.checkpoint.getFile());
+        }
+    }
+
+    /** Relê a partição até o offset final; retorna false se parou antes por falha de envio */
+    private boolean replayPartition(CardReplayJob job, int partition, boolean revalidate, Throttle throttle) {
+        if (job.isDone(partition)) {
+            return true;
+        }
+        TopicPartition tp = new TopicPartition(job.topic, partition);
+        long end = job.endOffsets[partition];
+        CreditCardEnvelopeDeserializer deserializer = new CreditCardEnvelopeDeserializer();
+        if (Files.exists(Path.of(masterKeyFile))) {
+            deserializer.configure(Map.of(CreditCardDecryptingDeserializer.MASTER_KEY_FILE_CONFIG, masterKeyFile), false);
+        }
+
+        try (KafkaConsumer<byte[], byte[]> consumer = newConsumer()) {
+            consumer.assign(List.of(tp));
+            consumer.seek(tp, job.positions.get(partition));
+            int emptyPolls = 0;
+            while (!job.isDone(partition)) {
+                List<ConsumerRecord<byte[], byte[]>> records = consumer.poll(POLL_TIMEOUT).records(tp);
+                if (records.isEmpty()) {
+                    // Offsets sem registros (compactação, marcadores de transação) também contam como lidos
+                    long position = consumer.position(tp);
+                    if (position > job.positions.get(partition)) {
+                        job.checkpoint.advance(partition, Math.min(position, end));
+                        job.positions.set(partition, Math.min(position, end));
+                    } else if (++emptyPolls >= MAX_EMPTY_POLLS) {
+                        log.error("Partição {} de {} sem registros em {} polls, parada no offset {}",
+                                  partition, job.topic, emptyPolls, job.positions.get(partition));
+                        return false;
+                    }
+                    continue;
+                }
+                emptyPolls = 0;
+
+                Map<CreditCardBrand, List<CreditCard>> batches = new EnumMap<>(CreditCardBrand.class);
+                long next = job.positions.get(partition);
+                int cards = 0;
+                for (ConsumerRecord<byte[], byte[]> record : records) {
+                    if (record.offset() >= end) {
+                        break;
+                    }
+                    next = record.offset() + 1;
+                    for (CreditCard card : decode(job, deserializer, record, revalidate)) {
+                        batches.computeIfAbsent(card.getBrand(), b -> new ArrayList<>()).add(card);
+                        cards++;
+                    }
+                }
+                if (!publish(job, batches, throttle, cards)) {
+                    log.error("Partição {} de {} com cartões não confirmados; será retomada do offset {}",
+                              partition, job.topic, job.positions.get(partition));
+                    return false;
+                }
+                next = Math.max(next, Math.min(consumer.position(tp), end));
+                job.checkpoint.advance(partition, next);
+                job.positions.set(partition, next);
+            }
+            return true;
+        }
+    }
+
+    private List<CreditCard> decode(CardReplayJob job, CreditCardEnvelopeDeserializer deserializer,
+                                    ConsumerRecord<byte[], byte[]> record, boolean revalidate) {
+        List<CreditCard> cards;
+        try {
+            cards = deserializer.deserialize(record.topic(), record.headers(), record.value());
+        } catch (RuntimeException e) {
+            job.rejected.increment();
+            log.warn("Registro {}-{}@{} descartado: {}", record.topic(), record.partition(), record.offset(), e.getMessage());
+            return List.of();
+        }
+        if (cards == null || !revalidate) {
+            return cards != null ? cards : List.of();
+        }
+        List<CreditCard> valid = new ArrayList<>(cards.size());
+        for (CreditCard card : cards) {
+            try {
+                CreditCardBrandFactory.getStrategy(card.getBrand()).validate(card.getNumber());
+                valid.add(card);
+            } catch (IllegalArgumentException e) {
+                job.rejected.increment();
+                log.warn("Cartão {} de {}-{}@{} descartado na revalidação: {}",
+                         card.getId(), record.topic(), record.partition(), record.offset(), e.getMessage());
+            }
+        }
+        return valid;
+    }
+
+    /**
+     * Republica os lotes em fatias de até flushSize e aguarda as confirmações. Com tópico de destino,
+     * o envio não passa pelo circuito da bandeira: o spool reenviaria os cartões ao tópico da bandeira.
+     */
+    private boolean publish(CardReplayJob job, Map<CreditCardBrand, List<CreditCard>> batches, Throttle throttle, int cards) {
+        throttle.acquire(cards);
+        List<CompletableFuture<List<CreditCard>>> sends = new ArrayList<>();
+        batches.forEach((brand, batch) -> {
+            int flushSize = Math.max(1, topicStrategyProvider.getPipelineSettings(brand).flushSize());
+            for (int from = 0; from < batch.size(); from += flushSize) {
+                List<CreditCard> slice = batch.subList(from, Math.min(batch.size(), from + flushSize));
+                sends.add(job.targetTopic != null
+                        ? kafkaCardSink.publish(brand, slice, job.targetTopic)
+                        : batchProcessor.publish(brand, slice));
+            }
+        });
+        long failed = 0;
+        for (CompletableFuture<List<CreditCard>> send : sends) {
+            failed += send.join().size();
+        }
+        job.replayed.add(cards - failed);
+        job.failed.add(failed);
+        return failed == 0;
+    }
+
+    private KafkaConsumer<byte[], byte[]> newConsumer() {
+        Map<String, Object> properties = kafkaProperties.buildConsumerProperties();
+        // Partições atribuídas diretamente, sem grupo e sem offsets confirmados no broker
+        properties.remove(ConsumerConfig.GROUP_ID_CONFIG);
+        properties.put(ConsumerConfig.ENABLE_AUTO_COMMIT_CONFIG, false);
+        properties.put(ConsumerConfig.MAX_POLL_RECORDS_CONFIG, maxPollRecords);
+        properties.put(ConsumerConfig.ISOLATION_LEVEL_CONFIG, "read_committed");
+        return new KafkaConsumer<>(properties, new ByteArrayDeserializer(), new ByteArrayDeserializer());
+    }
+
+    /** Distribui as permissões no tempo: cada chamada reserva o intervalo dos seus cartões */
+    private static final class Throttle {
+
+        private final long nanosPerCard;
+        private long nextFree = System.nanoTime();
+
+        Throttle(int cardsPerSecond) {
+            this.nanosPerCard = cardsPerSecond > 0 ? 1_000_000_000L / cardsPerSecond : 0;
+        }
+
+        void acquire(int cards) {
+            if (nanosPerCard == 0 || cards == 0) {
+                return;
+            }
+            long wait;
+            synchronized (this) {
+                long now = System.nanoTime();
+                long start = Math.max(now, nextFree);
+                nextFree = start + cards * nanosPerCard;
+                wait = start - now;
+            }
+            if (wait > 0) {
+                try {
+                    Thread.sleep(Duration.ofNanos(wait));
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,11 @@
+package com.example.cards.replay;
+
+/**
+ * Situação de um job de replay de tópico
+ */
+public enum CardReplayStatus {
+    RUNNING,
+    COMPLETED,
+    /** Terminou com partições não concluídas; repetir o mesmo pedido retoma do checkpoint */
+    FAILED
+}
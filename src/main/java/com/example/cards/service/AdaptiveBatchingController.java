@@ -0,0 +1,216 @@
+package com.example.cards.service;
+
+import com.example.cards.config.CardTuningProperties;
+import com.example.cards.domain.BrandPipelineSettings;
+import com.example.cards.domain.CreditCardBrand;
+import com.example.cards.domain.KafkaTopicStrategyProvider;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+import org.apache.kafka.common.Metric;
+import org.apache.kafka.common.MetricName;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Ajusta periodicamente o flushSize e o linger de cada bandeira, e o linger.ms e batch.size
+ * do seu producer, para ficar perto da latência alvo com os maiores lotes possíveis.
+ *
+ * A latência estimada soma a espera no buffer da aplicação (pelo ritmo de envio medido pelo
+ * producer, pelo flushSize, pelo linger e pela fila acumulada) ao tempo na fila do producer e
+ * à latência das requisições ao broker. Acima do alvo os lotes esperam menos; com folga, os lotes
+ * crescem. Mudanças no producer exigem trocá-lo e respeitam um intervalo mínimo entre trocas.
+ * Cada decisão é contada em cards.tuning.decisions, e os valores em vigor ficam em gauges.
+ */
+@Component
+@ConditionalOnProperty(name = "cards.tuning.enabled", havingValue = "true")
+public class AdaptiveBatchingController {
+
+    private static final org.slf4j.Logger log = org.slf4j.LoggerFactory.getLogger(AdaptiveBatchingController.class);
+
+    private static final double OVER_TARGET = 1.1;
+    private static final double UNDER_TARGET = 0.8;
+
+    private final CardTuningProperties properties;
+    private final KafkaTopicStrategyProvider topicStrategyProvider;
+    private final BrandProducerRegistry producerRegistry;
+    private final CreditCardRegistrationService registrationService;
+    private final MeterRegistry meterRegistry;
+    private final long tickMs;
+
+    private final double[] latencyEstimateMs = new double[CreditCardBrand.values().length];
+    private final long[] lastSwapNanos = new long[CreditCardBrand.values().length];
+
+    public AdaptiveBatchingController(CardTuningProperties properties,
+                                      KafkaTopicStrategyProvider topicStrategyProvider,
+                                      BrandProducerRegistry producerRegistry,
+                                      CreditCardRegistrationService registrationService,
+                                      MeterRegistry meterRegistry,
+                                      @Value("${cards.pipeline.tick-ms:100}") long tickMs) {
+        this.properties = properties;
+        this.topicStrategyProvider = topicStrategyProvider;
+        this.producerRegistry = producerRegistry;
+        this.registrationService = registrationService;
+        this.meterRegistry = meterRegistry;
+        this.tickMs = tickMs;
+
+        long now = System.nanoTime();
+        for (CreditCardBrand brand : CreditCardBrand.values()) {
+            lastSwapNanos[brand.ordinal()] = now;
+            String tag = brand.name();
+            Gauge.builder("cards.tuning.flush.size", () -> topicStrategyProvider.getPipelineSettings(brand).flushSize())
+                    .tag("brand", tag).register(meterRegistry);
+            Gauge.builder("cards.tuning.linger", () -> topicStrategyProvider.getPipelineSettings(brand).linger().toMillis())
+                    .tag("brand", tag).baseUnit("milliseconds").register(meterRegistry);
+            Gauge.builder("cards.tuning.producer.linger", () -> producerRegistry.lingerMs(brand))
+                    .tag("brand", tag).baseUnit("milliseconds").register(meterRegistry);
+            Gauge.builder("cards.tuning.producer.batch.size", () -> producerRegistry.batchSize(brand))
+                    .tag("brand", tag).baseUnit("bytes").register(meterRegistry);
+            Gauge.builder("cards.tuning.latency.estimate", latencyEstimateMs, values -> values[brand.ordinal()])
+                    .tag("brand", tag).baseUnit("milliseconds").register(meterRegistry);
+        }
+        log.info("### Ajuste automático de lotes habilitado, latência alvo {}", properties.getTargetLatency());
+    }
+
+    @Scheduled(fixedDelayString = "${cards.tuning.interval:10s}", initialDelayString = "${cards.tuning.interval:10s}")
+    public void tune() {
+        for (CreditCardBrand brand : CreditCardBrand.values()) {
+            try {
+                tune(brand);
+            } catch (RuntimeException e) {
+                log.warn("Falha no ajuste automático da bandeira {}", brand, e);
+            }
+        }
+    }
+
+    private void tune(CreditCardBrand brand) {
+        Map<MetricName, ? extends Metric> metrics = producerRegistry.templateFor(brand).metrics();
+        double sendRate = metric(metrics, "record-send-rate");
+        double batchSizeAvg = metric(metrics, "batch-size-avg");
+        double requestLatencyMs = metric(metrics, "request-latency-avg");
+        double queueTimeMs = metric(metrics, "record-queue-time-avg");
+        double bufferAvailable = metric(metrics, "buffer-available-bytes");
+        double bufferTotal = metric(metrics, "buffer-total-bytes");
+        int depth = registrationService.getBufferDepth(brand);
+
+        if (sendRate == 0 && depth == 0) {
+            record(brand, "idle");
+            return;
+        }
+
+        BrandPipelineSettings settings = topicStrategyProvider.getPipelineSettings(brand);
+        double cardsPerSecond = sendRate * Math.max(1, settings.envelopeSize());
+        double lingerMs = settings.linger().toMillis();
+        double fillMs = cardsPerSecond > 0 ? settings.flushSize() * 1000.0 / cardsPerSecond : Double.POSITIVE_INFINITY;
+        // Em média cada cartão espera metade do tempo até o flush, mais o que já estava na fila à sua frente
+        double bufferWaitMs = Math.min(fillMs, lingerMs) / 2 + tickMs / 2.0;
+        if (depth > settings.flushSize() && cardsPerSecond > 0) {
+            bufferWaitMs += (depth - settings.flushSize()) * 1000.0 / cardsPerSecond;
+        }
+        double latencyMs = bufferWaitMs + queueTimeMs + requestLatencyMs;
+        latencyEstimateMs[brand.ordinal()] = latencyMs;
+        double targetMs = properties.getTargetLatency().toMillis();
+
+        int flushSize = settings.flushSize();
+        double newLingerMs = lingerMs;
+        String action;
+        if (latencyMs > targetMs * OVER_TARGET) {
+            if (depth > flushSize) {
+                // Fila acumulada: lotes maiores escoam mais rápido, sem esperar o linger
+                action = "drain-backlog";
+                flushSize = (int) (flushSize * 1.25);
+            } else {
+                action = "reduce-latency";
+                flushSize = (int) (flushSize * 0.8);
+            }
+            newLingerMs = lingerMs * 0.7;
+        } else if (latencyMs < targetMs * UNDER_TARGET) {
+            action = "increase-batching";
+            // O linger pode crescer enquanto a espera média (metade dele) couber na folga
+            double headroomMs = targetMs * UNDER_TARGET - queueTimeMs - requestLatencyMs - tickMs / 2.0;
+            newLingerMs = Math.min(lingerMs * 1.2, Math.max(0, headroomMs * 2));
+            if (fillMs < lingerMs) {
+                // Os lotes fecham pelo tamanho antes do linger: aumenta o tamanho
+                flushSize = (int) (flushSize * 1.25);
+            }
+        } else {
+            action = "hold";
+        }
+
+        flushSize = Math.clamp(flushSize, properties.getMinFlushSize(), properties.getMaxFlushSize());
+        Duration linger = Duration.ofMillis(Math.clamp(Math.round(newLingerMs),
+                properties.getMinLinger().toMillis(), properties.getMaxLinger().toMillis()));
+        if (flushSize == settings.flushSize() && linger.equals(settings.linger())) {
+            record(brand, action.equals("hold") ? "hold" : "at-bounds");
+        } else {
+            topicStrategyProvider.updatePipelineSettings(brand, settings.withBatching(flushSize, linger));
+            record(brand, action);
+            log.info("### Ajuste {} da bandeira {} ({}): flushSize {} -> {}, linger {} -> {} (latência estimada {} ms)",
+                     action, brand, String.format(Locale.ROOT, "%.0f cartões/s", cardsPerSecond),
+                     settings.flushSize(), flushSize, settings.linger().toMillis(), linger.toMillis(), Math.round(latencyMs));
+        }
+
+        tuneProducer(brand, latencyMs, targetMs, batchSizeAvg, bufferAvailable, bufferTotal);
+    }
+
+    private void tuneProducer(CreditCardBrand brand, double latencyMs, double targetMs,
+                              double batchSizeAvg, double bufferAvailable, double bufferTotal) {
+        long now = System.nanoTime();
+        if (now - lastSwapNanos[brand.ordinal()] < properties.getProducerSwapCooldown().toNanos()) {
+            return;
+        }
+        int batchSize = producerRegistry.batchSize(brand);
+        int lingerMs = producerRegistry.lingerMs(brand);
+        boolean memoryPressure = bufferTotal > 0 && bufferAvailable < bufferTotal * 0.1;
+
+        int newBatchSize = batchSize;
+        if (batchSizeAvg >= batchSize * 0.8 && !memoryPressure) {
+            // Lotes do producer saindo cheios: cabem mais registros por requisição
+            newBatchSize = batchSize * 2;
+        } else if (batchSizeAvg > 0 && batchSizeAvg < batchSize * 0.2) {
+            newBatchSize = batchSize / 2;
+        }
+        int newLingerMs = lingerMs;
+        if (latencyMs > targetMs * OVER_TARGET) {
+            newLingerMs = lingerMs / 2;
+        } else if (latencyMs < targetMs * UNDER_TARGET && batchSizeAvg < batchSize * 0.5) {
+            newLingerMs = lingerMs + 1;
+        }
+        newBatchSize = (int) Math.clamp(newBatchSize, properties.getMinBatchSize().toBytes(), properties.getMaxBatchSize().toBytes());
+        newLingerMs = (int) Math.clamp(newLingerMs, properties.getMinProducerLinger().toMillis(),
+                properties.getMaxProducerLinger().toMillis());
+
+        if (newBatchSize != batchSize || newLingerMs != lingerMs) {
+            producerRegistry.reconfigure(brand, newLingerMs, newBatchSize);
+            lastSwapNanos[brand.ordinal()] = now;
+            record(brand, "swap-producer");
+        }
+    }
+
+    private void record(CreditCardBrand brand, String action) {
+        meterRegistry.counter("cards.tuning.decisions", "brand", brand.name(), "action", action).increment();
+    }
+
+    /** Valor de uma métrica do grupo producer-metrics; 0 se ainda não houver amostras */
+    private static double metric(Map<MetricName, ? extends Metric> metrics, String name) {
+        for (Map.Entry<MetricName, ? extends Metric> entry : metrics.entrySet()) {
+            MetricName metricName = entry.getKey();
+            if (metricName.name().equals(name) && metricName.group().equals("producer-metrics")) {
+                Object value = entry.getValue().metricValue();
+                if (value instanceof Number number && !Double.isNaN(number.doubleValue())
+                        && !Double.isInfinite(number.doubleValue())) {
+                    return number.doubleValue();
+                }
+                return 0;
+            }
+        }
+        return 0;
+    }
+}
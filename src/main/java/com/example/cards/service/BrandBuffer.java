@@ -0,0 +1,73 @@
+package com.example.cards.service;
+
+import com.example.cards.domain.CreditCard;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Buffer de cartões de uma bandeira com capacidade máxima.
+ * Mantém um contador próprio porque o size() da ConcurrentLinkedQueue percorre a fila inteira.
+ */
+public class BrandBuffer {
+
+    private final Queue<CreditCard> queue = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger size = new AtomicInteger();
+    private final int capacity;
+    private volatile long lastFlushNanos = System.nanoTime();
+
+    public BrandBuffer(int capacity) {
+        this.capacity = capacity;
+    }
+
+    /** Enfileira o cartão; retorna false se o buffer estiver cheio */
+    public boolean offer(CreditCard card) {
+        if (size.incrementAndGet() > capacity) {
+            size.decrementAndGet();
+            return false;
+        }
+        queue.offer(card);
+        return true;
+    }
+
+    /** Remove até max cartões, na ordem de chegada */
+    public List<CreditCard> drain(int max) {
+        List<CreditCard> batch = new ArrayList<>(Math.min(max, Math.max(size.get(), 0)));
+        for (int i = 0; i < max; i++) {
+            CreditCard card = queue.poll();
+            if (card == null) break;
+            batch.add(card);
+        }
+        if (!batch.isEmpty()) {
+            size.addAndGet(-batch.size());
+            lastFlushNanos = System.nanoTime();
+        }
+        return batch;
+    }
+
+    /** Copia o conteúdo atual (visão fracamente consistente) para a coleção informada */
+    public void copyTo(Collection<CreditCard> target) {
+        target.addAll(queue);
+    }
+
+    public int size() {
+        return size.get();
+    }
+
+    public boolean isEmpty() {
+        return size.get() <= 0;
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    /** Tempo desde o último lote drenado, em nanossegundos */
+    public long nanosSinceLastFlush() {
+        return System.nanoTime() - lastFlushNanos;
+    }
+}
@@ -0,0 +1,132 @@
+package com.example.cards.service;
+
+import com.example.cards.domain.BrandPipelineSettings;
+import com.example.cards.domain.CreditCardBrand;
+import com.example.cards.domain.KafkaTopicStrategyProvider;
+
+import org.apache.kafka.clients.producer.ProducerConfig;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.core.ProducerFactory;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Um producer Kafka dedicado por bandeira, criado a partir da configuração global
+ * (spring.kafka.producer.*) com acks, compressão e in-flight da bandeira.
+ * Cada bandeira tem suas próprias threads de envio e seu próprio buffer de memória,
+ * então uma bandeira lenta ou com falha não bloqueia as demais.
+ *
+ * O producer de uma bandeira pode ser trocado em execução com outros linger.ms e batch.size:
+ * os novos lotes passam a usar o novo producer, e o anterior só é fechado (enviando o que
+ * tiver pendente) depois de um período de carência.
+ */
+@Component
+public class BrandProducerRegistry implements DisposableBean {
+
+    private static final org.slf4j.Logger log = org.slf4j.LoggerFactory.getLogger(BrandProducerRegistry.class);
+
+    private final ProducerFactory<String, Object> producerFactory;
+    private final KafkaTopicStrategyProvider topicStrategyProvider;
+    private final Duration retireGrace;
+
+    private final AtomicReferenceArray<BrandProducer> producers = new AtomicReferenceArray<>(CreditCardBrand.values().length);
+
+    public BrandProducerRegistry(ProducerFactory<String, Object> producerFactory,
+                                 KafkaTopicStrategyProvider topicStrategyProvider,
+                                 @Value("${cards.tuning.producer-retire-grace:10s}") Duration retireGrace) {
+        this.producerFactory = producerFactory;
+        this.topicStrategyProvider = topicStrategyProvider;
+        this.retireGrace = retireGrace;
+        int lingerMs = intConfig(ProducerConfig.LINGER_MS_CONFIG, 5);
+        int batchSize = intConfig(ProducerConfig.BATCH_SIZE_CONFIG, 16384);
+        for (CreditCardBrand brand : CreditCardBrand.values()) {
+            producers.set(brand.ordinal(), create(brand, lingerMs, batchSize));
+            BrandPipelineSettings settings = topicStrategyProvider.getPipelineSettings(brand);
+            log.info("### Producer da bandeira {} configurado: acks={}, compressão={}, in-flight={}, max.block.ms={}",
+                     brand, settings.acks(), settings.compression(), settings.maxInFlight(), settings.flushTimeout().toMillis());
+        }
+    }
+
+    static Map<String, Object> producerOverrides(CreditCardBrand brand, BrandPipelineSettings settings) {
+        Map<String, Object> overrides = new HashMap<>();
+        overrides.put(ProducerConfig.CLIENT_ID_CONFIG, "cards-" + brand.name().toLowerCase(Locale.ROOT));
+        overrides.put(ProducerConfig.ACKS_CONFIG, settings.acks());
+        overrides.put(ProducerConfig.COMPRESSION_TYPE_CONFIG, settings.compression());
+        overrides.put(ProducerConfig.MAX_IN_FLIGHT_REQUESTS_PER_CONNECTION, settings.maxInFlight());
+        // Um send sem metadados ou sem espaço no buffer não segura o envio além do prazo da bandeira
+        overrides.put(ProducerConfig.MAX_BLOCK_MS_CONFIG, settings.flushTimeout().toMillis());
+        return overrides;
+    }
+
+    public KafkaTemplate<String, Object> templateFor(CreditCardBrand brand) {
+        return producers.get(brand.ordinal()).template();
+    }
+
+    public int lingerMs(CreditCardBrand brand) {
+        return producers.get(brand.ordinal()).lingerMs();
+    }
+
+    public int batchSize(CreditCardBrand brand) {
+        return producers.get(brand.ordinal()).batchSize();
+    }
+
+    /**
+     * Troca o producer da bandeira por um novo com o linger.ms e o batch.size informados.
+     */
+    public void reconfigure(CreditCardBrand brand, int lingerMs, int batchSize) {
+        BrandProducer replacement = create(brand, lingerMs, batchSize);
+        BrandProducer previous = producers.getAndSet(brand.ordinal(), replacement);
+        log.info("### Producer da bandeira {} trocado: linger.ms {} -> {}, batch.size {} -> {}",
+                 brand, previous.lingerMs(), lingerMs, previous.batchSize(), batchSize);
+        // Lotes em andamento ainda podem estar enviando pelo producer anterior
+        Thread.ofVirtual().name("cards-producer-retire-" + brand).start(() -> {
+            try {
+                Thread.sleep(retireGrace);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            dispose(previous);
+        });
+    }
+
+    private BrandProducer create(CreditCardBrand brand, int lingerMs, int batchSize) {
+        Map<String, Object> overrides = producerOverrides(brand, topicStrategyProvider.getPipelineSettings(brand));
+        overrides.put(ProducerConfig.LINGER_MS_CONFIG, lingerMs);
+        overrides.put(ProducerConfig.BATCH_SIZE_CONFIG, batchSize);
+        ProducerFactory<String, Object> factory = producerFactory.copyWithConfigurationOverride(overrides);
+        return new BrandProducer(factory, new KafkaTemplate<>(factory), lingerMs, batchSize);
+    }
+
+    private int intConfig(String name, int defaultValue) {
+        Object value = producerFactory.getConfigurationProperties().get(name);
+        return value != null ? Integer.parseInt(value.toString()) : defaultValue;
+    }
+
+    private void dispose(BrandProducer producer) {
+        if (producer.factory() instanceof DisposableBean disposable) {
+            try {
+                disposable.destroy();
+            } catch (Exception e) {
+                log.warn("Falha ao fechar producer substituído", e);
+            }
+        }
+    }
+
+    @Override
+    public void destroy() throws Exception {
+        for (int i = 0; i < producers.length(); i++) {
+            dispose(producers.get(i));
+        }
+    }
+
+    private record BrandProducer(ProducerFactory<String, Object> factory, KafkaTemplate<String, Object> template,
+                                 int lingerMs, int batchSize) {
+    }
+}
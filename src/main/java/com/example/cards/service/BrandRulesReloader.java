@@ -0,0 +1,178 @@
+package com.example.cards.service;
+
+import com.example.cards.domain.CreditCardBrand;
+import com.example.cards.domain.CreditCardBrandStrategyRegistry;
+import com.example.cards.domain.RuleBasedBrandStrategy;
+
+import io.micrometer.core.instrument.MeterRegistry;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Properties;
+
+/**
+ * Carrega as regras das bandeiras do arquivo cards.rules.file e as publica no
+ * {@link CreditCardBrandStrategyRegistry}, verificando a data de modificação a cada cards.rules.reload-interval.
+ *
+ * Formato (properties, uma seção por bandeira; bandeiras sem seção usam as regras embutidas):
+ * <pre>
+ * visa.label=Visa
+ * visa.prefixes=4
+ * visa.lengths=13,16,19
+ * visa.fee-rate=0.018
+ * mastercard.prefixes=51-55,2221-2720
+ * </pre>
+ * Um arquivo inválido é rejeitado por inteiro e as regras vigentes continuam valendo.
+ * Sem o arquivo, valem as regras embutidas.
+ */
+@Component
+public class BrandRulesReloader {
+
+    private static final org.slf4j.Logger log = org.slf4j.LoggerFactory.getLogger(BrandRulesReloader.class);
+
+    private static final String[] KEYS = {"label", "prefixes", "lengths", "fee-rate"};
+
+    private final Path file;
+    private final MeterRegistry meterRegistry;
+
+    // Só acessado pela thread do agendamento (e pelo construtor)
+    private FileTime loadedModified;
+    private long loadedSize = -1;
+
+    public BrandRulesReloader(@Value("${cards.rules.file:config/brand-rules.properties}") String file,
+                              MeterRegistry meterRegistry) {
+        this.file = Path.of(file);
+        this.meterRegistry = meterRegistry;
+        reload();
+    }
+
+    @Scheduled(fixedDelayString = "${cards.rules.reload-interval:30s}", initialDelayString = "${cards.rules.reload-interval:30s}")
+    public void reload() {
+        FileTime modified;
+        long size;
+        try {
+            modified = Files.getLastModifiedTime(file);
+            size = Files.size(file);
+        } catch (NoSuchFileException e) {
+            if (loadedModified != null) {
+                CreditCardBrandStrategyRegistry.replace(Map.of());
+                loadedModified = null;
+                loadedSize = -1;
+                count("removed");
+                log.info("### Arquivo de regras {} removido; voltando às regras embutidas", file);
+            }
+            return;
+        } catch (IOException e) {
+            log.warn("### Não foi possível verificar o arquivo de regras {}: {}", file, e.toString());
+            return;
+        }
+        if (modified.equals(loadedModified) && size == loadedSize) {
+            return;
+        }
+
+        try {
+            Map<CreditCardBrand, RuleBasedBrandStrategy> rules = parse(file);
+            CreditCardBrandStrategyRegistry.replace(rules);
+            count("loaded");
+            log.info("### Regras de bandeira carregadas de {}: {}", file, describe(rules));
+        } catch (IOException | RuntimeException e) {
+            count("rejected");
+            log.error("### Arquivo de regras {} rejeitado; as regras vigentes continuam valendo: {}", file, e.getMessage());
+        }
+        // Um arquivo rejeitado só é lido de novo quando mudar
+        loadedModified = modified;
+        loadedSize = size;
+    }
+
+    static Map<CreditCardBrand, RuleBasedBrandStrategy> parse(Path file) throws IOException {
+        Properties properties = new Properties();
+        try (Reader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            properties.load(reader);
+        }
+
+        for (String key : properties.stringPropertyNames()) {
+            int dot = key.indexOf('.');
+            if (dot < 0 || brandOf(key.substring(0, dot)) == null || !Arrays.asList(KEYS).contains(key.substring(dot + 1))) {
+                throw new IllegalArgumentException("chave desconhecida '" + key + "'");
+            }
+        }
+
+        Map<CreditCardBrand, RuleBasedBrandStrategy> rules = new EnumMap<>(CreditCardBrand.class);
+        for (CreditCardBrand brand : CreditCardBrand.values()) {
+            String section = brand.name().toLowerCase(Locale.ROOT) + ".";
+            if (properties.stringPropertyNames().stream().noneMatch(k -> k.startsWith(section))) {
+                continue;
+            }
+            String label = properties.getProperty(section + "label", defaultLabel(brand));
+            List<String> prefixes = split(required(properties, section + "prefixes"));
+            List<Integer> lengths;
+            double feeRate;
+            try {
+                lengths = split(required(properties, section + "lengths")).stream().map(Integer::valueOf).toList();
+                feeRate = Double.parseDouble(required(properties, section + "fee-rate").trim());
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException(label + ": valor numérico inválido (" + e.getMessage() + ")");
+            }
+            rules.put(brand, new RuleBasedBrandStrategy(label, prefixes, lengths, feeRate));
+        }
+        return rules;
+    }
+
+    private static CreditCardBrand brandOf(String section) {
+        for (CreditCardBrand brand : CreditCardBrand.values()) {
+            if (brand.name().equalsIgnoreCase(section)) {
+                return brand;
+            }
+        }
+        return null;
+    }
+
+    // Mesmos rótulos das mensagens das estratégias embutidas
+    private static String defaultLabel(CreditCardBrand brand) {
+        return switch (brand) {
+            case VISA -> "Visa";
+            case MASTERCARD -> "MasterCard";
+            case AMEX -> "Amex";
+        };
+    }
+
+    private static String required(Properties properties, String key) {
+        String value = properties.getProperty(key);
+        if (value == null || value.isBlank()) {
+            throw new IllegalArgumentException("chave obrigatória ausente '" + key + "'");
+        }
+        return value;
+    }
+
+    private static List<String> split(String value) {
+        return Arrays.stream(value.split(",")).map(String::trim).filter(s -> !s.isEmpty()).toList();
+    }
+
+    private static String describe(Map<CreditCardBrand, RuleBasedBrandStrategy> rules) {
+        if (rules.isEmpty()) {
+            return "nenhuma seção, regras embutidas";
+        }
+        StringBuilder sb = new StringBuilder();
+        rules.forEach((brand, strategy) -> sb.append(sb.isEmpty() ? "" : ", ").append(brand)
+                .append(" tarifa=").append(strategy.getFeeRate()));
+        return sb.toString();
+    }
+
+    private void count(String result) {
+        meterRegistry.counter("cards.rules.reloads", "result", result).increment();
+    }
+}
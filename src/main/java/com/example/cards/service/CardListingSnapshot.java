@@ -0,0 +1,11 @@
+package com.example.cards.service;
+
+import java.util.List;
+
+import com.example.cards.domain.CreditCard;
+
+/**
+ * Fotografia imutável da listagem de cartões em uma determinada versão dos buffers.
+ */
+public record CardListingSnapshot(long version, String etag, List<CreditCard> cards) {
+}
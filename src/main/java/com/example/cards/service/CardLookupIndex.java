@@ -0,0 +1,408 @@
+package com.example.cards.service;
+
+import com.example.cards.domain.CreditCard;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.locks.StampedLock;
+import java.util.function.LongConsumer;
+import java.util.regex.Pattern;
+
+/**
+ * Índice em memória dos cartões cadastrados mais recentes, para consulta por ID,
+ * por hash do PAN e por prefixo do nome do titular.
+ *
+ * Os cartões ficam num anel de capacidade fixa, endereçado por um número de sequência
+ * (posição = sequência % capacidade). ID e hash do PAN apontam para a sequência em tabelas
+ * de endereçamento aberto sobre arrays long, sem objetos por entrada. Os nomes normalizados
+ * ficam num array ordenado, mais um delta pequeno não ordenado que é intercalado ao array
+ * principal quando enche. Entradas de cartões que saíram do anel são ignoradas na leitura
+ * e descartadas na intercalação seguinte.
+ */
+@Component
+public class CardLookupIndex {
+
+    private static final int MIN_DELTA = 1024;
+    private static final Pattern MARKS = Pattern.compile("\\p{M}+");
+    private static final Pattern SPACES = Pattern.compile("\\s+");
+    private static final HexFormat HEX = HexFormat.of();
+
+    private static final ThreadLocal<MessageDigest> SHA256 = ThreadLocal.withInitial(() -> {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    });
+
+    private final StampedLock lock = new StampedLock();
+    private final int capacity;
+
+    // Anel: cartão, sequência e hash do PAN (64 bits iniciais) de cada posição
+    private final CreditCard[] cards;
+    private final long[] sequences;
+    private final long[] panHashes;
+    private long nextSequence;
+
+    private final LongMultiTable byId;
+    private final LongMultiTable byPanHash;
+
+    // Nomes: base ordenada (substituída inteira na intercalação) e delta na ordem de chegada
+    private NameRun base = new NameRun(new String[0], new long[0], 0);
+    private NameRun merging;
+    private String[] deltaNames;
+    private long[] deltaSequences;
+    private int deltaSize;
+
+    public CardLookupIndex(@Value("${cards.lookup.capacity:262144}") int capacity) {
+        this.capacity = capacity;
+        this.cards = new CreditCard[capacity];
+        this.sequences = new long[capacity];
+        Arrays.fill(sequences, -1);
+        this.panHashes = new long[capacity];
+        this.byId = new LongMultiTable(capacity);
+        this.byPanHash = new LongMultiTable(capacity);
+        int deltaCapacity = Math.max(MIN_DELTA, (int) Math.sqrt(capacity) * 4);
+        this.deltaNames = new String[deltaCapacity];
+        this.deltaSequences = new long[deltaCapacity];
+    }
+
+    public void add(CreditCard card) {
+        long panHash = panHashPrefix(sha256(card.getNumber()));
+        String name = normalizeName(card.getHolderName());
+        NameRun toMerge = null;
+
+        long stamp = lock.writeLock();
+        try {
+            long sequence = nextSequence++;
+            int slot = (int) (sequence % capacity);
+            if (sequences[slot] >= 0) {
+                // Cartão mais antigo sai do anel
+                byId.remove(cards[slot].getId(), sequences[slot]);
+                byPanHash.remove(panHashes[slot], sequences[slot]);
+            }
+            cards[slot] = card;
+            sequences[slot] = sequence;
+            panHashes[slot] = panHash;
+            byId.put(card.getId(), sequence);
+            byPanHash.put(panHash, sequence);
+
+            deltaNames[deltaSize] = name;
+            deltaSequences[deltaSize] = sequence;
+            deltaSize++;
+            if (deltaSize == deltaNames.length) {
+                if (merging == null) {
+                    // O delta cheio é congelado e intercalado fora do lock
+                    merging = new NameRun(deltaNames, deltaSequences, deltaSize);
+                    toMerge = merging;
+                    deltaNames = new String[deltaNames.length];
+                    deltaSequences = new long[deltaSequences.length];
+                    deltaSize = 0;
+                } else {
+                    // Intercalação anterior ainda em andamento: o delta cresce até ela terminar
+                    deltaNames = Arrays.copyOf(deltaNames, deltaNames.length * 2);
+                    deltaSequences = Arrays.copyOf(deltaSequences, deltaSequences.length * 2);
+                }
+            }
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+
+        if (toMerge != null) {
+            merge(toMerge);
+        }
+    }
+
+    public CreditCard findById(long id) {
+        long stamp = lock.readLock();
+        try {
+            long sequence = byId.first(id);
+            return sequence >= 0 ? cardAt(sequence) : null;
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    /** Cartões cujo número normalizado tem o SHA-256 informado (hex), do mais recente ao mais antigo */
+    public List<CreditCard> findByPanHash(String sha256Hex) {
+        byte[] hash = HEX.parseHex(sha256Hex.trim().toLowerCase(Locale.ROOT));
+        if (hash.length != 32) {
+            throw new IllegalArgumentException("Hash do PAN deve ser o SHA-256 em hexadecimal (64 caracteres)");
+        }
+        List<CreditCard> candidates = new ArrayList<>();
+        long stamp = lock.readLock();
+        try {
+            byPanHash.forEach(panHashPrefix(hash), sequence -> {
+                CreditCard card = cardAt(sequence);
+                if (card != null) {
+                    candidates.add(card);
+                }
+            });
+        } finally {
+            lock.unlockRead(stamp);
+        }
+        // Os 64 bits do índice podem colidir: confirma o hash completo fora do lock
+        List<CreditCard> result = new ArrayList<>(candidates.size());
+        for (CreditCard card : candidates) {
+            if (MessageDigest.isEqual(hash, sha256(card.getNumber()))) {
+                result.add(card);
+            }
+        }
+        result.sort((a, b) -> Long.compare(b.getId(), a.getId()));
+        return result;
+    }
+
+    /** Cartões cujo titular começa com o prefixo (sem diferenciar maiúsculas, acentos e espaços repetidos) */
+    public List<CreditCard> findByHolderPrefix(String prefix, int limit) {
+        String normalized = normalizeName(prefix);
+        if (normalized.isEmpty()) {
+            throw new IllegalArgumentException("Prefixo do titular é obrigatório");
+        }
+        List<CreditCard> result = new ArrayList<>(Math.min(limit, 64));
+        long stamp = lock.readLock();
+        try {
+            // Delta primeiro: são os cadastros mais recentes
+            for (int i = deltaSize - 1; i >= 0 && result.size() < limit; i--) {
+                collect(deltaNames[i], deltaSequences[i], normalized, result);
+            }
+            if (merging != null) {
+                for (int i = merging.size - 1; i >= 0 && result.size() < limit; i--) {
+                    collect(merging.names[i], merging.sequences[i], normalized, result);
+                }
+            }
+            NameRun sorted = base;
+            for (int i = sorted.lowerBound(normalized); i < sorted.size && result.size() < limit; i++) {
+                if (!sorted.names[i].startsWith(normalized)) {
+                    break;
+                }
+                CreditCard card = cardAt(sorted.sequences[i]);
+                if (card != null) {
+                    result.add(card);
+                }
+            }
+        } finally {
+            lock.unlockRead(stamp);
+        }
+        return result;
+    }
+
+    public static String panHashHex(String number) {
+        return HEX.formatHex(sha256(number));
+    }
+
+    private void collect(String name, long sequence, String prefix, List<CreditCard> result) {
+        if (name.startsWith(prefix)) {
+            CreditCard card = cardAt(sequence);
+            if (card != null) {
+                result.add(card);
+            }
+        }
+    }
+
+    private CreditCard cardAt(long sequence) {
+        int slot = (int) (sequence % capacity);
+        return sequences[slot] == sequence ? cards[slot] : null;
+    }
+
+    private void merge(NameRun frozen) {
+        // Ordena uma cópia do delta congelado (leitores ainda percorrem o original)
+        // e intercala com a base, sem segurar o lock de escrita
+        NameRun delta = sorted(Arrays.copyOf(frozen.names, frozen.size),
+                               Arrays.copyOf(frozen.sequences, frozen.size), frozen.size);
+
+        long stamp = lock.readLock();
+        NameRun current;
+        long oldest;
+        try {
+            current = base;
+            oldest = nextSequence - capacity;
+        } finally {
+            lock.unlockRead(stamp);
+        }
+
+        String[] names = new String[current.size + delta.size];
+        long[] seqs = new long[names.length];
+        int n = 0;
+        int i = 0;
+        int j = 0;
+        while (i < current.size || j < delta.size) {
+            boolean takeBase = j == delta.size
+                    || (i < current.size && current.names[i].compareTo(delta.names[j]) <= 0);
+            String name = takeBase ? current.names[i] : delta.names[j];
+            long sequence = takeBase ? current.sequences[i++] : delta.sequences[j++];
+            // Cartões que já saíram do anel não entram na nova base
+            if (sequence >= oldest) {
+                names[n] = name;
+                seqs[n] = sequence;
+                n++;
+            }
+        }
+
+        stamp = lock.writeLock();
+        try {
+            base = new NameRun(names, seqs, n);
+            merging = null;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    /** Merge sort iterativo dos arrays paralelos de nomes e sequências */
+    private static NameRun sorted(String[] names, long[] seqs, int size) {
+        String[] otherNames = new String[size];
+        long[] otherSeqs = new long[size];
+        for (int width = 1; width < size; width <<= 1) {
+            for (int lo = 0; lo < size; lo += width << 1) {
+                int mid = Math.min(lo + width, size);
+                int hi = Math.min(lo + (width << 1), size);
+                int i = lo;
+                int j = mid;
+                for (int k = lo; k < hi; k++) {
+                    if (j >= hi || (i < mid && names[i].compareTo(names[j]) <= 0)) {
+                        otherNames[k] = names[i];
+                        otherSeqs[k] = seqs[i++];
+                    } else {
+                        otherNames[k] = names[j];
+                        otherSeqs[k] = seqs[j++];
+                    }
+                }
+            }
+            String[] swapNames = names;
+            names = otherNames;
+            otherNames = swapNames;
+            long[] swapSeqs = seqs;
+            seqs = otherSeqs;
+            otherSeqs = swapSeqs;
+        }
+        return new NameRun(names, seqs, size);
+    }
+
+    static String normalizeName(String name) {
+        if (name == null) {
+            return "";
+        }
+        String stripped = MARKS.matcher(Normalizer.normalize(name, Normalizer.Form.NFD)).replaceAll("");
+        return SPACES.matcher(stripped.trim()).replaceAll(" ").toLowerCase(Locale.ROOT);
+    }
+
+    private static byte[] sha256(String number) {
+        return SHA256.get().digest(number.getBytes(StandardCharsets.US_ASCII));
+    }
+
+    private static long panHashPrefix(byte[] hash) {
+        long h = 0;
+        for (int i = 0; i < Long.BYTES; i++) {
+            h = (h << 8) | (hash[i] & 0xFF);
+        }
+        return h;
+    }
+
+    /** Trecho de nomes com a sequência do cartão de cada um */
+    private record NameRun(String[] names, long[] sequences, int size) {
+
+        int lowerBound(String key) {
+            int lo = 0;
+            int hi = size;
+            while (lo < hi) {
+                int mid = (lo + hi) >>> 1;
+                if (names[mid].compareTo(key) < 0) {
+                    lo = mid + 1;
+                } else {
+                    hi = mid;
+                }
+            }
+            return lo;
+        }
+    }
+
+    /**
+     * Tabela hash long → sequência com endereçamento aberto e sondagem linear, aceitando
+     * chaves repetidas. Remoção por deslocamento para trás, sem marcadores de remoção.
+     * Dimensionada para no máximo metade das posições ocupadas.
+     */
+    private static final class LongMultiTable {
+
+        private static final long EMPTY = -1;
+
+        private final long[] keys;
+        private final long[] values;
+        private final int mask;
+
+        LongMultiTable(int maxEntries) {
+            int size = Integer.highestOneBit(Math.max(2, maxEntries) * 2 - 1) * 2;
+            this.keys = new long[size];
+            this.values = new long[size];
+            this.mask = size - 1;
+            Arrays.fill(values, EMPTY);
+        }
+
+        void put(long key, long value) {
+            int i = home(key);
+            while (values[i] != EMPTY) {
+                i = (i + 1) & mask;
+            }
+            keys[i] = key;
+            values[i] = value;
+        }
+
+        /** Maior valor (cartão mais recente) da chave, ou -1 */
+        long first(long key) {
+            long found = EMPTY;
+            for (int i = home(key); values[i] != EMPTY; i = (i + 1) & mask) {
+                if (keys[i] == key && values[i] > found) {
+                    found = values[i];
+                }
+            }
+            return found;
+        }
+
+        void forEach(long key, LongConsumer consumer) {
+            for (int i = home(key); values[i] != EMPTY; i = (i + 1) & mask) {
+                if (keys[i] == key) {
+                    consumer.accept(values[i]);
+                }
+            }
+        }
+
+        void remove(long key, long value) {
+            int i = home(key);
+            while (values[i] != EMPTY && !(keys[i] == key && values[i] == value)) {
+                i = (i + 1) & mask;
+            }
+            if (values[i] == EMPTY) {
+                return;
+            }
+            // Puxa para a posição livre as entradas seguintes cuja posição de origem não está entre elas
+            int j = i;
+            while (true) {
+                j = (j + 1) & mask;
+                if (values[j] == EMPTY) {
+                    break;
+                }
+                int h = home(keys[j]);
+                boolean movable = i <= j ? (h <= i || h > j) : (h <= i && h > j);
+                if (movable) {
+                    keys[i] = keys[j];
+                    values[i] = values[j];
+                    i = j;
+                }
+            }
+            values[i] = EMPTY;
+        }
+
+        private int home(long key) {
+            long h = key * 0x9E3779B97F4A7C15L;
+            return (int) (h ^ (h >>> 32)) & mask;
+        }
+    }
+}
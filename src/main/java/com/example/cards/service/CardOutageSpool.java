@@ -0,0 +1,312 @@
+package com.example.cards.service;
+
+import com.example.cards.config.CardBreakerProperties;
+import com.example.cards.domain.CreditCard;
+import com.example.cards.domain.CreditCardBrand;
+import com.example.cards.domain.CreditCardJsonCodec;
+import com.example.cards.domain.PreSerializedCreditCard;
+import com.example.cards.domain.ReceivedCreditCard;
+
+import com.example.cards.domain.crypto.PanEnvelope;
+
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.stereotype.Component;
+
+import tools.jackson.databind.JsonNode;
+import tools.jackson.databind.json.JsonMapper;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+import javax.crypto.SecretKey;
+
+/**
+ * Spool local dos lotes desviados com o circuito de envio aberto, em segmentos NDJSON por bandeira
+ * (&lt;spool-dir&gt;/&lt;bandeira&gt;/&lt;sequência&gt;.ndjson), gravados com fsync antes de confirmar.
+ * Com a cifragem habilitada, cada lote é gravado com o número cifrado e precedido da linha "#dek"
+ * do seu envelope, como no {@link com.example.cards.sink.FileCardSink}; lotes em claro são precedidos de "#plain".
+ *
+ * A leitura consome o segmento mais antigo em ordem; ele só é apagado depois de lido por inteiro
+ * e confirmado com {@link #commit}. A posição de leitura fica apenas em memória: após um reinício,
+ * o segmento em leitura é reenviado desde o início (pode haver cartões em duplicidade).
+ * Segmentos encontrados na inicialização voltam a ser drenados.
+ */
+@Component
+public class CardOutageSpool implements DisposableBean {
+
+    private static final org.slf4j.Logger log = org.slf4j.LoggerFactory.getLogger(CardOutageSpool.class);
+
+    private static final String SEGMENT_SUFFIX = ".ndjson";
+    private static final byte[] PLAIN_LINE = "#plain".getBytes(StandardCharsets.US_ASCII);
+
+    private final long segmentSize;
+    private final JsonMapper jsonMapper;
+    private final CardPanEncryption panEncryption;
+    private final BrandSpool[] spools = new BrandSpool[CreditCardBrand.values().length];
+
+    public CardOutageSpool(CardBreakerProperties properties, JsonMapper jsonMapper, CardPanEncryption panEncryption) {
+        this.segmentSize = properties.getSegmentSize().toBytes();
+        this.jsonMapper = jsonMapper;
+        this.panEncryption = panEncryption;
+        Path baseDir = Path.of(properties.getSpoolDir());
+        for (CreditCardBrand brand : CreditCardBrand.values()) {
+            spools[brand.ordinal()] = new BrandSpool(brand, baseDir.resolve(brand.name().toLowerCase(Locale.ROOT)));
+        }
+    }
+
+    /** Grava o lote no segmento atual da bandeira; retorna depois do fsync */
+    public void append(CreditCardBrand brand, List<CreditCard> batch) {
+        spools[brand.ordinal()].append(batch);
+    }
+
+    /**
+     * Lê até max cartões a partir da posição de leitura, sem consumi-los.
+     * Retorna uma leitura vazia se não houver nada gravado.
+     */
+    public Read read(CreditCardBrand brand, int max) {
+        return spools[brand.ordinal()].read(max);
+    }
+
+    /** Confirma o envio de uma leitura; o segmento é apagado quando termina */
+    public void commit(CreditCardBrand brand, Read read) {
+        spools[brand.ordinal()].commit(read);
+    }
+
+    /** Bytes gravados e ainda não confirmados da bandeira */
+    public long getPendingBytes(CreditCardBrand brand) {
+        return spools[brand.ordinal()].pendingBytes.get();
+    }
+
+    public boolean isEmpty(CreditCardBrand brand) {
+        return getPendingBytes(brand) == 0;
+    }
+
+    @Override
+    public void destroy() {
+        for (BrandSpool spool : spools) {
+            spool.closeWriter();
+        }
+    }
+
+    /**
+     * Cartões lidos de um segmento, a posição logo após o último e o lote em curso nessa posição:
+     * se é cifrado e a sua chave (null se em claro ou se a chave não pôde ser aberta)
+     */
+    public record Read(List<CreditCard> cards, Path segment, int endPosition, int bytes,
+                       boolean sealed, SecretKey dataKey) {
+    }
+
+    private final class BrandSpool {
+
+        private final CreditCardBrand brand;
+        private final Path dir;
+        private final AtomicLong pendingBytes = new AtomicLong();
+
+        // Segmentos completos, do mais antigo ao mais novo; o último pode ser o de gravação
+        private final Deque<Path> segments = new ArrayDeque<>();
+        private long nextSequence = 1;
+
+        private FileChannel writer;
+        private Path writerSegment;
+        private long writerBytes;
+
+        private Path readSegment;
+        private byte[] readData;
+        private int readPosition;
+        // Lote em curso na posição de leitura
+        private boolean readSealed;
+        private SecretKey readDataKey;
+
+        BrandSpool(CreditCardBrand brand, Path dir) {
+            this.brand = brand;
+            this.dir = dir;
+            recover();
+        }
+
+        private void recover() {
+            if (!Files.isDirectory(dir)) {
+                return;
+            }
+            try (Stream<Path> files = Files.list(dir)) {
+                files.filter(path -> sequenceOf(path) > 0)
+                        .sorted((a, b) -> Long.compare(sequenceOf(a), sequenceOf(b)))
+                        .forEach(segments::addLast);
+                for (Path segment : segments) {
+                    pendingBytes.addAndGet(Files.size(segment));
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException("Falha ao ler o spool da bandeira " + brand + " em " + dir, e);
+            }
+            if (!segments.isEmpty()) {
+                nextSequence = sequenceOf(segments.peekLast()) + 1;
+                log.warn("### {} bytes pendentes no spool da bandeira {} serão reenviados", pendingBytes.get(), brand);
+            }
+        }
+
+        synchronized void append(List<CreditCard> batch) {
+            PanEnvelope panEnvelope = panEncryption.isEnabled() ? panEncryption.newEnvelope() : null;
+            byte[] header = panEnvelope == null ? PLAIN_LINE
+                    : panEncryption.dataKeyLine(panEnvelope).getBytes(StandardCharsets.US_ASCII);
+            int length = header.length + 1;
+            byte[][] lines = new byte[batch.size()][];
+            for (int i = 0; i < lines.length; i++) {
+                CreditCard card = batch.get(i);
+                if (panEnvelope != null) {
+                    card = panEncryption.seal(panEnvelope, card);
+                }
+                lines[i] = card instanceof PreSerializedCreditCard preSerialized
+                        ? preSerialized.getPayload()
+                        : CreditCardJsonCodec.encode(card);
+                length += lines[i].length + 1;
+            }
+            ByteBuffer buffer = ByteBuffer.allocate(length);
+            buffer.put(header).put((byte) '\n');
+            for (byte[] line : lines) {
+                buffer.put(line).put((byte) '\n');
+            }
+            buffer.flip();
+            try {
+                if (writer == null || writerBytes >= segmentSize) {
+                    openNextSegment();
+                }
+                while (buffer.hasRemaining()) {
+                    writer.write(buffer);
+                }
+                writer.force(false);
+                writerBytes += length;
+                pendingBytes.addAndGet(length);
+            } catch (IOException e) {
+                // O segmento pode ter ficado com um lote parcial; o próximo lote vai para outro
+                closeWriter();
+                throw new UncheckedIOException("Falha ao gravar no spool da bandeira " + brand, e);
+            }
+        }
+
+        synchronized Read read(int max) {
+            if (readSegment == null) {
+                Path oldest = segments.peekFirst();
+                if (oldest == null) {
+                    return new Read(List.of(), null, 0, 0, false, null);
+                }
+                if (oldest.equals(writerSegment)) {
+                    // Fecha o segmento em gravação para lê-lo; os próximos lotes vão para um novo
+                    closeWriter();
+                }
+                try {
+                    readData = Files.readAllBytes(oldest);
+                } catch (IOException e) {
+                    throw new UncheckedIOException("Falha ao ler o segmento " + oldest, e);
+                }
+                readSegment = oldest;
+                readPosition = 0;
+                readSealed = false;
+                readDataKey = null;
+            }
+            List<CreditCard> cards = new ArrayList<>(Math.min(max, 1024));
+            int pos = readPosition;
+            boolean sealed = readSealed;
+            SecretKey dataKey = readDataKey;
+            while (cards.size() < max && pos < readData.length) {
+                int end = pos;
+                while (end < readData.length && readData[end] != '\n') {
+                    end++;
+                }
+                if (end > pos) {
+                    try {
+                        if (readData[pos] == '#') {
+                            String line = new String(readData, pos, end - pos, StandardCharsets.US_ASCII);
+                            sealed = line.startsWith(CardPanEncryption.DATA_KEY_LINE_PREFIX);
+                            dataKey = null;
+                            // Sem a chave, os cartões do lote são descartados em vez de lidos como em claro
+                            dataKey = sealed ? panEncryption.openDataKeyLine(line) : null;
+                        } else if (sealed && dataKey == null) {
+                            throw new IllegalStateException("chave do lote cifrado indisponível");
+                        } else {
+                            cards.add(parse(readData, pos, end - pos, dataKey));
+                        }
+                    } catch (RuntimeException e) {
+                        log.error("Linha inválida descartada do segmento {}: {}", readSegment, e.getMessage());
+                    }
+                }
+                pos = Math.min(readData.length, end + 1);
+            }
+            return new Read(cards, readSegment, pos, pos - readPosition, sealed, dataKey);
+        }
+
+        synchronized void commit(Read read) {
+            if (read.segment() == null || !read.segment().equals(readSegment)) {
+                return;
+            }
+            readPosition = read.endPosition();
+            readSealed = read.sealed();
+            readDataKey = read.dataKey();
+            pendingBytes.addAndGet(-read.bytes());
+            if (readPosition >= readData.length) {
+                try {
+                    Files.deleteIfExists(readSegment);
+                } catch (IOException e) {
+                    log.warn("Falha ao apagar o segmento drenado {}", readSegment, e);
+                }
+                segments.remove(readSegment);
+                readSegment = null;
+                readData = null;
+            }
+        }
+
+        private CreditCard parse(byte[] data, int offset, int length, SecretKey dataKey) {
+            JsonNode node = jsonMapper.readTree(data, offset, length);
+            long id = node.path("id").asLong();
+            String number = node.path("number").asString();
+            if (dataKey != null) {
+                number = panEncryption.unseal(dataKey, id, number);
+            }
+            return new ReceivedCreditCard(id, node.path("uuid").asString(),
+                    node.path("holderName").asString(), number,
+                    CreditCardBrand.valueOf(node.path("brand").asString()));
+        }
+
+        private void openNextSegment() throws IOException {
+            closeWriter();
+            Files.createDirectories(dir);
+            writerSegment = dir.resolve(String.format("%020d%s", nextSequence++, SEGMENT_SUFFIX));
+            writer = FileChannel.open(writerSegment, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+            writerBytes = 0;
+            segments.addLast(writerSegment);
+        }
+
+        synchronized void closeWriter() {
+            if (writer == null) {
+                return;
+            }
+            try {
+                writer.close();
+            } catch (IOException e) {
+                log.warn("Erro ao fechar o segmento {}", writerSegment, e);
+            }
+            writer = null;
+            writerSegment = null;
+        }
+    }
+
+    private static long sequenceOf(Path path) {
+        String name = path.getFileName().toString();
+        if (!name.endsWith(SEGMENT_SUFFIX)) {
+            return -1;
+        }
+        String digits = name.substring(0, name.length() - SEGMENT_SUFFIX.length());
+        return !digits.isEmpty() && digits.chars().allMatch(Character::isDigit) ? Long.parseLong(digits) : -1;
+    }
+}
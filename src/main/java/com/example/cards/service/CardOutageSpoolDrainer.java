@@ -0,0 +1,99 @@
+package com.example.cards.service;
+
+import com.example.cards.config.CardBreakerProperties;
+import com.example.cards.domain.CreditCard;
+import com.example.cards.domain.CreditCardBrand;
+import com.example.cards.domain.KafkaTopicStrategyProvider;
+
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Reenvia o spool local de cada bandeira enquanto o seu circuito de envio está fechado
+ * (ou como lote de teste, quando o circuito aberto já pode ser testado),
+ * limitado a drain-rate cartões por segundo para não atrasar os lotes do tráfego normal.
+ * Cada bandeira tem no máximo um lote do spool em envio; cartões que falharem voltam ao fim do spool.
+ */
+@Component
+public class CardOutageSpoolDrainer {
+
+    private static final org.slf4j.Logger log = org.slf4j.LoggerFactory.getLogger(CardOutageSpoolDrainer.class);
+
+    private final CardOutageSpool outageSpool;
+    private final CardPublishCircuitBreaker circuitBreaker;
+    private final CreditCardBatchProcessor batchProcessor;
+    private final KafkaTopicStrategyProvider topicStrategyProvider;
+    private final double drainRate;
+
+    private final AtomicBoolean[] inFlight = new AtomicBoolean[CreditCardBrand.values().length];
+    // Balde de fichas por bandeira; só acessado pela thread do agendamento
+    private final double[] tokens = new double[CreditCardBrand.values().length];
+    private final long[] lastRefill = new long[CreditCardBrand.values().length];
+
+    public CardOutageSpoolDrainer(CardOutageSpool outageSpool,
+                                  CardPublishCircuitBreaker circuitBreaker,
+                                  CreditCardBatchProcessor batchProcessor,
+                                  KafkaTopicStrategyProvider topicStrategyProvider,
+                                  CardBreakerProperties properties) {
+        this.outageSpool = outageSpool;
+        this.circuitBreaker = circuitBreaker;
+        this.batchProcessor = batchProcessor;
+        this.topicStrategyProvider = topicStrategyProvider;
+        this.drainRate = Math.max(1, properties.getDrainRate());
+        long now = System.nanoTime();
+        for (int i = 0; i < inFlight.length; i++) {
+            inFlight[i] = new AtomicBoolean();
+            lastRefill[i] = now;
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${cards.breaker.drain-interval:1s}")
+    public void drain() {
+        for (CreditCardBrand brand : CreditCardBrand.values()) {
+            try {
+                drain(brand);
+            } catch (RuntimeException e) {
+                log.error("Erro ao drenar o spool da bandeira {}", brand, e);
+            }
+        }
+    }
+
+    private void drain(CreditCardBrand brand) {
+        int i = brand.ordinal();
+        long now = System.nanoTime();
+        tokens[i] = Math.min(drainRate, tokens[i] + drainRate * (now - lastRefill[i]) / 1e9);
+        lastRefill[i] = now;
+
+        if (outageSpool.isEmpty(brand) || inFlight[i].get() || !circuitBreaker.allowsDrain(brand)) {
+            return;
+        }
+        int max = (int) Math.min(tokens[i], topicStrategyProvider.getPipelineSettings(brand).flushSize());
+        if (max < 1) {
+            return;
+        }
+        CardOutageSpool.Read read = outageSpool.read(brand, max);
+        if (read.cards().isEmpty()) {
+            outageSpool.commit(brand, read);
+            return;
+        }
+        // Se o circuito abriu de novo, o publish devolve o lote ao fim do spool
+        tokens[i] -= read.cards().size();
+        inFlight[i].set(true);
+        batchProcessor.publish(brand, read.cards()).whenComplete((failed, ex) -> {
+            try {
+                List<CreditCard> notSent = failed != null ? failed : read.cards();
+                if (!notSent.isEmpty()) {
+                    batchProcessor.spool(brand, notSent);
+                }
+                outageSpool.commit(brand, read);
+                log.info("### {} cartões da bandeira {} reenviados do spool ({} bytes restantes)",
+                         read.cards().size() - notSent.size(), brand, outageSpool.getPendingBytes(brand));
+            } finally {
+                inFlight[i].set(false);
+            }
+        });
+    }
+}
@@ -0,0 +1,88 @@
+package com.example.cards.service;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.Base64;
+
+import javax.crypto.SecretKey;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.example.cards.domain.CreditCard;
+import com.example.cards.domain.EncryptedPanCreditCard;
+import com.example.cards.domain.PreSerializedCreditCard;
+import com.example.cards.domain.crypto.MasterKey;
+import com.example.cards.domain.crypto.PanEnvelope;
+
+/**
+ * Cifragem dos números de cartão enviados ao Kafka (cards.encryption.*).
+ * Cada lote recebe um {@link PanEnvelope} com chave de dados própria.
+ * Em arquivos locais, o lote cifrado é precedido da linha {@link #dataKeyLine}.
+ */
+@Component
+public class CardPanEncryption {
+
+    /** Início da linha com a chave de dados de um lote gravado em arquivo */
+    public static final String DATA_KEY_LINE_PREFIX = "#dek ";
+
+    private static final org.slf4j.Logger log = org.slf4j.LoggerFactory.getLogger(CardPanEncryption.class);
+
+    private final MasterKey masterKey;
+
+    public CardPanEncryption(@Value("${cards.encryption.enabled:false}") boolean enabled,
+                             @Value("${cards.encryption.master-key-file:data/keys/master.key}") String masterKeyFile,
+                             @Value("${cards.encryption.create-master-key:false}") boolean createMasterKey) {
+        this.masterKey = enabled ? MasterKey.load(Path.of(masterKeyFile), createMasterKey) : null;
+        if (enabled) {
+            log.info("### Números de cartão cifrados por lote com a chave mestra {}", masterKey.getId());
+        }
+    }
+
+    public boolean isEnabled() {
+        return masterKey != null;
+    }
+
+    public PanEnvelope newEnvelope() {
+        return PanEnvelope.forNewBatch(masterKey);
+    }
+
+    /**
+     * Cópia do cartão com o número cifrado, já codificada em JSON. Cartões pré-serializados
+     * são recodificados, já que o JSON do cadastro tem o número em claro.
+     */
+    public CreditCard seal(PanEnvelope envelope, CreditCard card) {
+        CreditCard plain = card instanceof PreSerializedCreditCard preSerialized ? preSerialized.getCard() : card;
+        String token = envelope.encrypt(plain.getId(), plain.getNumber());
+        return PreSerializedCreditCard.of(new EncryptedPanCreditCard(plain, token));
+    }
+
+    /** Linha "#dek &lt;chave do lote em base64&gt; &lt;id da chave mestra&gt;" que precede o lote num arquivo */
+    public String dataKeyLine(PanEnvelope envelope) {
+        return DATA_KEY_LINE_PREFIX + Base64.getEncoder().encodeToString(envelope.getWrappedKey()) + " "
+                + new String(envelope.getMasterKeyId(), StandardCharsets.US_ASCII);
+    }
+
+    /**
+     * Chave de dados de uma linha gravada por {@link #dataKeyLine}.
+     * Falha se a cifragem estiver desligada ou se o lote foi cifrado com outra chave mestra.
+     */
+    public SecretKey openDataKeyLine(String line) {
+        String[] fields = line.substring(DATA_KEY_LINE_PREFIX.length()).trim().split(" ");
+        if (fields.length != 2) {
+            throw new IllegalArgumentException("Linha de chave de dados inválida");
+        }
+        if (masterKey == null) {
+            throw new IllegalStateException("Lote com número cifrado, mas a cifragem (cards.encryption.enabled) está desligada");
+        }
+        if (!masterKey.getId().equals(fields[1])) {
+            throw new IllegalStateException("Lote cifrado com outra chave mestra: " + fields[1]);
+        }
+        return PanEnvelope.unwrapDataKey(masterKey, Base64.getDecoder().decode(fields[0]));
+    }
+
+    /** Número em claro de um token gerado por {@link #seal} */
+    public String unseal(SecretKey dataKey, long cardId, String token) {
+        return PanEnvelope.decrypt(dataKey, cardId, token);
+    }
+}
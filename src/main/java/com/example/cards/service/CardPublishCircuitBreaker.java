@@ -0,0 +1,171 @@
+package com.example.cards.service;
+
+import com.example.cards.config.CardBreakerProperties;
+import com.example.cards.domain.CreditCard;
+import com.example.cards.domain.CreditCardBrand;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Circuito de proteção do envio de cada bandeira.
+ *
+ * Fechado, os lotes seguem para o destino. Depois de failure-threshold lotes seguidos com falha
+ * ou sem confirmação em call-timeout, o circuito abre e os lotes vão para o {@link CardOutageSpool}
+ * sem esperar o broker. Passado open-duration, um único lote de teste é enviado (meio aberto):
+ * se confirmado, o circuito fecha e o spool é drenado; senão, abre de novo.
+ * Estados em cards.breaker.state (0 fechado, 1 aberto, 2 meio aberto) e transições em
+ * cards.breaker.transitions.
+ */
+@Component
+public class CardPublishCircuitBreaker {
+
+    private static final org.slf4j.Logger log = org.slf4j.LoggerFactory.getLogger(CardPublishCircuitBreaker.class);
+
+    public enum State {
+        CLOSED, OPEN, HALF_OPEN
+    }
+
+    private final boolean enabled;
+    private final int failureThreshold;
+    private final long callTimeoutNanos;
+    private final long openNanos;
+    private final MeterRegistry meterRegistry;
+
+    private final AtomicReferenceArray<State> states = new AtomicReferenceArray<>(CreditCardBrand.values().length);
+    private final AtomicInteger[] consecutiveFailures = new AtomicInteger[CreditCardBrand.values().length];
+    private final AtomicLong[] openedAt = new AtomicLong[CreditCardBrand.values().length];
+
+    public CardPublishCircuitBreaker(CardBreakerProperties properties, CardOutageSpool spool, MeterRegistry meterRegistry) {
+        this.enabled = properties.isEnabled();
+        this.failureThreshold = Math.max(1, properties.getFailureThreshold());
+        this.callTimeoutNanos = properties.getCallTimeout().toNanos();
+        this.openNanos = properties.getOpenDuration().toNanos();
+        this.meterRegistry = meterRegistry;
+        for (CreditCardBrand brand : CreditCardBrand.values()) {
+            int i = brand.ordinal();
+            states.set(i, State.CLOSED);
+            consecutiveFailures[i] = new AtomicInteger();
+            openedAt[i] = new AtomicLong();
+            Gauge.builder("cards.breaker.state", () -> states.get(i).ordinal())
+                    .tag("brand", brand.name()).register(meterRegistry);
+            Gauge.builder("cards.breaker.spool.bytes", () -> spool.getPendingBytes(brand))
+                    .tag("brand", brand.name()).baseUnit("bytes").register(meterRegistry);
+        }
+        if (enabled) {
+            log.info("### Circuito de envio habilitado: abre após {} falhas seguidas ou lotes sem confirmação em {}",
+                     failureThreshold, properties.getCallTimeout());
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public State getState(CreditCardBrand brand) {
+        return states.get(brand.ordinal());
+    }
+
+    /**
+     * Se o lote pode seguir para o destino. Com o circuito aberto há mais de open-duration,
+     * libera apenas o primeiro lote, que passa a ser o teste.
+     */
+    public boolean tryAcquire(CreditCardBrand brand) {
+        if (!enabled) {
+            return true;
+        }
+        int i = brand.ordinal();
+        State state = states.get(i);
+        if (state == State.CLOSED) {
+            return true;
+        }
+        if (state == State.OPEN && System.nanoTime() - openedAt[i].get() >= openNanos
+                && transition(brand, State.OPEN, State.HALF_OPEN)) {
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Se o spool da bandeira pode ser reenviado: com o circuito fechado ou, aberto, quando já é hora
+     * do lote de teste, que então sai do próprio spool se não houver tráfego novo.
+     */
+    public boolean allowsDrain(CreditCardBrand brand) {
+        if (!enabled) {
+            return true;
+        }
+        int i = brand.ordinal();
+        State state = states.get(i);
+        return state == State.CLOSED
+                || (state == State.OPEN && System.nanoTime() - openedAt[i].get() >= openNanos);
+    }
+
+    /**
+     * Acompanha o lote liberado por {@link #tryAcquire}: conta como falha se algum cartão não for
+     * confirmado ou se a confirmação não chegar em call-timeout. Uma confirmação depois do prazo
+     * não desfaz a falha.
+     */
+    public void track(CreditCardBrand brand, CompletableFuture<List<CreditCard>> published) {
+        if (!enabled) {
+            return;
+        }
+        AtomicBoolean settled = new AtomicBoolean();
+        published.whenComplete((failed, ex) -> {
+            if (settled.compareAndSet(false, true)) {
+                if (ex == null && failed.isEmpty()) {
+                    onSuccess(brand);
+                } else {
+                    onFailure(brand);
+                }
+            }
+        });
+        published.copy().orTimeout(callTimeoutNanos, TimeUnit.NANOSECONDS).whenComplete((failed, ex) -> {
+            if (ex instanceof TimeoutException && settled.compareAndSet(false, true)) {
+                log.warn("Lote da bandeira {} sem confirmação no prazo; contado como falha", brand);
+                onFailure(brand);
+            }
+        });
+    }
+
+    private void onSuccess(CreditCardBrand brand) {
+        int i = brand.ordinal();
+        consecutiveFailures[i].set(0);
+        if (states.get(i) == State.HALF_OPEN) {
+            transition(brand, State.HALF_OPEN, State.CLOSED);
+        }
+    }
+
+    private void onFailure(CreditCardBrand brand) {
+        int i = brand.ordinal();
+        int failures = consecutiveFailures[i].incrementAndGet();
+        State state = states.get(i);
+        if (state == State.HALF_OPEN || (state == State.CLOSED && failures >= failureThreshold)) {
+            openedAt[i].set(System.nanoTime());
+            transition(brand, state, State.OPEN);
+        }
+    }
+
+    private boolean transition(CreditCardBrand brand, State from, State to) {
+        if (!states.compareAndSet(brand.ordinal(), from, to)) {
+            return false;
+        }
+        meterRegistry.counter("cards.breaker.transitions", "brand", brand.name(), "state", to.name()).increment();
+        if (to == State.OPEN) {
+            log.warn("### Circuito de envio da bandeira {} aberto; lotes vão para o spool local", brand);
+        } else {
+            log.info("### Circuito de envio da bandeira {}: {} -> {}", brand, from, to);
+        }
+        return true;
+    }
+}
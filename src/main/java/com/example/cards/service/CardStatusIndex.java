@@ -0,0 +1,185 @@
+package com.example.cards.service;
+
+import com.example.cards.domain.CardDeliveryStatus;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Arrays;
+
+/**
+ * Índice da situação de entrega dos cartões, por ID.
+ *
+ * Tabela hash de endereçamento aberto sobre arrays primitivos (chave long, situação em
+ * um byte e instante em segundos), dividida em segmentos com lock próprio. Não há
+ * objeto por cartão: o custo é fixo em 13 bytes por posição, com no máximo metade das
+ * posições ocupadas. Entradas vencidas (TTL) são descartadas; quando um segmento enche,
+ * o quarto mais antigo das entradas é removido.
+ */
+@Component
+public class CardStatusIndex {
+
+    private static final int SEGMENTS = 64;
+    private static final CardDeliveryStatus[] STATUSES = CardDeliveryStatus.values();
+
+    private final Segment[] segments = new Segment[SEGMENTS];
+    private final int ttlSeconds;
+    private final long baseMillis = System.currentTimeMillis();
+
+    public CardStatusIndex(@Value("${cards.status.capacity:1048576}") int capacity,
+                           @Value("${cards.status.ttl:10m}") Duration ttl) {
+        this.ttlSeconds = (int) Math.max(1, ttl.toSeconds());
+        int perSegment = Math.max(16, Integer.highestOneBit(Math.max(1, capacity / SEGMENTS) * 2 - 1) * 2);
+        for (int i = 0; i < SEGMENTS; i++) {
+            segments[i] = new Segment(perSegment);
+        }
+    }
+
+    /** Passa a acompanhar o cartão como QUEUED */
+    public void markQueued(long id) {
+        segmentFor(id).put(id, CardDeliveryStatus.QUEUED, now(), true);
+    }
+
+    public void markPublished(long id) {
+        segmentFor(id).put(id, CardDeliveryStatus.PUBLISHED, now(), false);
+    }
+
+    public void markFailed(long id) {
+        segmentFor(id).put(id, CardDeliveryStatus.FAILED, now(), false);
+    }
+
+    public void markSpooled(long id) {
+        segmentFor(id).put(id, CardDeliveryStatus.SPOOLED, now(), false);
+    }
+
+    /** Situação do cartão, ou null se desconhecido ou vencido */
+    public CardDeliveryStatus get(long id) {
+        return segmentFor(id).get(id, now() - ttlSeconds);
+    }
+
+    private int now() {
+        return (int) ((System.currentTimeMillis() - baseMillis) / 1000);
+    }
+
+    private Segment segmentFor(long id) {
+        return segments[(int) (mix(id) >>> 58)];
+    }
+
+    private static long mix(long h) {
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+
+    private final class Segment {
+
+        private long[] keys;
+        private byte[] states;
+        private int[] stamps;
+        private final int mask;
+        private final int maxSize;
+        private int size;
+
+        Segment(int capacity) {
+            this.keys = new long[capacity];
+            this.states = new byte[capacity];
+            this.stamps = new int[capacity];
+            this.mask = capacity - 1;
+            this.maxSize = capacity / 2;
+        }
+
+        synchronized void put(long id, CardDeliveryStatus status, int now, boolean insert) {
+            int slot = find(id);
+            if (keys[slot] == id) {
+                states[slot] = (byte) status.ordinal();
+                stamps[slot] = now;
+                return;
+            }
+            if (!insert) {
+                // Cartão já removido do índice; não volta a ser acompanhado
+                return;
+            }
+            if (size >= maxSize) {
+                makeRoom(now);
+                slot = find(id);
+            }
+            keys[slot] = id;
+            states[slot] = (byte) status.ordinal();
+            stamps[slot] = now;
+            size++;
+        }
+
+        synchronized CardDeliveryStatus get(long id, int expiredBefore) {
+            int slot = find(id);
+            if (keys[slot] != id || stamps[slot] < expiredBefore) {
+                return null;
+            }
+            return STATUSES[states[slot]];
+        }
+
+        /** Posição da chave, ou a posição vazia onde ela seria inserida */
+        private int find(long id) {
+            int slot = (int) mix(id) & mask;
+            while (keys[slot] != 0 && keys[slot] != id) {
+                slot = (slot + 1) & mask;
+            }
+            return slot;
+        }
+
+        private void makeRoom(int now) {
+            rebuild(now - ttlSeconds, 0);
+            if (size < maxSize) {
+                return;
+            }
+            // Nada vencido: descarta um quarto das entradas, as de instante mais antigo
+            int[] occupied = new int[size];
+            int n = 0;
+            for (int i = 0; i < keys.length; i++) {
+                if (keys[i] != 0) {
+                    occupied[n++] = stamps[i];
+                }
+            }
+            Arrays.sort(occupied);
+            int evict = Math.max(1, size / 4);
+            int cutoff = occupied[evict - 1];
+            // Entradas com o instante do corte: só as que faltam para completar a quantidade saem
+            int olderThanCutoff = 0;
+            while (occupied[olderThanCutoff] < cutoff) {
+                olderThanCutoff++;
+            }
+            rebuild(cutoff, evict - olderThanCutoff);
+        }
+
+        /**
+         * Reinsere as entradas com instante posterior a keepFrom e as com instante igual a keepFrom,
+         * menos as primeiras dropAtKeepFrom destas
+         */
+        private void rebuild(int keepFrom, int dropAtKeepFrom) {
+            long[] oldKeys = keys;
+            byte[] oldStates = states;
+            int[] oldStamps = stamps;
+            keys = new long[oldKeys.length];
+            states = new byte[oldKeys.length];
+            stamps = new int[oldKeys.length];
+            size = 0;
+            for (int i = 0; i < oldKeys.length; i++) {
+                if (oldKeys[i] == 0 || oldStamps[i] < keepFrom) {
+                    continue;
+                }
+                if (oldStamps[i] == keepFrom && dropAtKeepFrom > 0) {
+                    dropAtKeepFrom--;
+                    continue;
+                }
+                int slot = find(oldKeys[i]);
+                keys[slot] = oldKeys[i];
+                states[slot] = oldStates[i];
+                stamps[slot] = oldStamps[i];
+                size++;
+            }
+        }
+    }
+}
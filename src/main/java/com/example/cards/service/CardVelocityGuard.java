@@ -0,0 +1,149 @@
+package com.example.cards.service;
+
+import com.example.cards.config.CardVelocityProperties;
+import com.example.cards.domain.CreditCard;
+import com.example.cards.domain.CreditCardBrand;
+import com.example.cards.exception.VelocityLimitExceededException;
+
+import org.springframework.stereotype.Component;
+
+/**
+ * Verificação de velocidade de cadastros antes do enfileiramento: bloqueia o mesmo
+ * titular ou o mesmo BIN cadastrando cartões demais na janela configurada.
+ * As contagens ficam em count-min sketches de memória fixa, sem mapa por chave, um por
+ * bandeira e tipo de limite. A largura de cada sketch sai dos cadastros esperados na janela
+ * da bandeira e da superestimativa tolerada (max-error-ratio do limite); se o orçamento de
+ * memória não comportar essas larguras, a aplicação não sobe.
+ */
+@Component
+public class CardVelocityGuard {
+
+    private static final org.slf4j.Logger log = org.slf4j.LoggerFactory.getLogger(CardVelocityGuard.class);
+
+    private static final int BIN_LENGTH = 6;
+
+    private final boolean enabled;
+    // Por bandeira; null quando a bandeira não tem limite daquele tipo
+    private final SlidingWindowCountMinSketch[] holderSketches = new SlidingWindowCountMinSketch[CreditCardBrand.values().length];
+    private final SlidingWindowCountMinSketch[] binSketches = new SlidingWindowCountMinSketch[CreditCardBrand.values().length];
+    private final int[] maxPerHolder = new int[CreditCardBrand.values().length];
+    private final int[] maxPerBin = new int[CreditCardBrand.values().length];
+
+    public CardVelocityGuard(CardVelocityProperties properties) {
+        this.enabled = properties.isEnabled();
+        for (CreditCardBrand brand : CreditCardBrand.values()) {
+            maxPerHolder[brand.ordinal()] = properties.getMaxPerHolder().getOrDefault(brand, Integer.MAX_VALUE);
+            maxPerBin[brand.ordinal()] = properties.getMaxPerBin().getOrDefault(brand, Integer.MAX_VALUE);
+        }
+        if (!enabled) {
+            return;
+        }
+        double ratio = properties.getMaxErrorRatio();
+        if (!(ratio > 0 && ratio < 1)) {
+            throw new IllegalStateException("cards.velocity.max-error-ratio deve ficar entre 0 e 1, recebido " + ratio);
+        }
+
+        // Larguras calculadas antes de alocar, para recusar um orçamento insuficiente sem reservar a memória
+        int[] holderWidths = new int[CreditCardBrand.values().length];
+        int[] binWidths = new int[CreditCardBrand.values().length];
+        long requiredBytes = 0;
+        for (CreditCardBrand brand : CreditCardBrand.values()) {
+            holderWidths[brand.ordinal()] = widthFor(properties, brand, maxPerHolder[brand.ordinal()]);
+            binWidths[brand.ordinal()] = widthFor(properties, brand, maxPerBin[brand.ordinal()]);
+            requiredBytes += memoryBytes(properties, holderWidths[brand.ordinal()])
+                    + memoryBytes(properties, binWidths[brand.ordinal()]);
+        }
+        long budget = properties.getMemoryBudget().toBytes();
+        if (requiredBytes > budget) {
+            throw new IllegalStateException("cards.velocity.memory-budget de " + budget + " bytes não comporta os sketches: "
+                    + "manter a superestimativa abaixo de " + ratio + " do menor limite de cada bandeira exige "
+                    + requiredBytes + " bytes");
+        }
+
+        long windowMillis = properties.getWindow().toMillis();
+        for (CreditCardBrand brand : CreditCardBrand.values()) {
+            holderSketches[brand.ordinal()] = newSketch(properties, holderWidths[brand.ordinal()], windowMillis);
+            binSketches[brand.ordinal()] = newSketch(properties, binWidths[brand.ordinal()], windowMillis);
+        }
+        log.info("### Verificação de velocidade: janela {}, {} bytes de sketches", properties.getWindow(), requiredBytes);
+    }
+
+    /** Largura do sketch de um limite da bandeira; 0 se a bandeira não tem esse limite */
+    private static int widthFor(CardVelocityProperties properties, CreditCardBrand brand, int limit) {
+        if (limit == Integer.MAX_VALUE) {
+            return 0;
+        }
+        Long expected = properties.getExpectedPerWindow().get(brand);
+        if (expected == null) {
+            throw new IllegalStateException("Informe cards.velocity.expected-per-window."
+                    + brand.name().toLowerCase() + " para dimensionar os limites da bandeira");
+        }
+        return SlidingWindowCountMinSketch.widthFor(expected, limit * properties.getMaxErrorRatio());
+    }
+
+    private static long memoryBytes(CardVelocityProperties properties, int width) {
+        return width == 0 ? 0 : SlidingWindowCountMinSketch.memoryBytes(properties.getDepth(), width, properties.getBuckets());
+    }
+
+    private static SlidingWindowCountMinSketch newSketch(CardVelocityProperties properties, int width, long windowMillis) {
+        return width == 0 ? null
+                : new SlidingWindowCountMinSketch(properties.getDepth(), width, properties.getBuckets(), windowMillis);
+    }
+
+    /**
+     * Conta o cadastro e lança {@link VelocityLimitExceededException} se o titular
+     * ou o BIN excederem o limite da bandeira.
+     */
+    public void check(CreditCard card) {
+        if (!enabled) {
+            return;
+        }
+        CreditCardBrand brand = card.getBrand();
+        SlidingWindowCountMinSketch holderSketch = holderSketches[brand.ordinal()];
+        SlidingWindowCountMinSketch binSketch = binSketches[brand.ordinal()];
+        long now = System.currentTimeMillis();
+        int holderCount = holderSketch == null ? 0 : holderSketch.incrementAndEstimate(holderHash(brand, card.getHolderName()), now);
+        int binCount = binSketch == null ? 0 : binSketch.incrementAndEstimate(binHash(brand, card.getNumber()), now);
+
+        if (holderCount > maxPerHolder[brand.ordinal()]) {
+            throw new VelocityLimitExceededException(
+                    "Limite de cadastros por titular excedido para a bandeira " + brand);
+        }
+        if (binCount > maxPerBin[brand.ordinal()]) {
+            throw new VelocityLimitExceededException(
+                    "Limite de cadastros por BIN excedido para a bandeira " + brand);
+        }
+    }
+
+    /** Hash do titular ignorando maiúsculas e espaços, sem alocar */
+    static long holderHash(CreditCardBrand brand, String holderName) {
+        long h = 0xcbf29ce484222325L ^ brand.ordinal();
+        for (int i = 0; i < holderName.length(); i++) {
+            char c = holderName.charAt(i);
+            if (Character.isWhitespace(c)) {
+                continue;
+            }
+            h = (h ^ Character.toLowerCase(c)) * 0x100000001b3L;
+        }
+        return mix(h);
+    }
+
+    static long binHash(CreditCardBrand brand, String number) {
+        long h = 0xcbf29ce484222325L ^ brand.ordinal();
+        int end = Math.min(BIN_LENGTH, number.length());
+        for (int i = 0; i < end; i++) {
+            h = (h ^ number.charAt(i)) * 0x100000001b3L;
+        }
+        return mix(h);
+    }
+
+    // Finalizador do MurmurHash3 para espalhar os bits entre as duas metades do hash
+    private static long mix(long h) {
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+}
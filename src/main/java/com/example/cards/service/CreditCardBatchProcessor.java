@@ -3,55 +3,117 @@ package com.example.cards.service;
 import com.example.cards.domain.CreditCard;
 import com.example.cards.domain.CreditCardBrand;
 import com.example.cards.domain.KafkaTopicStrategyProvider;
+import com.example.cards.sink.CardSink;
+import com.example.cards.sink.CardSinkRegistry;
 
-import org.springframework.kafka.core.KafkaTemplate;
 import org.springframework.stereotype.Service;
 
-import java.util.ArrayList;
+import java.io.UncheckedIOException;
+import java.util.Collections;
+import java.util.IdentityHashMap;
 import java.util.List;
-import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
 
 @Service
 public class CreditCardBatchProcessor {
 
     private static final org.slf4j.Logger log = org.slf4j.LoggerFactory.getLogger(CreditCardBatchProcessor.class);
     
-    private final KafkaTemplate<String, CreditCard> kafkaTemplate;
+    private final CardSinkRegistry sinkRegistry;
     private final KafkaTopicStrategyProvider topicStrategyProvider;
-    private static final int BATCH_SIZE = 1000;
+    private final CardStatusIndex statusIndex;
+    private final CardPublishCircuitBreaker circuitBreaker;
+    private final CardOutageSpool outageSpool;
 
-    public CreditCardBatchProcessor(KafkaTemplate<String, CreditCard> kafkaTemplate,
-                                    KafkaTopicStrategyProvider topicStrategyProvider) {
-        this.kafkaTemplate = kafkaTemplate;
+    public CreditCardBatchProcessor(CardSinkRegistry sinkRegistry,
+                                    KafkaTopicStrategyProvider topicStrategyProvider,
+                                    CardStatusIndex statusIndex,
+                                    CardPublishCircuitBreaker circuitBreaker,
+                                    CardOutageSpool outageSpool) {
+        this.sinkRegistry = sinkRegistry;
         this.topicStrategyProvider = topicStrategyProvider;
+        this.statusIndex = statusIndex;
+        this.circuitBreaker = circuitBreaker;
+        this.outageSpool = outageSpool;
     }
 
 
-    public void processBatchForBrand(CreditCardBrand brand, Queue<CreditCard> brandBuffer) {
-        if (brandBuffer == null || brandBuffer.isEmpty()) {
-            return;
+    /**
+     * Envia um lote já montado ao destino configurado para a bandeira (Kafka, por padrão)
+     * e atualiza a situação de cada cartão quando o destino confirmar.
+     * Com o circuito da bandeira aberto, o lote vai direto para o spool local; com o circuito
+     * habilitado, os cartões cujo envio falhar também vão para o spool em vez de se perder.
+     */
+    public CompletableFuture<List<CreditCard>> publish(CreditCardBrand brand, List<CreditCard> lote) {
+        if (!circuitBreaker.tryAcquire(brand)) {
+            return CompletableFuture.completedFuture(spool(brand, lote));
         }
+        CardSink sink = sinkRegistry.sinkFor(brand);
+        log.info("### Processando lote de {} cartões da bandeira {} para o destino {} ({})",
+                 lote.size(), brand, sink.getName(), topicStrategyProvider.getTopicName(brand));
 
-        List<CreditCard> lote = new ArrayList<>();
-        // Drena até BATCH_SIZE itens da fila específica da bandeira
-        for (int i = 0; i < BATCH_SIZE; i++) {
-            CreditCard card = brandBuffer.poll();
-            if (card == null) break;
-            lote.add(card);
+        // O prazo do circuito corre desde antes do envio: um send bloqueado também conta como falha
+        CompletableFuture<List<CreditCard>> outcome = new CompletableFuture<>();
+        circuitBreaker.track(brand, outcome);
+        CompletableFuture<List<CreditCard>> published;
+        try {
+            published = sink.publish(brand, lote);
+        } catch (RuntimeException e) {
+            published = CompletableFuture.failedFuture(e);
         }
+        published.whenComplete((failed, ex) -> {
+            if (ex != null) {
+                outcome.completeExceptionally(ex);
+            } else {
+                outcome.complete(failed);
+            }
+        });
+        return published.handle((failed, ex) -> {
+            List<CreditCard> notSent = ex != null ? List.copyOf(lote) : failed;
+            markDelivery(lote, notSent);
+            if (!notSent.isEmpty()) {
+                log.error("Erro ao processar lote da bandeira {}: {} de {} cartões não foram enviados",
+                          brand, notSent.size(), lote.size(), ex);
+            }
+            return notSent;
+        }).thenCompose(notSent -> {
+            if (notSent.isEmpty() || !circuitBreaker.isEnabled()) {
+                return CompletableFuture.completedFuture(notSent);
+            }
+            // A gravação no spool faz fsync; fica fora da thread de callback do producer
+            return CompletableFuture.supplyAsync(() -> spool(brand, notSent),
+                    task -> Thread.ofVirtual().name("cards-spool-" + brand).start(task));
+        });
+    }
 
-        if (lote.isEmpty()) return;
-
+    /**
+     * Grava os cartões no spool local para reenvio quando o circuito fechar.
+     * Retorna os cartões que não puderam ser gravados.
+     */
+    public List<CreditCard> spool(CreditCardBrand brand, List<CreditCard> cards) {
         try {
-            String topic = topicStrategyProvider.getTopicName(brand);
-            log.info("### Processando lote de {} cartões da bandeira {} para o tópico {}", 
-                     lote.size(), brand, topic);
-
-            lote.forEach(b -> kafkaTemplate.send(topic, b));
+            outageSpool.append(brand, cards);
+        } catch (UncheckedIOException e) {
+            log.error("Erro ao gravar lote da bandeira {} no spool: {} cartões não foram enviados",
+                      brand, cards.size(), e);
+            cards.forEach(card -> statusIndex.markFailed(card.getId()));
+            return List.copyOf(cards);
+        }
+        cards.forEach(card -> statusIndex.markSpooled(card.getId()));
+        log.info("### Lote de {} cartões da bandeira {} gravado no spool", cards.size(), brand);
+        return List.of();
+    }
 
-        } catch (Exception e) {
-            log.error("Erro ao processar lote da bandeira {}", brand, e);
-            // Lógica de retry ou DLQ manual necessária aqui
+    private void markDelivery(List<CreditCard> lote, List<CreditCard> failed) {
+        Set<CreditCard> failedCards = Collections.newSetFromMap(new IdentityHashMap<>(failed.size()));
+        failedCards.addAll(failed);
+        for (CreditCard card : lote) {
+            if (failedCards.contains(card)) {
+                statusIndex.markFailed(card.getId());
+            } else {
+                statusIndex.markPublished(card.getId());
+            }
         }
     }
 }
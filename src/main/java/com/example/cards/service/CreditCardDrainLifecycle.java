@@ -0,0 +1,170 @@
+package com.example.cards.service;
+
+import com.example.cards.domain.CreditCard;
+import com.example.cards.domain.CreditCardBrand;
+import com.example.cards.exception.CardRegistrationUnavailableException;
+import com.example.cards.service.CreditCardRegistrationService.InFlightBatch;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.availability.AvailabilityChangeEvent;
+import org.springframework.boot.availability.ReadinessState;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Esvazia os buffers de cartões no desligamento da aplicação.
+ *
+ * Ordem do shutdown: recusa novos cadastros (readiness cai e os POSTs recebem 503
+ * com Retry-After), para os envios agendados e pelo flushSize (os lotes que eles já tiraram
+ * dos buffers entram no mesmo prazo), envia os lotes de todas as bandeiras em paralelo até o prazo
+ * configurado e aguarda a confirmação do destino da bandeira. O que não for confirmado vai para o
+ * {@link PendingCardSpool} e é recadastrado na próxima inicialização; o arquivo só perde os cartões
+ * que os buffers aceitarem, e o que não couber é tentado de novo em cards.shutdown.pending-retry-interval.
+ */
+@Component
+public class CreditCardDrainLifecycle implements SmartLifecycle {
+
+    private static final org.slf4j.Logger log = org.slf4j.LoggerFactory.getLogger(CreditCardDrainLifecycle.class);
+
+    private final CreditCardRegistrationService registrationService;
+    private final CreditCardBatchProcessor batchProcessor;
+    private final PendingCardSpool spool;
+    private final ApplicationEventPublisher eventPublisher;
+    private final Duration drainTimeout;
+
+    private volatile boolean running;
+
+    public CreditCardDrainLifecycle(CreditCardRegistrationService registrationService,
+                                    CreditCardBatchProcessor batchProcessor,
+                                    PendingCardSpool spool,
+                                    ApplicationEventPublisher eventPublisher,
+                                    @Value("${cards.shutdown.drain-timeout:30s}") Duration drainTimeout) {
+        this.registrationService = registrationService;
+        this.batchProcessor = batchProcessor;
+        this.spool = spool;
+        this.eventPublisher = eventPublisher;
+        this.drainTimeout = drainTimeout;
+    }
+
+    @Override
+    public synchronized void start() {
+        registrationService.resumeFlushing();
+        replayPending();
+        registrationService.setAccepting(true);
+        running = true;
+    }
+
+    /** Retoma os cartões pendentes que não couberam nos buffers na inicialização */
+    @Scheduled(fixedDelayString = "${cards.shutdown.pending-retry-interval:5s}",
+               initialDelayString = "${cards.shutdown.pending-retry-interval:5s}")
+    public synchronized void resumePending() {
+        if (running && spool.hasPending()) {
+            replayPending();
+        }
+    }
+
+    /**
+     * Recadastra os cartões pendentes do último desligamento até o buffer de alguma bandeira encher.
+     * Só os aceitos saem do arquivo; o restante é tentado de novo em pending-retry-interval.
+     */
+    private void replayPending() {
+        List<CreditCard> pending = spool.read();
+        if (pending.isEmpty()) {
+            return;
+        }
+        log.info("### Recadastrando {} cartões pendentes do último desligamento", pending.size());
+        int accepted = 0;
+        try {
+            for (CreditCard card : pending) {
+                registrationService.enqueue(card);
+                accepted++;
+            }
+        } catch (CardRegistrationUnavailableException e) {
+            log.warn("### {} de {} cartões pendentes recadastrados; o restante continua no arquivo: {}",
+                     accepted, pending.size(), e.getMessage());
+        }
+        spool.removeFirst(accepted);
+    }
+
+    @Override
+    public synchronized void stop() {
+        running = false;
+        registrationService.setAccepting(false);
+        AvailabilityChangeEvent.publish(eventPublisher, this, ReadinessState.REFUSING_TRAFFIC);
+
+        long deadline = System.nanoTime() + drainTimeout.toNanos();
+        // Lotes são registrados antes do envio, para que um envio travado no prazo não perca o lote
+        Queue<InFlightBatch> batches = new ConcurrentLinkedQueue<>();
+        // Envios agendados e pelo flushSize que já tiraram lotes dos buffers entram no mesmo prazo
+        batches.addAll(registrationService.stopFlushing(deadline));
+
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            List<CompletableFuture<Void>> drains = new ArrayList<>();
+            for (CreditCardBrand brand : CreditCardBrand.values()) {
+                drains.add(CompletableFuture.runAsync(() -> drainBrand(brand, batches), executor));
+            }
+
+            try {
+                CompletableFuture.allOf(drains.toArray(CompletableFuture[]::new))
+                        .thenCompose(ignored -> CompletableFuture.allOf(batches.stream()
+                                .map(InFlightBatch::result)
+                                .toArray(CompletableFuture[]::new)))
+                        .get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+            } catch (TimeoutException e) {
+                log.warn("Prazo de {} esgotado aguardando as confirmações dos destinos", drainTimeout);
+            } catch (Exception e) {
+                log.error("Erro ao esvaziar os buffers no desligamento", e);
+            }
+            executor.shutdownNow();
+        }
+
+        // Confirmados com falha e lotes sem confirmação no prazo (podem ser reenviados em duplicidade)
+        List<CreditCard> unsent = new ArrayList<>();
+        for (InFlightBatch batch : batches) {
+            unsent.addAll(batch.result().isDone() ? batch.result().join() : batch.cards());
+        }
+        // Cartões que chegaram após o início do dreno ou que não foram drenados no prazo
+        unsent.addAll(registrationService.pollRemaining());
+        if (unsent.isEmpty()) {
+            log.info("### Buffers esvaziados no desligamento");
+        } else {
+            spool.write(unsent);
+        }
+    }
+
+    private void drainBrand(CreditCardBrand brand, Queue<InFlightBatch> batches) {
+        List<CreditCard> cards;
+        while (!Thread.currentThread().isInterrupted()
+                && !(cards = registrationService.drainBatch(brand)).isEmpty()) {
+            List<CreditCard> batch = cards;
+            InFlightBatch pending = new InFlightBatch(batch, new CompletableFuture<>());
+            batches.add(pending);
+            batchProcessor.publish(brand, batch).whenComplete((failed, ex) ->
+                    pending.result().complete(failed != null ? failed : batch));
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    /** Para antes do servidor web, para recusar cadastros enquanto as requisições em curso terminam */
+    @Override
+    public int getPhase() {
+        return DEFAULT_PHASE;
+    }
+}
@@ -1,71 +1,420 @@
 package com.example.cards.service;
 
 import com.example.cards.domain.CreditCard;
+import com.example.cards.domain.BrandPipelineSettings;
+import com.example.cards.domain.CardDeliveryStatus;
 import com.example.cards.domain.CreditCardBrand;
+import com.example.cards.domain.DefaultCreditCard;
+import com.example.cards.domain.KafkaTopicStrategyProvider;
+import com.example.cards.domain.PreSerializedCreditCard;
+import com.example.cards.domain.PreSerializedCreditCardList;
+import com.example.cards.exception.CardRegistrationUnavailableException;
 
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 
+import java.time.Duration;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.EnumMap;
 import java.util.List;
 import java.util.Map;
-import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
 
 
 @Service
-public class CreditCardRegistrationService {
+public class CreditCardRegistrationService implements DisposableBean {
 
     private static final org.slf4j.Logger log = org.slf4j.LoggerFactory.getLogger(CreditCardRegistrationService.class);
 
     private final CreditCardBatchProcessor batchProcessor;
+    private final KafkaTopicStrategyProvider topicStrategyProvider;
+    private final CardVelocityGuard velocityGuard;
+    private final CardStatusIndex statusIndex;
+    private final CardLookupIndex lookupIndex;
+    private final IdempotencyCache idempotencyCache;
+    private final long retryAfterSeconds;
+    private final long bufferFullRetryAfterSeconds;
+    private final boolean serializeOnce;
+    private final Duration drainTimeout;
     
-    // Buffers separados por tipo de cartão
-    private final Map<CreditCardBrand, Queue<CreditCard>> buffersByBrand = new ConcurrentHashMap<>();
-    private static final int BATCH_SIZE = 1000;
+    // Buffers separados por tipo de cartão, com capacidade definida por bandeira
+    private final Map<CreditCardBrand, BrandBuffer> buffersByBrand = new EnumMap<>(CreditCardBrand.class);
+
+    // Versão da listagem: incrementada a cada cadastro ou drenagem dos buffers
+    private final AtomicLong listingVersion = new AtomicLong();
+    private final String listingEpoch = Long.toString(System.currentTimeMillis(), 36);
+    private volatile CardListingSnapshot listingSnapshot;
+
+    // Desligado durante o shutdown para recusar novos cadastros
+    private volatile boolean accepting = true;
+    // Ligado no shutdown: envios agendados e pelo flushSize param, e o dreno leva o que estiver nos buffers
+    private volatile boolean draining;
     
-    // ExecutorService para processamento paralelo
-    //private final ExecutorService executorService;
+    // Virtual threads que enviam os lotes das bandeiras, em paralelo entre si
+    private final ExecutorService flushExecutor = Executors.newVirtualThreadPerTaskExecutor();
+    // Envio em execução por ordinal (agendado ou disparado pelo flushSize); uma bandeira travada não recebe um segundo envio
+    private final AtomicBoolean[] flushing = new AtomicBoolean[CreditCardBrand.values().length];
+    // Lotes já tirados dos buffers por esses envios e ainda sem confirmação do destino
+    private final Set<InFlightBatch> inFlight = ConcurrentHashMap.newKeySet();
 
-    public CreditCardRegistrationService(CreditCardBatchProcessor batchProcessor) {
+    private final MeterRegistry meterRegistry;
+    private final Timer cycleTimer;
+
+    public CreditCardRegistrationService(CreditCardBatchProcessor batchProcessor,
+                                         KafkaTopicStrategyProvider topicStrategyProvider,
+                                         CardVelocityGuard velocityGuard,
+                                         CardStatusIndex statusIndex,
+                                         CardLookupIndex lookupIndex,
+                                         IdempotencyCache idempotencyCache,
+                                         MeterRegistry meterRegistry,
+                                         @Value("${cards.shutdown.retry-after-seconds:30}") long retryAfterSeconds,
+                                         @Value("${cards.pipeline.retry-after-seconds:1}") long bufferFullRetryAfterSeconds,
+                                         @Value("${cards.payload.serialize-once:false}") boolean serializeOnce,
+                                         @Value("${cards.shutdown.drain-timeout:30s}") Duration drainTimeout) {
         this.batchProcessor = batchProcessor;
+        this.topicStrategyProvider = topicStrategyProvider;
+        this.velocityGuard = velocityGuard;
+        this.statusIndex = statusIndex;
+        this.lookupIndex = lookupIndex;
+        this.idempotencyCache = idempotencyCache;
+        this.meterRegistry = meterRegistry;
+        this.cycleTimer = meterRegistry.timer("cards.flush.cycle");
+        for (int i = 0; i < flushing.length; i++) {
+            flushing[i] = new AtomicBoolean();
+        }
+        this.retryAfterSeconds = retryAfterSeconds;
+        this.bufferFullRetryAfterSeconds = bufferFullRetryAfterSeconds;
+        this.serializeOnce = serializeOnce;
+        this.drainTimeout = drainTimeout;
         // Inicializa os buffers para cada bandeira
         for (CreditCardBrand brand : CreditCardBrand.values()) {
-            buffersByBrand.put(brand, new ConcurrentLinkedQueue<>());
+            BrandPipelineSettings settings = topicStrategyProvider.getPipelineSettings(brand);
+            buffersByBrand.put(brand, new BrandBuffer(settings.bufferCapacity()));
         }
+        this.listingSnapshot = new CardListingSnapshot(0, etagFor(0), List.of());
     }
     
-    public void register(CreditCard card) {
+    /**
+     * Enfileira o cartão no buffer da bandeira e retorna o cartão como foi armazenado
+     * (pré-serializado quando cards.payload.serialize-once está habilitado).
+     */
+    public CreditCard register(CreditCard card) {
+        if (!accepting) {
+            throw new CardRegistrationUnavailableException(
+                    "Serviço em desligamento, tente novamente em instantes", retryAfterSeconds);
+        }
+
+        velocityGuard.check(card);
+        return enqueue(card);
+    }
+
+    /**
+     * Monta e cadastra o cartão como {@link #register(CreditCard)}. Com Idempotency-Key, a chave é
+     * consultada antes de montar o cartão: repetições dentro do TTL retornam o cartão do primeiro
+     * cadastro sem validar o número, gerar ID nem enfileirar de novo. Sem chave, cadastra normalmente.
+     */
+    public CreditCard register(String idempotencyKey, String holderName, String number, CreditCardBrand brand) {
+        if (idempotencyKey == null) {
+            return register(new DefaultCreditCard(holderName, number, brand));
+        }
+        return idempotencyCache.register(idempotencyKey, holderName, number, brand,
+                () -> register(new DefaultCreditCard(holderName, number, brand)));
+    }
+
+    /**
+     * Enfileira um cartão que já passou pelas verificações de cadastro
+     * (ex: cartões recuperados do desligamento anterior).
+     */
+    public CreditCard enqueue(CreditCard card) {
+        if (serializeOnce) {
+            card = PreSerializedCreditCard.of(card);
+        }
+
         CreditCardBrand brand = card.getBrand();
-        Queue<CreditCard> brandBuffer = buffersByBrand.get(brand);
+        BrandBuffer brandBuffer = buffersByBrand.get(brand);
         
         if (brandBuffer != null) {
-            brandBuffer.offer(card);
+            // Marcado antes de enfileirar para que a confirmação do envio nunca chegue antes.
+            // Recusado pelo buffer, o cartão não segue para envio e não pode continuar como QUEUED
+            statusIndex.markQueued(card.getId());
+            if (!brandBuffer.offer(card)) {
+                statusIndex.markFailed(card.getId());
+                throw new CardRegistrationUnavailableException(
+                        "Buffer da bandeira " + brand + " cheio, tente novamente em instantes", bufferFullRetryAfterSeconds);
+            }
+            listingVersion.incrementAndGet();
+            lookupIndex.add(card);
             
-            // Processa o lote se atingir o tamanho configurado
-            if (brandBuffer.size() >= BATCH_SIZE) {
-                batchProcessor.processBatchForBrand(brand, brandBuffer);
+            // Lote cheio: envia numa virtual thread, sem segurar a thread do cadastro no envio.
+            // Se a bandeira já estiver enviando, o próximo ciclo agendado leva o lote
+            if (brandBuffer.size() >= topicStrategyProvider.getPipelineSettings(brand).flushSize()) {
+                startFlush(brand, brandBuffer);
             }
         }
+        return card;
+    }
+
+    /** Cartão pelo ID, entre os cadastrados mais recentes (cards.lookup.capacity), ou null */
+    public CreditCard findById(long id) {
+        return lookupIndex.findById(id);
+    }
+
+    public List<CreditCard> findByPanHash(String sha256Hex) {
+        return lookupIndex.findByPanHash(sha256Hex);
+    }
+
+    public List<CreditCard> findByHolderPrefix(String prefix, int limit) {
+        return lookupIndex.findByHolderPrefix(prefix, limit);
+    }
 
+    /** Situação de entrega do cartão, ou null se não estiver mais sendo acompanhado */
+    public CardDeliveryStatus getDeliveryStatus(long id) {
+        return statusIndex.get(id);
     }
 
     public List<CreditCard> getAllCards() {
+        return getListingSnapshot().cards();
+    }
+
+    /**
+     * Retorna a listagem da versão atual. A cópia dos buffers só é refeita
+     * na primeira leitura após uma mudança; leituras sem mudança reutilizam a anterior.
+     */
+    public CardListingSnapshot getListingSnapshot() {
+        CardListingSnapshot current = listingSnapshot;
+        long version = listingVersion.get();
+        if (current.version() == version) {
+            return current;
+        }
+
+        // A versão é lida antes da cópia, então o conteúdo é no mínimo tão novo quanto ela
         List<CreditCard> allCards = new ArrayList<>();
-        for (Queue<CreditCard> buffer : buffersByBrand.values()) {
-            allCards.addAll(buffer);
+        for (BrandBuffer buffer : buffersByBrand.values()) {
+            buffer.copyTo(allCards);
+        }
+        CardListingSnapshot rebuilt = new CardListingSnapshot(version, etagFor(version),
+                serializeOnce ? preSerialized(allCards) : Collections.unmodifiableList(allCards));
+        if (listingSnapshot.version() < version) {
+            listingSnapshot = rebuilt;
         }
-        return Collections.unmodifiableList(allCards);
+        return rebuilt;
     }
 
-    @Scheduled(fixedDelay = 500) 
+    private static List<CreditCard> preSerialized(List<CreditCard> cards) {
+        PreSerializedCreditCard[] payloads = new PreSerializedCreditCard[cards.size()];
+        for (int i = 0; i < payloads.length; i++) {
+            payloads[i] = PreSerializedCreditCard.of(cards.get(i));
+        }
+        return new PreSerializedCreditCardList(payloads);
+    }
+
+    /** ETag forte da versão atual da listagem, sem acessar os buffers */
+    public String getListingETag() {
+        CardListingSnapshot current = listingSnapshot;
+        long version = listingVersion.get();
+        return current.version() == version ? current.etag() : etagFor(version);
+    }
+
+    private String etagFor(long version) {
+        return "\"" + listingEpoch + "-" + version + "\"";
+    }
+
+    /**
+     * Envia, em paralelo, o lote de cada bandeira que atingiu o flushSize ou cujo linger expirou.
+     * Cada bandeira tem o prazo flushTimeout para ter o lote confirmado pelo destino; o ciclo espera
+     * no máximo esse prazo, então dura o tempo da bandeira mais lenta (limitado pelo prazo), não a soma de todas.
+     * Uma bandeira que passa do prazo não é interrompida: o lote já saiu do buffer e segue até a
+     * confirmação ou a falha, que atualiza a situação de cada cartão. Enquanto o envio anterior
+     * não terminar, a bandeira é pulada e tentada de novo no próximo ciclo.
+     */
+    @Scheduled(fixedDelayString = "${cards.pipeline.tick-ms:100}") 
     public void processBatch() {
-        // Processa os lotes de cada bandeira em paralelo usando threads
+        if (draining) {
+            return;
+        }
+        long cycleStart = System.nanoTime();
+        List<BrandFlush> flushes = new ArrayList<>();
         for (CreditCardBrand brand : CreditCardBrand.values()) {
-            Queue<CreditCard> brandBuffer = buffersByBrand.get(brand);
-            batchProcessor.processBatchForBrand(brand, brandBuffer);
+            BrandBuffer brandBuffer = buffersByBrand.get(brand);
+            BrandPipelineSettings settings = topicStrategyProvider.getPipelineSettings(brand);
+            if (brandBuffer.size() < settings.flushSize()
+                    && brandBuffer.nanosSinceLastFlush() < settings.linger().toNanos()) {
+                continue;
+            }
+            CompletableFuture<List<CreditCard>> flush = startFlush(brand, brandBuffer);
+            if (flush == null) {
+                meterRegistry.counter("cards.flush.skipped", "brand", brand.name()).increment();
+                continue;
+            }
+            flushes.add(new BrandFlush(brand, flush, cycleStart + settings.flushTimeout().toNanos()));
+        }
+
+        for (BrandFlush flush : flushes) {
+            try {
+                flush.result().get(Math.max(0, flush.deadline() - System.nanoTime()), TimeUnit.NANOSECONDS);
+            } catch (TimeoutException e) {
+                meterRegistry.counter("cards.flush.timeouts", "brand", flush.brand().name()).increment();
+                log.warn("Envio da bandeira {} sem confirmação no prazo; segue em andamento e o ciclo continua",
+                         flush.brand());
+            } catch (ExecutionException e) {
+                log.error("Erro no envio agendado da bandeira {}", flush.brand(), e.getCause());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+        if (!flushes.isEmpty()) {
+            cycleTimer.record(System.nanoTime() - cycleStart, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    /**
+     * Envia o próximo lote da bandeira numa virtual thread, se ela não tiver um envio em andamento.
+     * Retorna o futuro da confirmação do destino, ou null se a bandeira já estiver enviando.
+     */
+    private CompletableFuture<List<CreditCard>> startFlush(CreditCardBrand brand, BrandBuffer brandBuffer) {
+        AtomicBoolean running = flushing[brand.ordinal()];
+        if (!running.compareAndSet(false, true)) {
+            return null;
+        }
+        // Conferido depois de marcar o envio: com o dreno já ligado, ninguém tira mais lotes dos buffers
+        if (draining) {
+            running.set(false);
+            return null;
+        }
+        long start = System.nanoTime();
+        CompletableFuture<CompletableFuture<List<CreditCard>>> sent;
+        try {
+            sent = CompletableFuture.supplyAsync(() -> {
+                try {
+                    return processBatchForBrand(brand, brandBuffer);
+                } finally {
+                    running.set(false);
+                }
+            }, flushExecutor);
+        } catch (RejectedExecutionException e) {
+            // Executor encerrado no desligamento; os cartões ficam no buffer para o dreno
+            running.set(false);
+            return null;
+        }
+        return sent.thenCompose(batch -> batch).whenComplete((failed, ex) ->
+                meterRegistry.timer("cards.flush.brand", "brand", brand.name())
+                        .record(System.nanoTime() - start, TimeUnit.NANOSECONDS));
+    }
+
+    /** Envio agendado de uma bandeira e o instante limite para a confirmação */
+    private record BrandFlush(CreditCardBrand brand, CompletableFuture<List<CreditCard>> result, long deadline) {
+    }
+
+    /** Lote tirado do buffer por um envio agendado ou pelo flushSize, com o futuro dos cartões não enviados */
+    public record InFlightBatch(List<CreditCard> cards, CompletableFuture<List<CreditCard>> result) {
+    }
+
+    /**
+     * Tira até flushSize cartões do buffer e os envia. O lote fica em {@link #inFlight} até a
+     * confirmação, registrado antes de o envio ser marcado como terminado em {@link #flushing}.
+     */
+    private CompletableFuture<List<CreditCard>> processBatchForBrand(CreditCardBrand brand, BrandBuffer brandBuffer) {
+        List<CreditCard> cards = brandBuffer.drain(topicStrategyProvider.getPipelineSettings(brand).flushSize());
+        if (cards.isEmpty()) {
+            return CompletableFuture.completedFuture(List.of());
+        }
+        listingVersion.incrementAndGet();
+        InFlightBatch batch = new InFlightBatch(cards, new CompletableFuture<>());
+        inFlight.add(batch);
+        CompletableFuture<List<CreditCard>> sent;
+        try {
+            sent = batchProcessor.publish(brand, cards);
+        } catch (RuntimeException e) {
+            sent = CompletableFuture.failedFuture(e);
+        }
+        sent.whenComplete((failed, ex) -> {
+            batch.result().complete(failed != null ? failed : cards);
+            inFlight.remove(batch);
+        });
+        return batch.result();
+    }
+
+    /**
+     * Para os envios agendados e pelo flushSize e espera, até o instante deadlineNanos, os que
+     * já começaram terminarem de tirar o lote do buffer. Retorna os lotes ainda sem confirmação;
+     * a partir daqui os buffers só são esvaziados por {@link #drainBatch} e {@link #pollRemaining}.
+     */
+    public List<InFlightBatch> stopFlushing(long deadlineNanos) {
+        draining = true;
+        for (AtomicBoolean running : flushing) {
+            while (running.get() && System.nanoTime() < deadlineNanos) {
+                Thread.onSpinWait();
+                Thread.yield();
+            }
+        }
+        return List.copyOf(inFlight);
+    }
+
+    /** Volta a enviar os lotes pelo ciclo agendado e pelo flushSize, depois de um {@link #stopFlushing} */
+    public void resumeFlushing() {
+        draining = false;
+    }
+
+    /** Cartões aguardando envio no buffer da bandeira */
+    public int getBufferDepth(CreditCardBrand brand) {
+        return buffersByBrand.get(brand).size();
+    }
+
+    public boolean isAccepting() {
+        return accepting;
+    }
+
+    public void setAccepting(boolean accepting) {
+        this.accepting = accepting;
+        log.info("### Cadastro de novos cartões {}", accepting ? "habilitado" : "suspenso");
+    }
+
+    /**
+     * Remove o próximo lote da bandeira, até o flushSize, sem enviá-lo.
+     * Usado no desligamento, que acompanha cada lote até a confirmação.
+     */
+    public List<CreditCard> drainBatch(CreditCardBrand brand) {
+        List<CreditCard> batch = buffersByBrand.get(brand)
+                .drain(topicStrategyProvider.getPipelineSettings(brand).flushSize());
+        if (!batch.isEmpty()) {
+            listingVersion.incrementAndGet();
+        }
+        return batch;
+    }
+
+    /** Remove e retorna tudo o que ainda estiver nos buffers */
+    public List<CreditCard> pollRemaining() {
+        List<CreditCard> remaining = new ArrayList<>();
+        for (BrandBuffer buffer : buffersByBrand.values()) {
+            remaining.addAll(buffer.drain(Integer.MAX_VALUE));
+        }
+        listingVersion.incrementAndGet();
+        return remaining;
+    }
+
+    @Override
+    public void destroy() throws InterruptedException {
+        // Sem interromper: um envio em andamento termina de entregar o lote ao destino
+        flushExecutor.shutdown();
+        if (!flushExecutor.awaitTermination(drainTimeout.toMillis(), TimeUnit.MILLISECONDS)) {
+            log.warn("Envios das bandeiras ainda em andamento após {}", drainTimeout);
         }
     }
-}
\ No newline at end of file
+}
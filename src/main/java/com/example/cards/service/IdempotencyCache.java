@@ -0,0 +1,207 @@
+package com.example.cards.service;
+
+import com.example.cards.domain.CreditCard;
+import com.example.cards.domain.CreditCardBrand;
+import com.example.cards.exception.IdempotencyKeyConflictException;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.function.Supplier;
+import java.util.regex.Pattern;
+
+/**
+ * Resultados de cadastro por Idempotency-Key.
+ *
+ * Dividido em segmentos com lock próprio, cada um com no máximo max-entries/segmentos chaves em
+ * ordem de inserção: as vencidas (TTL) e, com o segmento cheio, as mais antigas saem primeiro.
+ * A primeira requisição de uma chave cadastra; repetições dentro do TTL recebem o mesmo cartão,
+ * e as que chegam enquanto o cadastro ainda está em andamento esperam por ele em vez de repeti-lo.
+ * A chave é consultada com os campos como chegaram na requisição, antes de montar o cartão,
+ * então uma repetição não valida o número nem gera ID de novo.
+ * Cadastros que falham não ficam guardados, para que o parceiro possa tentar de novo.
+ */
+@Component
+public class IdempotencyCache {
+
+    private static final int SEGMENTS = 32;
+    public static final int MAX_KEY_LENGTH = 128;
+    private static final Pattern SEPARATORS = Pattern.compile("\\s|-");
+
+    private static final ThreadLocal<MessageDigest> SHA256 = ThreadLocal.withInitial(() -> {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    });
+
+    private final Segment[] segments = new Segment[SEGMENTS];
+    private final long ttlNanos;
+
+    private final Counter hits;
+    private final Counter misses;
+    private final Counter coalesced;
+    private final Counter conflicts;
+    private final Counter evictions;
+
+    public IdempotencyCache(@Value("${cards.idempotency.max-entries:100000}") int maxEntries,
+                            @Value("${cards.idempotency.ttl:24h}") Duration ttl,
+                            MeterRegistry meterRegistry) {
+        this.ttlNanos = ttl.toNanos();
+        int perSegment = Math.max(1, maxEntries / SEGMENTS);
+        for (int i = 0; i < SEGMENTS; i++) {
+            segments[i] = new Segment(perSegment);
+        }
+        this.hits = meterRegistry.counter("cards.idempotency.requests", "result", "hit");
+        this.misses = meterRegistry.counter("cards.idempotency.requests", "result", "miss");
+        this.coalesced = meterRegistry.counter("cards.idempotency.requests", "result", "coalesced");
+        this.conflicts = meterRegistry.counter("cards.idempotency.requests", "result", "conflict");
+        this.evictions = meterRegistry.counter("cards.idempotency.evictions");
+        Gauge.builder("cards.idempotency.size", this, IdempotencyCache::size).register(meterRegistry);
+    }
+
+    /**
+     * Cartão já cadastrado com a chave ou, na primeira vez, o resultado de registration.
+     * Titular, número e bandeira precisam ser os mesmos da primeira requisição; o número é comparado
+     * sem espaços e traços e o titular sem os espaços das pontas, como o cartão montado os guarda.
+     */
+    public CreditCard register(String key, String holderName, String number, CreditCardBrand brand,
+                               Supplier<CreditCard> registration) {
+        if (key.isBlank() || key.length() > MAX_KEY_LENGTH) {
+            throw new IllegalArgumentException("Idempotency-Key deve ter entre 1 e " + MAX_KEY_LENGTH + " caracteres");
+        }
+        byte[] fingerprint = fingerprint(holderName, number, brand);
+        Segment segment = segments[(key.hashCode() ^ (key.hashCode() >>> 16)) & (SEGMENTS - 1)];
+
+        Entry entry = new Entry(fingerprint, new CompletableFuture<>(), System.nanoTime() + ttlNanos);
+        Entry existing = segment.putIfAbsent(key, entry);
+        if (existing != null) {
+            if (!MessageDigest.isEqual(existing.fingerprint(), fingerprint)) {
+                conflicts.increment();
+                throw new IdempotencyKeyConflictException("Idempotency-Key já usada para outro cartão: " + key);
+            }
+            if (existing.result().isDone()) {
+                hits.increment();
+            } else {
+                coalesced.increment();
+            }
+            return await(existing.result());
+        }
+
+        misses.increment();
+        try {
+            CreditCard registered = registration.get();
+            entry.result().complete(registered);
+            return registered;
+        } catch (RuntimeException e) {
+            segment.remove(key, entry);
+            entry.result().completeExceptionally(e);
+            throw e;
+        }
+    }
+
+    public int size() {
+        int size = 0;
+        for (Segment segment : segments) {
+            size += segment.size();
+        }
+        return size;
+    }
+
+    private static CreditCard await(CompletableFuture<CreditCard> result) {
+        try {
+            return result.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CancellationException("Interrompido aguardando o cadastro com a mesma Idempotency-Key");
+        } catch (ExecutionException e) {
+            // Repete para quem esperava o mesmo erro do cadastro original (validação, 503, 429...)
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw new CompletionException(e.getCause());
+        }
+    }
+
+    /**
+     * SHA-256 dos campos, cada um precedido do tamanho para que a fronteira entre eles não seja ambígua.
+     * Um hash de 32 bits deixaria cartões diferentes colidirem e a repetição receber o cartão de outro.
+     */
+    private static byte[] fingerprint(String holderName, String number, CreditCardBrand brand) {
+        MessageDigest digest = SHA256.get();
+        update(digest, holderName == null ? "" : holderName.trim());
+        update(digest, number == null ? "" : SEPARATORS.matcher(number).replaceAll(""));
+        update(digest, brand == null ? "" : brand.name());
+        return digest.digest();
+    }
+
+    private static void update(MessageDigest digest, String field) {
+        byte[] bytes = field.getBytes(StandardCharsets.UTF_8);
+        int length = bytes.length;
+        digest.update(new byte[] {(byte) (length >>> 24), (byte) (length >>> 16), (byte) (length >>> 8), (byte) length});
+        digest.update(bytes);
+    }
+
+    private record Entry(byte[] fingerprint, CompletableFuture<CreditCard> result, long expiresAt) {
+    }
+
+    private final class Segment {
+
+        private final int capacity;
+        private final LinkedHashMap<String, Entry> entries;
+
+        Segment(int capacity) {
+            this.capacity = capacity;
+            this.entries = new LinkedHashMap<>(Math.min(capacity, 1024) * 2);
+        }
+
+        synchronized Entry putIfAbsent(String key, Entry entry) {
+            long now = System.nanoTime();
+            Entry existing = entries.get(key);
+            if (existing != null && existing.expiresAt() - now > 0) {
+                return existing;
+            }
+            if (existing != null) {
+                entries.remove(key);
+            }
+            // Em ordem de inserção com o mesmo TTL, as vencidas estão sempre no início
+            Iterator<Map.Entry<String, Entry>> it = entries.entrySet().iterator();
+            while (it.hasNext()) {
+                Map.Entry<String, Entry> eldest = it.next();
+                if (eldest.getValue().expiresAt() - now > 0 && entries.size() < capacity) {
+                    break;
+                }
+                if (eldest.getValue().expiresAt() - now > 0) {
+                    evictions.increment();
+                }
+                it.remove();
+            }
+            entries.put(key, entry);
+            return null;
+        }
+
+        synchronized void remove(String key, Entry entry) {
+            entries.remove(key, entry);
+        }
+
+        synchronized int size() {
+            return entries.size();
+        }
+    }
+}
@@ -0,0 +1,174 @@
+package com.example.cards.service;
+
+import com.example.cards.domain.CreditCard;
+import com.example.cards.domain.CreditCardBrand;
+import com.example.cards.domain.DefaultCreditCard;
+import com.example.cards.domain.PreSerializedCreditCard;
+import com.example.cards.domain.ReceivedCreditCard;
+import com.example.cards.domain.crypto.PanEnvelope;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.UUID;
+
+import javax.crypto.SecretKey;
+
+/**
+ * Arquivo local com os cartões que não puderam ser enviados no desligamento.
+ * Cada linha guarda bandeira, ID, UUID, número e titular separados por TAB, para que o cartão
+ * volte com a identidade do cadastro. Cada gravação é precedida de "#plain" ou, com a cifragem
+ * habilitada, da linha "#dek" do seu envelope; nesse caso o número vai cifrado, com o ID como
+ * dado autenticado do token. Linhas do formato anterior, sem ID ou sem UUID, ainda são lidas.
+ */
+@Component
+public class PendingCardSpool {
+
+    private static final org.slf4j.Logger log = org.slf4j.LoggerFactory.getLogger(PendingCardSpool.class);
+
+    private static final String PLAIN_LINE = "#plain";
+
+    private final Path file;
+    private final CardPanEncryption panEncryption;
+
+    public PendingCardSpool(@Value("${cards.shutdown.spool-file:data/pending-cards.spool}") String file,
+                            CardPanEncryption panEncryption) {
+        this.file = Path.of(file);
+        this.panEncryption = panEncryption;
+    }
+
+    public synchronized void write(Collection<CreditCard> cards) {
+        if (cards.isEmpty()) {
+            return;
+        }
+        try {
+            Path parent = file.toAbsolutePath().getParent();
+            if (parent != null) {
+                Files.createDirectories(parent);
+            }
+            writeTo(file, cards);
+            log.warn("### {} cartões gravados em {} para reprocessamento", cards.size(), file);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Falha ao gravar cartões pendentes em " + file, e);
+        }
+    }
+
+    private void writeTo(Path target, Collection<CreditCard> cards) throws IOException {
+        PanEnvelope panEnvelope = panEncryption.isEnabled() ? panEncryption.newEnvelope() : null;
+        try (BufferedWriter writer = Files.newBufferedWriter(target, StandardCharsets.UTF_8,
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND)) {
+            writer.write(panEnvelope != null ? panEncryption.dataKeyLine(panEnvelope) : PLAIN_LINE);
+            writer.newLine();
+            for (CreditCard card : cards) {
+                CreditCard plain = card instanceof PreSerializedCreditCard preSerialized ? preSerialized.getCard() : card;
+                writer.write(card.getBrand().name());
+                writer.write('\t');
+                writer.write(Long.toString(plain.getId()));
+                writer.write('\t');
+                writer.write(plain.getUUID());
+                writer.write('\t');
+                writer.write(panEnvelope != null ? panEnvelope.encrypt(plain.getId(), plain.getNumber()) : plain.getNumber());
+                writer.write('\t');
+                writer.write(card.getHolderName().replace('\t', ' ').replace('\n', ' ').replace('\r', ' '));
+                writer.newLine();
+            }
+        }
+    }
+
+    public synchronized boolean hasPending() {
+        return Files.exists(file);
+    }
+
+    /**
+     * Lê os cartões pendentes sem alterar o arquivo, com o ID e o UUID gravados.
+     * Linhas inválidas são descartadas com log.
+     */
+    public synchronized List<CreditCard> read() {
+        if (!Files.exists(file)) {
+            return List.of();
+        }
+        List<CreditCard> cards = new ArrayList<>();
+        try {
+            // Gravação corrente: cifrada depois de "#dek", em claro depois de "#plain"
+            boolean sealed = false;
+            // Chave da última linha "#dek"; null se ela não pôde ser aberta
+            SecretKey dataKey = null;
+            for (String line : Files.readAllLines(file, StandardCharsets.UTF_8)) {
+                try {
+                    if (line.equals(PLAIN_LINE)) {
+                        sealed = false;
+                        continue;
+                    }
+                    if (line.startsWith(CardPanEncryption.DATA_KEY_LINE_PREFIX)) {
+                        sealed = true;
+                        dataKey = null;
+                        dataKey = panEncryption.openDataKeyLine(line);
+                        continue;
+                    }
+                    String[] fields = line.split("\t", 5);
+                    CreditCardBrand brand = CreditCardBrand.valueOf(fields[0]);
+                    if (fields.length == 5) {
+                        long id = Long.parseLong(fields[1]);
+                        String number = sealed ? unseal(dataKey, id, fields[3]) : fields[3];
+                        cards.add(new ReceivedCreditCard(id, fields[2], fields[4], number, brand));
+                    } else if (fields.length == 4) {
+                        // Formato anterior cifrado: o ID foi gravado, o UUID não
+                        long id = Long.parseLong(fields[1]);
+                        String number = unseal(dataKey, id, fields[2]);
+                        cards.add(new ReceivedCreditCard(id, UUID.randomUUID().toString(), fields[3], number, brand));
+                    } else if (fields.length == 3) {
+                        // Formato anterior em claro, sem ID: o cartão é cadastrado de novo
+                        cards.add(new DefaultCreditCard(fields[2], fields[1], brand));
+                    }
+                } catch (RuntimeException e) {
+                    log.error("Linha inválida descartada do arquivo {}: {}", file, e.getMessage());
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Falha ao ler cartões pendentes de " + file, e);
+        }
+        return cards;
+    }
+
+    private String unseal(SecretKey dataKey, long id, String token) {
+        if (dataKey == null) {
+            throw new IllegalStateException("chave do lote cifrado indisponível");
+        }
+        return panEncryption.unseal(dataKey, id, token);
+    }
+
+    /**
+     * Remove os primeiros count cartões lidos por {@link #read()}, depois de aceitos de novo.
+     * Cartões gravados depois da leitura ficam no fim do arquivo e são preservados.
+     * O restante é regravado num arquivo temporário e trocado de uma vez; sem restante, o arquivo é apagado.
+     */
+    public synchronized void removeFirst(int count) {
+        if (count <= 0) {
+            return;
+        }
+        List<CreditCard> remaining = read();
+        try {
+            if (count >= remaining.size()) {
+                Files.deleteIfExists(file);
+                return;
+            }
+            Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+            Files.deleteIfExists(temp);
+            writeTo(temp, remaining.subList(count, remaining.size()));
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Falha ao atualizar cartões pendentes em " + file, e);
+        }
+    }
+}
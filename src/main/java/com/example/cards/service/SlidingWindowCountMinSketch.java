@@ -0,0 +1,142 @@
+package com.example.cards.service;
+
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Count-min sketch com janela deslizante: a janela é dividida em sub-janelas,
+ * cada uma com seus próprios contadores, e a estimativa soma as sub-janelas
+ * ainda válidas. Memória fixa (buckets x depth x width inteiros), independente da
+ * quantidade de chaves. Os contadores de uma célula nas várias sub-janelas ficam lado a lado,
+ * para que cada linha de hash custe um acesso à memória. Os incrementos são atômicos e sem lock;
+ * só a rotação de uma sub-janela vencida sincroniza, e apenas naquela sub-janela.
+ *
+ * Usa atualização conservadora dentro da sub-janela corrente: só sobem os contadores
+ * que estão no mínimo entre as linhas, o que reduz a superestimativa das colisões.
+ * A estimativa pode ser maior que a contagem real; com N contagens na janela e largura w,
+ * a superestimativa passa de e·N/w com probabilidade de no máximo e^-depth. Só fica abaixo
+ * da contagem real em incrementos simultâneos da mesma chave, e por no máximo esses incrementos.
+ */
+public class SlidingWindowCountMinSketch {
+
+    private final int depth;
+    private final int width;
+    private final int mask;
+    private final int buckets;
+    private final long bucketMillis;
+    // Contador da célula (linha, coluna) na sub-janela b em ((linha * width) + coluna) * buckets + b
+    private final AtomicIntegerArray counters;
+    private final AtomicLongArray bucketEpochs;
+    private final Object[] rotationLocks;
+
+    /**
+     * @param depth        linhas de hash
+     * @param width        colunas por linha (arredondado para potência de 2)
+     * @param buckets      sub-janelas (até 64)
+     * @param windowMillis duração total da janela
+     */
+    public SlidingWindowCountMinSketch(int depth, int width, int buckets, long windowMillis) {
+        if (depth < 1 || width < 1 || buckets < 1 || buckets > Long.SIZE || windowMillis < buckets) {
+            throw new IllegalArgumentException("Parâmetros inválidos para o sketch");
+        }
+        this.depth = depth;
+        this.width = Integer.highestOneBit(width);
+        this.mask = this.width - 1;
+        this.buckets = buckets;
+        this.bucketMillis = windowMillis / buckets;
+        this.counters = new AtomicIntegerArray(depth * this.width * buckets);
+        this.bucketEpochs = new AtomicLongArray(buckets);
+        this.rotationLocks = new Object[buckets];
+        for (int i = 0; i < buckets; i++) {
+            bucketEpochs.set(i, Long.MIN_VALUE);
+            rotationLocks[i] = new Object();
+        }
+    }
+
+    /**
+     * Menor largura, em potência de 2, que mantém a superestimativa abaixo de maxError
+     * (com a probabilidade dada pela profundidade) para expectedPerWindow contagens na janela.
+     */
+    public static int widthFor(long expectedPerWindow, double maxError) {
+        if (expectedPerWindow < 1 || maxError <= 0) {
+            throw new IllegalArgumentException("Parâmetros inválidos para o sketch");
+        }
+        double width = Math.ceil(Math.E * expectedPerWindow / maxError);
+        if (width > 1 << 30) {
+            throw new IllegalArgumentException("Largura acima do máximo para " + expectedPerWindow
+                    + " contagens com erro " + maxError);
+        }
+        int w = Math.max(1, (int) width);
+        return w == Integer.highestOneBit(w) ? w : Integer.highestOneBit(w) << 1;
+    }
+
+    /** Memória, em bytes, de um sketch com estes parâmetros */
+    public static long memoryBytes(int depth, int width, int buckets) {
+        return 4L * depth * Integer.highestOneBit(width) * buckets;
+    }
+
+    /**
+     * Conta mais uma ocorrência da chave e retorna a estimativa de ocorrências na janela,
+     * já incluindo esta.
+     */
+    public int incrementAndEstimate(long hash, long nowMillis) {
+        long epoch = nowMillis / bucketMillis;
+        int current = (int) Math.floorMod(epoch, (long) buckets);
+        rotateIfStale(current, epoch);
+
+        // Sub-janelas ainda dentro da janela, lidas uma vez por chamada
+        long oldestValidEpoch = epoch - buckets + 1;
+        long valid = 0;
+        for (int b = 0; b < buckets; b++) {
+            if (bucketEpochs.get(b) >= oldestValidEpoch) {
+                valid |= 1L << b;
+            }
+        }
+
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32) | 1;
+        // Atualização conservadora: cada sub-janela é um sketch próprio, e nela só sobem as linhas no mínimo
+        int currentMin = Integer.MAX_VALUE;
+        for (int row = 0; row < depth; row++) {
+            currentMin = Math.min(currentMin, counters.get(cell(row, h1, h2) + current));
+        }
+        int estimate = Integer.MAX_VALUE;
+        for (int row = 0; row < depth; row++) {
+            int cell = cell(row, h1, h2);
+            if (counters.get(cell + current) == currentMin) {
+                counters.incrementAndGet(cell + current);
+            }
+            int total = 0;
+            for (int b = 0; b < buckets; b++) {
+                if ((valid & (1L << b)) != 0) {
+                    total += counters.get(cell + b);
+                }
+            }
+            estimate = Math.min(estimate, total);
+        }
+        return estimate;
+    }
+
+    /** Posição do contador da linha na primeira sub-janela */
+    private int cell(int row, int h1, int h2) {
+        return (row * width + ((h1 + row * h2) & mask)) * buckets;
+    }
+
+    private void rotateIfStale(int bucket, long epoch) {
+        // Só rotaciona para frente: uma thread atrasada conta na sub-janela já rotacionada
+        if (bucketEpochs.get(bucket) < epoch) {
+            synchronized (rotationLocks[bucket]) {
+                if (bucketEpochs.get(bucket) < epoch) {
+                    for (int i = bucket; i < counters.length(); i += buckets) {
+                        counters.set(i, 0);
+                    }
+                    bucketEpochs.set(bucket, epoch);
+                }
+            }
+        }
+    }
+
+    public long memoryBytes() {
+        return memoryBytes(depth, width, buckets);
+    }
+}
@@ -0,0 +1,23 @@
+package com.example.cards.sink;
+
+import com.example.cards.domain.CreditCard;
+import com.example.cards.domain.CreditCardBrand;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Destino dos lotes de cartões de uma bandeira. Cada bandeira escolhe o seu pelo nome
+ * em cards.pipeline.brands.&lt;bandeira&gt;.sink.
+ */
+public interface CardSink {
+
+    /** Nome usado na configuração da bandeira */
+    String getName();
+
+    /**
+     * Grava o lote sem bloquear quem chama. O futuro completa quando o lote estiver
+     * confirmado, com a lista de cartões que não foram gravados; não completa com exceção.
+     */
+    CompletableFuture<List<CreditCard>> publish(CreditCardBrand brand, List<CreditCard> batch);
+}
@@ -0,0 +1,43 @@
+package com.example.cards.sink;
+
+import com.example.cards.domain.CreditCardBrand;
+import com.example.cards.domain.KafkaTopicStrategyProvider;
+
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Resolve o {@link CardSink} de cada bandeira pelo nome configurado no seu pipeline.
+ * Um nome desconhecido impede a aplicação de subir.
+ */
+@Component
+public class CardSinkRegistry {
+
+    private static final org.slf4j.Logger log = org.slf4j.LoggerFactory.getLogger(CardSinkRegistry.class);
+
+    private final Map<String, CardSink> sinks;
+    private final KafkaTopicStrategyProvider topicStrategyProvider;
+
+    public CardSinkRegistry(List<CardSink> sinkList, KafkaTopicStrategyProvider topicStrategyProvider) {
+        this.sinks = sinkList.stream().collect(Collectors.toMap(CardSink::getName, Function.identity()));
+        this.topicStrategyProvider = topicStrategyProvider;
+        for (CreditCardBrand brand : CreditCardBrand.values()) {
+            CardSink sink = sinkFor(brand);
+            log.info("### Lotes da bandeira {} vão para o destino {}", brand, sink.getName());
+        }
+    }
+
+    public CardSink sinkFor(CreditCardBrand brand) {
+        String name = topicStrategyProvider.getPipelineSettings(brand).sink();
+        CardSink sink = sinks.get(name);
+        if (sink == null) {
+            throw new IllegalStateException("Destino desconhecido para a bandeira " + brand + ": " + name
+                    + " (disponíveis: " + sinks.keySet() + ")");
+        }
+        return sink;
+    }
+}
@@ -0,0 +1,283 @@
+package com.example.cards.sink;
+
+import com.example.cards.domain.CreditCard;
+import com.example.cards.domain.CreditCardBrand;
+import com.example.cards.domain.CreditCardJsonCodec;
+import com.example.cards.domain.PreSerializedCreditCard;
+import com.example.cards.domain.crypto.PanEnvelope;
+import com.example.cards.service.CardPanEncryption;
+
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Stream;
+
+/**
+ * Grava os lotes em segmentos NDJSON locais, em &lt;dir&gt;/&lt;bandeira&gt;/&lt;sequência&gt;.ndjson,
+ * um cartão por linha. Lotes com o número cifrado são precedidos da linha
+ * "#dek &lt;chave do lote em base64&gt; &lt;id da chave mestra&gt;".
+ *
+ * Cada bandeira tem uma thread de escrita que junta os lotes pendentes numa única escrita
+ * e, com fsync habilitado, num único force; os futuros só completam depois disso.
+ * Um lote nunca é dividido entre segmentos; o segmento é trocado ao passar de segment-size.
+ *
+ * No encerramento, lotes publicados depois do fechamento completam na hora com todos os cartões,
+ * como não gravados; nenhum lote entra na fila de uma bandeira depois do seu sinal de parada.
+ */
+@Component
+public class FileCardSink implements CardSink, DisposableBean {
+
+    private static final org.slf4j.Logger log = org.slf4j.LoggerFactory.getLogger(FileCardSink.class);
+
+    public static final String NAME = "file";
+
+    private static final String SEGMENT_SUFFIX = ".ndjson";
+    private static final int MAX_GROUPED_BATCHES = 256;
+
+    private final Path baseDir;
+    private final long segmentSize;
+    private final boolean fsync;
+    private final CardPanEncryption panEncryption;
+
+    private final AtomicReferenceArray<BrandWriter> writers = new AtomicReferenceArray<>(CreditCardBrand.values().length);
+    /** publish enfileira com a leitura; destroy fecha com a escrita, então nada entra na fila depois do STOP */
+    private final ReentrantReadWriteLock closeLock = new ReentrantReadWriteLock();
+    private volatile boolean closed;
+
+    public FileCardSink(@Value("${cards.sink.file.dir:data/sink}") String baseDir,
+                        @Value("${cards.sink.file.segment-size:64MB}") DataSize segmentSize,
+                        @Value("${cards.sink.file.fsync:true}") boolean fsync,
+                        CardPanEncryption panEncryption) {
+        this.baseDir = Path.of(baseDir);
+        this.segmentSize = segmentSize.toBytes();
+        this.fsync = fsync;
+        this.panEncryption = panEncryption;
+    }
+
+    @Override
+    public String getName() {
+        return NAME;
+    }
+
+    @Override
+    public CompletableFuture<List<CreditCard>> publish(CreditCardBrand brand, List<CreditCard> batch) {
+        if (closed) {
+            return CompletableFuture.completedFuture(List.copyOf(batch));
+        }
+        PendingBatch pending = new PendingBatch(batch, encode(batch), new CompletableFuture<>());
+        closeLock.readLock().lock();
+        try {
+            if (closed) {
+                return CompletableFuture.completedFuture(List.copyOf(batch));
+            }
+            writerFor(brand).queue.add(pending);
+        } finally {
+            closeLock.readLock().unlock();
+        }
+        return pending.result();
+    }
+
+    /** O lote inteiro num único array: a linha da chave, se houver, e um cartão por linha */
+    private byte[] encode(List<CreditCard> batch) {
+        PanEnvelope panEnvelope = panEncryption.isEnabled() ? panEncryption.newEnvelope() : null;
+        byte[] header = panEnvelope == null ? new byte[0]
+                : (panEncryption.dataKeyLine(panEnvelope) + "\n").getBytes(StandardCharsets.US_ASCII);
+        byte[][] lines = new byte[batch.size()][];
+        int length = header.length;
+        for (int i = 0; i < lines.length; i++) {
+            CreditCard card = batch.get(i);
+            if (panEnvelope != null) {
+                card = panEncryption.seal(panEnvelope, card);
+            }
+            lines[i] = card instanceof PreSerializedCreditCard preSerialized
+                    ? preSerialized.getPayload()
+                    : CreditCardJsonCodec.encode(card);
+            length += lines[i].length + 1;
+        }
+        byte[] out = new byte[length];
+        System.arraycopy(header, 0, out, 0, header.length);
+        int pos = header.length;
+        for (byte[] line : lines) {
+            System.arraycopy(line, 0, out, pos, line.length);
+            pos += line.length;
+            out[pos++] = '\n';
+        }
+        return out;
+    }
+
+    /** Chamado com a leitura de closeLock, então destroy sempre vê a thread do writer já atribuída */
+    private BrandWriter writerFor(CreditCardBrand brand) {
+        BrandWriter writer = writers.get(brand.ordinal());
+        if (writer != null) {
+            return writer;
+        }
+        BrandWriter created = new BrandWriter(brand);
+        if (writers.compareAndSet(brand.ordinal(), null, created)) {
+            created.thread = Thread.ofPlatform().daemon().name("card-sink-file-" + brand.name().toLowerCase(Locale.ROOT))
+                    .start(created);
+            return created;
+        }
+        return writers.get(brand.ordinal());
+    }
+
+    @Override
+    public void destroy() throws Exception {
+        closeLock.writeLock().lock();
+        try {
+            closed = true;
+        } finally {
+            closeLock.writeLock().unlock();
+        }
+        for (int i = 0; i < writers.length(); i++) {
+            BrandWriter writer = writers.get(i);
+            if (writer != null) {
+                writer.queue.add(PendingBatch.STOP);
+                writer.thread.join(TimeUnit.SECONDS.toMillis(30));
+                if (writer.thread.isAlive()) {
+                    // A escrita em andamento completa o seu grupo; o que ainda está na fila sai como não gravado
+                    log.warn("Escrita da bandeira {} não terminou em 30s; lotes na fila ficam como não gravados", writer.brand);
+                    writer.rejectQueued();
+                }
+            }
+        }
+    }
+
+    private record PendingBatch(List<CreditCard> cards, byte[] bytes, CompletableFuture<List<CreditCard>> result) {
+        static final PendingBatch STOP = new PendingBatch(List.of(), new byte[0], new CompletableFuture<>());
+    }
+
+    private final class BrandWriter implements Runnable {
+
+        private final CreditCardBrand brand;
+        private final Path dir;
+        private final LinkedBlockingQueue<PendingBatch> queue = new LinkedBlockingQueue<>();
+        private Thread thread;
+
+        private FileChannel channel;
+        private long segmentSequence = -1;
+        private long segmentBytes;
+
+        BrandWriter(CreditCardBrand brand) {
+            this.brand = brand;
+            this.dir = baseDir.resolve(brand.name().toLowerCase(Locale.ROOT));
+        }
+
+        @Override
+        public void run() {
+            List<PendingBatch> group = new ArrayList<>();
+            boolean stopping = false;
+            while (!stopping) {
+                try {
+                    group.add(queue.take());
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    break;
+                }
+                queue.drainTo(group, MAX_GROUPED_BATCHES - 1);
+                stopping = group.remove(PendingBatch.STOP);
+                write(group);
+                group.clear();
+            }
+            // Com o STOP sempre por último na fila, só sobra algo aqui se a thread foi interrompida
+            rejectQueued();
+            closeSegment();
+        }
+
+        /** Completa como não gravados os lotes ainda na fila, mantendo o STOP */
+        void rejectQueued() {
+            for (Iterator<PendingBatch> it = queue.iterator(); it.hasNext(); ) {
+                PendingBatch pending = it.next();
+                if (pending != PendingBatch.STOP) {
+                    it.remove();
+                    pending.result().complete(List.copyOf(pending.cards()));
+                }
+            }
+        }
+
+        private void write(List<PendingBatch> group) {
+            if (group.isEmpty()) {
+                return;
+            }
+            try {
+                for (PendingBatch pending : group) {
+                    if (channel == null || segmentBytes >= segmentSize) {
+                        openNextSegment();
+                    }
+                    ByteBuffer buffer = ByteBuffer.wrap(pending.bytes());
+                    while (buffer.hasRemaining()) {
+                        channel.write(buffer);
+                    }
+                    segmentBytes += pending.bytes().length;
+                }
+                if (fsync) {
+                    channel.force(false);
+                }
+                for (PendingBatch pending : group) {
+                    pending.result().complete(List.of());
+                }
+            } catch (IOException | RuntimeException e) {
+                log.error("Erro ao gravar {} lotes da bandeira {} em {}", group.size(), brand, dir, e);
+                // O segmento pode ter ficado com um lote parcial; os próximos vão para um novo
+                closeSegment();
+                for (PendingBatch pending : group) {
+                    pending.result().complete(List.copyOf(pending.cards()));
+                }
+            }
+        }
+
+        private void openNextSegment() throws IOException {
+            closeSegment();
+            if (segmentSequence < 0) {
+                Files.createDirectories(dir);
+                segmentSequence = lastSegmentSequence();
+            }
+            segmentSequence++;
+            Path segment = dir.resolve(String.format("%020d%s", segmentSequence, SEGMENT_SUFFIX));
+            channel = FileChannel.open(segment, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+            segmentBytes = 0;
+            log.info("### Novo segmento da bandeira {}: {}", brand, segment);
+        }
+
+        private long lastSegmentSequence() throws IOException {
+            try (Stream<Path> files = Files.list(dir)) {
+                return files.map(path -> path.getFileName().toString())
+                        .filter(name -> name.endsWith(SEGMENT_SUFFIX))
+                        .map(name -> name.substring(0, name.length() - SEGMENT_SUFFIX.length()))
+                        .filter(name -> !name.isEmpty() && name.chars().allMatch(Character::isDigit))
+                        .mapToLong(Long::parseLong)
+                        .max()
+                        .orElse(0);
+            }
+        }
+
+        private void closeSegment() {
+            if (channel == null) {
+                return;
+            }
+            try {
+                channel.close();
+            } catch (IOException e) {
+                log.warn("Erro ao fechar o segmento da bandeira {}", brand, e);
+            }
+            channel = null;
+        }
+    }
+}
@@ -0,0 +1,89 @@
+package com.example.cards.sink;
+
+import com.example.cards.domain.CreditCard;
+import com.example.cards.domain.CreditCardBrand;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Mantém os últimos cartões de cada bandeira num anel em memória, sem locks:
+ * cada lote reserva suas posições com um único getAndAdd e sobrescreve as mais antigas.
+ * Completa na hora e nunca falha; serve para testes e para medir o pipeline sem broker.
+ */
+@Component
+public class InMemoryCardSink implements CardSink {
+
+    public static final String NAME = "memory";
+
+    private final Ring[] rings = new Ring[CreditCardBrand.values().length];
+
+    public InMemoryCardSink(@Value("${cards.sink.memory.capacity:65536}") int capacity) {
+        if (Integer.bitCount(capacity) != 1) {
+            throw new IllegalArgumentException("cards.sink.memory.capacity deve ser potência de 2: " + capacity);
+        }
+        for (int i = 0; i < rings.length; i++) {
+            rings[i] = new Ring(capacity);
+        }
+    }
+
+    @Override
+    public String getName() {
+        return NAME;
+    }
+
+    @Override
+    public CompletableFuture<List<CreditCard>> publish(CreditCardBrand brand, List<CreditCard> batch) {
+        rings[brand.ordinal()].append(batch);
+        return CompletableFuture.completedFuture(List.of());
+    }
+
+    /** Total de cartões recebidos da bandeira desde o início */
+    public long getPublishedCount(CreditCardBrand brand) {
+        return rings[brand.ordinal()].published.get();
+    }
+
+    /** Até limit cartões mais recentes da bandeira, do mais antigo ao mais novo */
+    public List<CreditCard> getRecent(CreditCardBrand brand, int limit) {
+        return rings[brand.ordinal()].recent(limit);
+    }
+
+    private static final class Ring {
+
+        private final AtomicReferenceArray<CreditCard> slots;
+        private final int mask;
+        private final AtomicLong published = new AtomicLong();
+
+        Ring(int capacity) {
+            this.slots = new AtomicReferenceArray<>(capacity);
+            this.mask = capacity - 1;
+        }
+
+        void append(List<CreditCard> batch) {
+            long start = published.getAndAdd(batch.size());
+            for (int i = 0; i < batch.size(); i++) {
+                slots.lazySet((int) ((start + i) & mask), batch.get(i));
+            }
+        }
+
+        List<CreditCard> recent(int limit) {
+            long end = published.get();
+            long start = Math.max(0, end - Math.min(limit, slots.length()));
+            List<CreditCard> cards = new ArrayList<>((int) (end - start));
+            for (long seq = start; seq < end; seq++) {
+                // Posições reservadas por um lote ainda em escrita podem estar vazias ou com o cartão anterior
+                CreditCard card = slots.get((int) (seq & mask));
+                if (card != null) {
+                    cards.add(card);
+                }
+            }
+            return cards;
+        }
+    }
+}
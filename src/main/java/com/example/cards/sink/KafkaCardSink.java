@@ -0,0 +1,119 @@
+package com.example.cards.sink;
+
+import com.example.cards.domain.CreditCard;
+import com.example.cards.domain.CreditCardBrand;
+import com.example.cards.domain.CreditCardEnvelope;
+import com.example.cards.domain.KafkaTopicStrategyProvider;
+import com.example.cards.domain.crypto.PanEnvelope;
+import com.example.cards.service.BrandProducerRegistry;
+import com.example.cards.service.CardPanEncryption;
+
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Envia os lotes ao tópico da bandeira pelo seu producer dedicado.
+ * Com a cifragem habilitada, o lote inteiro usa um único envelope de chave.
+ * Com envelopeSize maior que 1, cada registro Kafka leva até envelopeSize cartões
+ * e a falha de um registro conta como falha de todos os seus cartões.
+ * A primeira falha de envio encerra o lote: os registros seguintes não são enviados e contam como falha.
+ */
+@Component
+public class KafkaCardSink implements CardSink {
+
+    public static final String NAME = "kafka";
+
+    private final BrandProducerRegistry producerRegistry;
+    private final KafkaTopicStrategyProvider topicStrategyProvider;
+    private final CardPanEncryption panEncryption;
+
+    public KafkaCardSink(BrandProducerRegistry producerRegistry,
+                         KafkaTopicStrategyProvider topicStrategyProvider,
+                         CardPanEncryption panEncryption) {
+        this.producerRegistry = producerRegistry;
+        this.topicStrategyProvider = topicStrategyProvider;
+        this.panEncryption = panEncryption;
+    }
+
+    @Override
+    public String getName() {
+        return NAME;
+    }
+
+    @Override
+    public CompletableFuture<List<CreditCard>> publish(CreditCardBrand brand, List<CreditCard> batch) {
+        return publish(brand, batch, topicStrategyProvider.getTopicName(brand));
+    }
+
+    /**
+     * Como {@link #publish(CreditCardBrand, List)}, mas para o tópico informado em vez do tópico da bandeira
+     * (ex: replay que recodifica um tópico num tópico novo). Usa o producer, os envelopes e a cifragem da bandeira.
+     */
+    public CompletableFuture<List<CreditCard>> publish(CreditCardBrand brand, List<CreditCard> batch, String topic) {
+        KafkaTemplate<String, Object> kafkaTemplate = producerRegistry.templateFor(brand);
+        int envelopeSize = Math.max(1, topicStrategyProvider.getPipelineSettings(brand).envelopeSize());
+
+        List<CreditCard> failed = Collections.synchronizedList(new ArrayList<>());
+        CompletableFuture<?>[] sends = new CompletableFuture<?>[(batch.size() + envelopeSize - 1) / envelopeSize];
+        PanEnvelope panEnvelope = panEncryption.isEnabled() ? panEncryption.newEnvelope() : null;
+        // Depois da primeira falha o restante do lote falha sem chamar send: com o broker fora,
+        // cada send bloquearia até max.block.ms
+        AtomicBoolean aborted = new AtomicBoolean();
+        for (int i = 0; i < sends.length; i++) {
+            List<CreditCard> cards = envelopeSize == 1
+                    ? List.of(batch.get(i))
+                    : batch.subList(i * envelopeSize, Math.min(batch.size(), (i + 1) * envelopeSize));
+            if (aborted.get()) {
+                failed.addAll(cards);
+                sends[i] = CompletableFuture.completedFuture(null);
+                continue;
+            }
+            try {
+                sends[i] = kafkaTemplate.send(record(topic, cards, panEnvelope)).whenComplete((result, ex) -> {
+                    if (ex != null) {
+                        aborted.set(true);
+                        failed.addAll(cards);
+                    }
+                });
+            } catch (Exception e) {
+                aborted.set(true);
+                failed.addAll(cards);
+                sends[i] = CompletableFuture.failedFuture(e);
+            }
+        }
+
+        return CompletableFuture.allOf(sends).handle((ignored, ex) -> List.copyOf(failed));
+    }
+
+    private ProducerRecord<String, Object> record(String topic, List<CreditCard> cards, PanEnvelope panEnvelope) {
+        List<CreditCard> values = cards;
+        if (panEnvelope != null) {
+            values = new ArrayList<>(cards.size());
+            for (CreditCard card : cards) {
+                values.add(panEncryption.seal(panEnvelope, card));
+            }
+        }
+        ProducerRecord<String, Object> record;
+        if (cards.size() == 1) {
+            record = new ProducerRecord<>(topic, values.get(0));
+        } else {
+            record = new ProducerRecord<>(topic, CreditCardEnvelope.of(values));
+            record.headers().add(CreditCardEnvelope.COUNT_HEADER,
+                    Integer.toString(cards.size()).getBytes(StandardCharsets.US_ASCII));
+        }
+        if (panEnvelope != null) {
+            record.headers()
+                    .add(PanEnvelope.DATA_KEY_HEADER, panEnvelope.getWrappedKey())
+                    .add(PanEnvelope.MASTER_KEY_ID_HEADER, panEnvelope.getMasterKeyId());
+        }
+        return record;
+    }
+}
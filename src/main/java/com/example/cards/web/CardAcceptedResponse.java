@@ -0,0 +1,23 @@
+package com.example.cards.web;
+
+import com.example.cards.domain.CardDeliveryStatus;
+
+import com.fasterxml.jackson.annotation.JsonFormat;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+
+/**
+ * Resposta do cadastro assíncrono (202 Accepted)
+ */
+@Schema(description = "Cadastro aceito para processamento assíncrono")
+public record CardAcceptedResponse(
+        @Schema(description = "ID do cartão, como texto: os IDs passam de 2^53 e perderiam precisão "
+                + "como número em JavaScript", type = "string", example = "1879473421984727041")
+        @JsonFormat(shape = JsonFormat.Shape.STRING)
+        long id,
+        @Schema(description = "Situação atual da entrega; nula se o cartão já não é acompanhado "
+                + "(cards.status.ttl e cards.status.capacity), o que só ocorre ao repetir uma Idempotency-Key antiga", example = "QUEUED")
+        CardDeliveryStatus status,
+        @Schema(description = "URL para consultar a situação", example = "/api/cards/1879473421984727041/status")
+        String statusUrl) {
+}
@@ -0,0 +1,45 @@
+package com.example.cards.web;
+
+import java.util.List;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.example.cards.consumer.CardFeeSummaryStore;
+import com.example.cards.consumer.CardFeeWindowSummary;
+import com.example.cards.domain.CreditCardBrand;
+
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import io.swagger.v3.oas.annotations.tags.Tag;
+
+/**
+ * Controller REST com os totais de tarifa por janela calculados pelo consumidor de agregação
+ */
+@RestController
+@RequestMapping("/api/cards/fees")
+@ConditionalOnProperty(name = "cards.aggregation.enabled", havingValue = "true")
+@Tag(name = "Card Fees API", description = "Totais de tarifa por bandeira em janelas de tempo")
+public class CardFeeSummaryController {
+
+    private final CardFeeSummaryStore summaryStore;
+
+    public CardFeeSummaryController(CardFeeSummaryStore summaryStore) {
+        this.summaryStore = summaryStore;
+    }
+
+    @Operation(summary = "Listar janelas fechadas", description = "Retorna as janelas fechadas mais recentes, "
+            + "por bandeira, com a quantidade de cartões e a tarifa total")
+    @ApiResponses({
+        @ApiResponse(responseCode = "200", description = "Janelas retornadas com sucesso")
+    })
+    @GetMapping(value = "/windows", produces = MediaType.APPLICATION_JSON_VALUE)
+    public List<CardFeeWindowSummary> getWindows(@RequestParam(required = false) CreditCardBrand brand) {
+        return summaryStore.recent(brand);
+    }
+}
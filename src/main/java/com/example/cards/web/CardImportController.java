@@ -0,0 +1,62 @@
+package com.example.cards.web;
+
+import java.net.URI;
+
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.example.cards.importer.CardFileImportService;
+import com.example.cards.importer.CardImportJobResponse;
+
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.validation.Valid;
+
+/**
+ * Controller REST para importação de arquivos de cartões em lote
+ */
+@RestController
+@RequestMapping("/api/cards/imports")
+@Tag(name = "Card Import API", description = "Importação de arquivos de cartões de parceiros")
+public class CardImportController {
+
+    private final CardFileImportService importService;
+
+    public CardImportController(CardFileImportService importService) {
+        this.importService = importService;
+    }
+
+    @Operation(summary = "Importar arquivo", description = "Inicia a importação de um arquivo CSV (holderName,number,brand) "
+            + "ou NDJSON do diretório de importação. Se o arquivo já foi parcialmente importado, retoma dos blocos pendentes")
+    @ApiResponses({
+        @ApiResponse(responseCode = "202", description = "Importação iniciada"),
+        @ApiResponse(responseCode = "400", description = "Arquivo inexistente ou formato não suportado")
+    })
+    @PostMapping(consumes = MediaType.APPLICATION_JSON_VALUE, produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<CardImportJobResponse> startImport(@Valid @RequestBody CardImportRequest request) {
+        CardImportJobResponse job = importService.start(request.file());
+        return ResponseEntity.accepted()
+                .location(URI.create("/api/cards/imports/" + job.id()))
+                .body(job);
+    }
+
+    @Operation(summary = "Consultar importação", description = "Retorna o progresso, os cartões por segundo "
+            + "e o arquivo de linhas rejeitadas da importação")
+    @ApiResponses({
+        @ApiResponse(responseCode = "200", description = "Progresso retornado com sucesso"),
+        @ApiResponse(responseCode = "404", description = "Job desconhecido")
+    })
+    @GetMapping(value = "/{id}", produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<CardImportJobResponse> getImport(@PathVariable String id) {
+        CardImportJobResponse job = importService.getJob(id);
+        return job != null ? ResponseEntity.ok(job) : ResponseEntity.notFound().build();
+    }
+}
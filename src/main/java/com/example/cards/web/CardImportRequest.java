@@ -0,0 +1,14 @@
+package com.example.cards.web;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import jakarta.validation.constraints.NotBlank;
+
+/**
+ * Request para importar um arquivo de cartões
+ */
+@Schema(description = "Arquivo a importar, relativo ao diretório de importação (cards.import.base-dir)")
+public record CardImportRequest(
+        @Schema(description = "Nome do arquivo .csv, .ndjson ou .jsonl", example = "parceiro-20261019.csv")
+        @NotBlank(message = "Nome do arquivo é obrigatório")
+        String file) {
+}
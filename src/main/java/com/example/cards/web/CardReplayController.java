@@ -0,0 +1,64 @@
+package com.example.cards.web;
+
+import java.net.URI;
+
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.example.cards.replay.CardReplayJobResponse;
+import com.example.cards.replay.CardReplayService;
+
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.validation.Valid;
+
+/**
+ * Controller REST para replay de tópicos de bandeira (backfills)
+ */
+@RestController
+@RequestMapping("/api/cards/replays")
+@Tag(name = "Card Replay API", description = "Releitura e republicação de tópicos de bandeira")
+public class CardReplayController {
+
+    private final CardReplayService replayService;
+
+    public CardReplayController(CardReplayService replayService) {
+        this.replayService = replayService;
+    }
+
+    @Operation(summary = "Iniciar replay", description = "Relê o tópico partição a partição entre os limites informados "
+            + "e republica os cartões no targetTopic ou, sem ele, pelo roteamento atual das bandeiras. "
+            + "Repetir o mesmo pedido retoma do checkpoint")
+    @ApiResponses({
+        @ApiResponse(responseCode = "202", description = "Replay iniciado ou já em andamento"),
+        @ApiResponse(responseCode = "400", description = "Tópico desconhecido, limites inválidos ou destino igual à origem")
+    })
+    @PostMapping(consumes = MediaType.APPLICATION_JSON_VALUE, produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<CardReplayJobResponse> startReplay(@Valid @RequestBody CardReplayRequest request) {
+        CardReplayJobResponse job = replayService.start(request.topic(), request.targetTopic(),
+                request.fromOffset(), request.toOffset(),
+                request.fromTimestamp(), request.toTimestamp(), Boolean.TRUE.equals(request.revalidate()), request.maxRate());
+        return ResponseEntity.accepted()
+                .location(URI.create("/api/cards/replays/" + job.id()))
+                .body(job);
+    }
+
+    @Operation(summary = "Consultar replay", description = "Retorna o progresso e os cartões por segundo do replay")
+    @ApiResponses({
+        @ApiResponse(responseCode = "200", description = "Progresso retornado com sucesso"),
+        @ApiResponse(responseCode = "404", description = "Job desconhecido")
+    })
+    @GetMapping(value = "/{id}", produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<CardReplayJobResponse> getReplay(@PathVariable String id) {
+        CardReplayJobResponse job = replayService.getJob(id);
+        return job != null ? ResponseEntity.ok(job) : ResponseEntity.notFound().build();
+    }
+}
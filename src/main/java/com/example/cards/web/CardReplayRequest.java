@@ -0,0 +1,35 @@
+package com.example.cards.web;
+
+import java.time.Instant;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.PositiveOrZero;
+
+/**
+ * Request para reler um tópico de bandeira e republicar os cartões
+ */
+@Schema(description = "Tópico e limites do replay; use offsets ou instantes, não os dois")
+public record CardReplayRequest(
+        @Schema(description = "Tópico a reler", example = "cartoes-visa")
+        @NotBlank(message = "Tópico é obrigatório")
+        String topic,
+        @Schema(description = "Tópico de destino; sem ele, os cartões seguem o roteamento atual das bandeiras",
+                example = "cartoes-visa-v2")
+        String targetTopic,
+        @Schema(description = "Primeiro offset relido em cada partição")
+        @PositiveOrZero(message = "fromOffset deve ser maior ou igual a zero")
+        Long fromOffset,
+        @Schema(description = "Offset final (exclusivo) em cada partição")
+        @PositiveOrZero(message = "toOffset deve ser maior ou igual a zero")
+        Long toOffset,
+        @Schema(description = "Relê a partir dos registros gravados neste instante", example = "2026-10-01T00:00:00Z")
+        Instant fromTimestamp,
+        @Schema(description = "Para nos registros gravados neste instante (exclusivo)", example = "2026-10-02T00:00:00Z")
+        Instant toTimestamp,
+        @Schema(description = "Valida de novo o número pela regra atual da bandeira e descarta os inválidos")
+        Boolean revalidate,
+        @Schema(description = "Cartões por segundo somando todas as partições (padrão cards.replay.max-rate, 0 sem limite)")
+        @PositiveOrZero(message = "maxRate deve ser maior ou igual a zero")
+        Integer maxRate) {
+}
@@ -0,0 +1,20 @@
+package com.example.cards.web;
+
+import com.example.cards.domain.CardDeliveryStatus;
+
+import com.fasterxml.jackson.annotation.JsonFormat;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+
+/**
+ * Situação de entrega de um cartão
+ */
+@Schema(description = "Situação de entrega de um cartão ao Kafka")
+public record CardStatusResponse(
+        @Schema(description = "ID do cartão, como texto: os IDs passam de 2^53 e perderiam precisão "
+                + "como número em JavaScript", type = "string", example = "1879473421984727041")
+        @JsonFormat(shape = JsonFormat.Shape.STRING)
+        long id,
+        @Schema(description = "QUEUED, PUBLISHED, FAILED ou SPOOLED (gravado no spool local, aguardando reenvio)", example = "PUBLISHED")
+        CardDeliveryStatus status) {
+}
@@ -1,18 +1,27 @@
 package com.example.cards.web;
 
+import java.net.URI;
 import java.util.List;
 
+import org.springframework.beans.factory.annotation.Value;
+
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
 
+import com.example.cards.domain.CardDeliveryStatus;
 import com.example.cards.domain.CreditCard;
-import com.example.cards.domain.DefaultCreditCard;
+import com.example.cards.exception.CreditCardNotFoundException;
+import com.example.cards.service.CardListingSnapshot;
 import com.example.cards.service.CreditCardRegistrationService;
 
 import io.swagger.v3.oas.annotations.Operation;
@@ -29,41 +38,115 @@ import jakarta.validation.Valid;
 @Tag(name = "Credit Cards API", description = "API REST para gerenciamento de cartões de crédito")
 public class CreditCardApiController {
 
+    private static final int MAX_SEARCH_RESULTS = 500;
+
     private final CreditCardRegistrationService service;
+    private final boolean asyncAccept;
 
-    public CreditCardApiController(CreditCardRegistrationService service) {
+    public CreditCardApiController(CreditCardRegistrationService service,
+                                   @Value("${cards.api.async-accept:false}") boolean asyncAccept) {
         this.service = service;
+        this.asyncAccept = asyncAccept;
     }
 
-    @Operation(summary = "Listar todos os cartões", description = "Retorna a lista completa de cartões registrados no sistema")
+    @Operation(summary = "Listar todos os cartões", description = "Retorna a lista completa de cartões registrados no sistema. "
+            + "Suporta If-None-Match: se a listagem não mudou desde o ETag informado, responde 304")
     @ApiResponses({
         @ApiResponse(responseCode = "200", description = "Lista de cartões retornada com sucesso"),
+        @ApiResponse(responseCode = "304", description = "Listagem não mudou desde o ETag informado"),
         @ApiResponse(responseCode = "500", description = "Erro interno do servidor")
     })
     @GetMapping(produces = MediaType.APPLICATION_JSON_VALUE)
-    public List<CreditCard> getAllCards() {
-        return service.getAllCards();
+    public ResponseEntity<List<CreditCard>> getAllCards(WebRequest request) {
+        // Responde 304 apenas com a versão, sem montar a listagem.
+        // O ETag é gravado na resposta pelo checkNotModified e nunca é mais novo que o conteúdo
+        if (request.checkNotModified(service.getListingETag())) {
+            return null;
+        }
+        CardListingSnapshot snapshot = service.getListingSnapshot();
+        return ResponseEntity.ok(snapshot.cards());
     }
 
-    @Operation(summary = "Registrar novo cartão", description = "Registra um novo cartão de crédito no sistema")
+    @Operation(summary = "Registrar novo cartão", description = "Registra um novo cartão de crédito no sistema. "
+            + "Com cards.api.async-accept habilitado responde 202 com o ID e a URL de situação do cartão. "
+            + "Com o cabeçalho Idempotency-Key, repetições dentro do TTL retornam o cartão do primeiro cadastro "
+            + "e, no modo assíncrono, a situação atual da sua entrega")
     @ApiResponses({
         @ApiResponse(responseCode = "201", description = "Cartão registrado com sucesso"),
+        @ApiResponse(responseCode = "202", description = "Cartão aceito e enfileirado para envio"),
         @ApiResponse(responseCode = "400", description = "Dados inválidos ou erro de validação"),
+        @ApiResponse(responseCode = "422", description = "Idempotency-Key já usada para outro cartão"),
         @ApiResponse(responseCode = "500", description = "Erro interno do servidor")
     })
     @PostMapping(consumes = MediaType.APPLICATION_JSON_VALUE, produces = MediaType.APPLICATION_JSON_VALUE)
-    public ResponseEntity<CreditCard> createCard(@Valid @RequestBody CreditCardApiRequest request) {
+    public ResponseEntity<?> createCard(@Valid @RequestBody CreditCardApiRequest request,
+                                        @RequestHeader(value = "Idempotency-Key", required = false) String idempotencyKey) {
         // O GlobalExceptionHandler trata automaticamente:
         // - MethodArgumentNotValidException (@Valid)
         // - IllegalArgumentException (regras de negócio)
-        
-        CreditCard creditCard = new DefaultCreditCard(
+
+        // O cartão só é montado (validação e ID) se a Idempotency-Key ainda não tiver cadastro
+        CreditCard registered = service.register(idempotencyKey,
                 request.getHolderName(),
-                request.getNumber(), 
-                request.getBrand()
-        );
-        
-        service.register(creditCard);
-        return ResponseEntity.status(HttpStatus.CREATED).body(creditCard);
+                request.getNumber(),
+                request.getBrand());
+        if (asyncAccept) {
+            String statusUrl = "/api/cards/" + registered.getId() + "/status";
+            // Situação lida do índice: uma repetição da Idempotency-Key vê o andamento do primeiro cadastro
+            CardDeliveryStatus status = service.getDeliveryStatus(registered.getId());
+            return ResponseEntity.accepted()
+                    .location(URI.create(statusUrl))
+                    .body(new CardAcceptedResponse(registered.getId(), status, statusUrl));
+        }
+        return ResponseEntity.status(HttpStatus.CREATED).body(registered);
+    }
+
+    @Operation(summary = "Buscar cartão por ID", description = "Retorna o cartão entre os cadastrados mais recentes "
+            + "mantidos no índice em memória (cards.lookup.capacity)")
+    @ApiResponses({
+        @ApiResponse(responseCode = "200", description = "Cartão encontrado"),
+        @ApiResponse(responseCode = "404", description = "Cartão desconhecido ou fora do índice")
+    })
+    @GetMapping(value = "/{id}", produces = MediaType.APPLICATION_JSON_VALUE)
+    public CreditCard getCard(@PathVariable long id) {
+        CreditCard card = service.findById(id);
+        if (card == null) {
+            throw new CreditCardNotFoundException(id);
+        }
+        return card;
+    }
+
+    @Operation(summary = "Pesquisar cartões", description = "Pesquisa pelo SHA-256 (hex) do número do cartão sem espaços "
+            + "ou traços, ou pelo início do nome do titular (sem diferenciar maiúsculas e acentos)")
+    @ApiResponses({
+        @ApiResponse(responseCode = "200", description = "Cartões encontrados, do mais recente ao mais antigo"),
+        @ApiResponse(responseCode = "400", description = "Nenhum critério informado ou hash inválido")
+    })
+    @GetMapping(value = "/search", produces = MediaType.APPLICATION_JSON_VALUE)
+    public List<CreditCard> searchCards(@RequestParam(required = false) String panHash,
+                                        @RequestParam(required = false) String holder,
+                                        @RequestParam(defaultValue = "50") int limit) {
+        if (panHash != null && !panHash.isBlank()) {
+            return service.findByPanHash(panHash);
+        }
+        if (holder != null && !holder.isBlank()) {
+            return service.findByHolderPrefix(holder, Math.clamp(limit, 1, MAX_SEARCH_RESULTS));
+        }
+        throw new IllegalArgumentException("Informe panHash ou holder");
+    }
+
+    @Operation(summary = "Consultar situação de entrega", description = "Retorna se o cartão está na fila (QUEUED), no spool local com o circuito aberto (SPOOLED), "
+            + "publicado no Kafka (PUBLISHED) ou se o envio falhou (FAILED)")
+    @ApiResponses({
+        @ApiResponse(responseCode = "200", description = "Situação retornada com sucesso"),
+        @ApiResponse(responseCode = "404", description = "Cartão desconhecido ou fora do período de acompanhamento")
+    })
+    @GetMapping(value = "/{id}/status", produces = MediaType.APPLICATION_JSON_VALUE)
+    public CardStatusResponse getCardStatus(@PathVariable long id) {
+        CardDeliveryStatus status = service.getDeliveryStatus(id);
+        if (status == null) {
+            throw new CreditCardNotFoundException(id);
+        }
+        return new CardStatusResponse(id, status);
     }
 }
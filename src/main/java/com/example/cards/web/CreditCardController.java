@@ -7,14 +7,19 @@ import org.springframework.validation.BindingResult;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.ModelAttribute;
 import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.context.request.WebRequest;
 
-import com.example.cards.domain.CreditCard;
-import com.example.cards.domain.DefaultCreditCard;
+import com.example.cards.exception.IdempotencyKeyConflictException;
+import com.example.cards.exception.VelocityLimitExceededException;
+import com.example.cards.service.CardListingSnapshot;
 import com.example.cards.service.CreditCardRegistrationService;
 
 import jakarta.validation.Valid;
 
+import java.util.UUID;
+
 @Controller
 @RequestMapping("/cards")
 public class CreditCardController {
@@ -27,7 +32,9 @@ public class CreditCardController {
 
     @GetMapping("/new")
     public String showForm(Model model) {
-        model.addAttribute("cardForm", new CreditCardForm());
+        CreditCardForm form = new CreditCardForm();
+        form.setIdempotencyKey(UUID.randomUUID().toString());
+        model.addAttribute("cardForm", form);
         model.addAttribute("brands", com.example.cards.domain.CreditCardBrand.values());
         return "register";
     }
@@ -35,6 +42,7 @@ public class CreditCardController {
     @PostMapping(consumes = MediaType.APPLICATION_FORM_URLENCODED_VALUE)
     public String registerCard(@Valid @ModelAttribute("cardForm") CreditCardForm form,
                              BindingResult bindingResult,
+                             @RequestHeader(value = "Idempotency-Key", required = false) String idempotencyKey,
                              Model model) {
         if (bindingResult.hasErrors()) {
             model.addAttribute("brands", com.example.cards.domain.CreditCardBrand.values());
@@ -42,25 +50,36 @@ public class CreditCardController {
         }
 
         try {
-            CreditCard card = new DefaultCreditCard(
+            service.register(idempotencyKey != null ? idempotencyKey : form.getIdempotencyKey(),
                     form.getHolderName(),
                     form.getNumber(),
-                    form.getBrand()
-            );
-
-            service.register(card);
+                    form.getBrand());
         } catch (IllegalArgumentException ex) {
             bindingResult.rejectValue("number", "error.number", ex.getMessage());
             model.addAttribute("brands", com.example.cards.domain.CreditCardBrand.values());
             return "register";
+        } catch (IdempotencyKeyConflictException ex) {
+            // Formulário reenviado com outros dados: um novo envio gera um novo cadastro
+            form.setIdempotencyKey(UUID.randomUUID().toString());
+            bindingResult.rejectValue("number", "error.idempotency", ex.getMessage());
+            model.addAttribute("brands", com.example.cards.domain.CreditCardBrand.values());
+            return "register";
+        } catch (VelocityLimitExceededException ex) {
+            bindingResult.rejectValue("holderName", "error.velocity", ex.getMessage());
+            model.addAttribute("brands", com.example.cards.domain.CreditCardBrand.values());
+            return "register";
         }
 
         return "redirect:/cards/list";
     }
 
     @GetMapping("/list")
-    public String listCards(Model model) {
-        model.addAttribute("cards", service.getAllCards());
+    public String listCards(Model model, WebRequest request) {
+        if (request.checkNotModified(service.getListingETag())) {
+            return null;
+        }
+        CardListingSnapshot snapshot = service.getListingSnapshot();
+        model.addAttribute("cards", snapshot.cards());
         return "list";
     }
 
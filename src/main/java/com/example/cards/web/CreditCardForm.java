@@ -19,6 +19,9 @@ public class CreditCardForm {
     @NotNull(message = "Bandeira é obrigatória")
     private CreditCardBrand brand;
 
+    /** Gerada ao abrir o formulário; identifica reenvios do mesmo cadastro */
+    private String idempotencyKey;
+
 
     public String getHolderName() {
         return holderName;
@@ -48,4 +51,12 @@ public class CreditCardForm {
     public void setBrand(CreditCardBrand brand) {
         this.brand = brand;
     }
-}
\ No newline at end of file
+
+    public String getIdempotencyKey() {
+        return idempotencyKey;
+    }
+
+    public void setIdempotencyKey(String idempotencyKey) {
+        this.idempotencyKey = idempotencyKey;
+    }
+}
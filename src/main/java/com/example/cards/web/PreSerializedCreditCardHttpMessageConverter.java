@@ -0,0 +1,83 @@
+package com.example.cards.web;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.List;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpInputMessage;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.converter.HttpMessageNotReadableException;
+
+import com.example.cards.domain.PreSerializedCreditCard;
+import com.example.cards.domain.PreSerializedCreditCardList;
+
+/**
+ * Escreve cartões pré-serializados diretamente no corpo da resposta, sem passar pelo Jackson.
+ * Registrado antes dos conversores padrão pelo {@link com.example.cards.config.WebConfig}.
+ *
+ * Somente escrita: {@link #canRead} é sempre false, então o Spring nunca escolhe este conversor
+ * para ler uma requisição.
+ */
+public class PreSerializedCreditCardHttpMessageConverter implements HttpMessageConverter<Object> {
+
+    private static final List<MediaType> MEDIA_TYPES = List.of(MediaType.APPLICATION_JSON);
+
+    @Override
+    public List<MediaType> getSupportedMediaTypes() {
+        return MEDIA_TYPES;
+    }
+
+    @Override
+    public boolean canRead(Class<?> clazz, MediaType mediaType) {
+        return false;
+    }
+
+    @Override
+    public boolean canWrite(Class<?> clazz, MediaType mediaType) {
+        return supports(clazz) && (mediaType == null || mediaType.isWildcardType()
+                || MediaType.APPLICATION_JSON.isCompatibleWith(mediaType));
+    }
+
+    @Override
+    public Object read(Class<?> clazz, HttpInputMessage inputMessage) {
+        throw new HttpMessageNotReadableException("Cartões pré-serializados são somente para escrita", inputMessage);
+    }
+
+    @Override
+    public void write(Object body, MediaType contentType, HttpOutputMessage outputMessage) throws IOException {
+        HttpHeaders headers = outputMessage.getHeaders();
+        if (headers.getContentType() == null) {
+            headers.setContentType(contentType == null || contentType.isWildcardType() || contentType.isWildcardSubtype()
+                    ? MediaType.APPLICATION_JSON : contentType);
+        }
+
+        // Os headers são gravados no primeiro getBody(), então o tamanho vem antes
+        if (body instanceof PreSerializedCreditCard card) {
+            headers.setContentLength(card.getPayload().length);
+            OutputStream out = outputMessage.getBody();
+            out.write(card.getPayload());
+            out.flush();
+            return;
+        }
+
+        PreSerializedCreditCardList cards = (PreSerializedCreditCardList) body;
+        OutputStream out = outputMessage.getBody();
+        out.write('[');
+        for (int i = 0; i < cards.size(); i++) {
+            if (i > 0) {
+                out.write(',');
+            }
+            out.write(cards.get(i).getPayload());
+        }
+        out.write(']');
+        out.flush();
+    }
+
+    private static boolean supports(Class<?> clazz) {
+        return PreSerializedCreditCard.class.isAssignableFrom(clazz)
+                || PreSerializedCreditCardList.class.isAssignableFrom(clazz);
+    }
+}
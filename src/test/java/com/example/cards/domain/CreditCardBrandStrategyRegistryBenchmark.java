@@ -0,0 +1,84 @@
+package com.example.cards.domain;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Custo de achar a estratégia da bandeira: o array do {@link CreditCardBrandStrategyRegistry}
+ * contra o ConcurrentHashMap e o valueOf(brand.name()) que ele substituiu, e um EnumMap como
+ * referência. As bandeiras vêm numa sequência aleatória fixa, para o JIT não dobrar a consulta.
+ *
+ * JMH, fora do mvn test padrão; roda com
+ * {@code mvn -Pbenchmark test-compile exec:exec -Djmh.args=CreditCardBrandStrategyRegistryBenchmark}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@OperationsPerInvocation(CreditCardBrandStrategyRegistryBenchmark.LOOKUPS)
+public class CreditCardBrandStrategyRegistryBenchmark {
+
+    static final int LOOKUPS = 1024;
+
+    private final CreditCardBrand[] brands = new CreditCardBrand[LOOKUPS];
+    private final Map<CreditCardBrand, CreditCardBrandStrategy> concurrentMap = new ConcurrentHashMap<>();
+    private final Map<CreditCardBrand, CreditCardBrandStrategy> enumMap = new EnumMap<>(CreditCardBrand.class);
+
+    @Setup
+    public void setup() {
+        Random random = new Random(42);
+        for (int i = 0; i < brands.length; i++) {
+            brands[i] = CreditCardBrand.values()[random.nextInt(CreditCardBrand.values().length)];
+        }
+        for (CreditCardBrand brand : CreditCardBrand.values()) {
+            concurrentMap.put(brand, CreditCardBrandStrategyRegistry.get(brand));
+            enumMap.put(brand, CreditCardBrandStrategyRegistry.get(brand));
+        }
+    }
+
+    @Benchmark
+    public void registryArray(Blackhole blackhole) {
+        for (CreditCardBrand brand : brands) {
+            blackhole.consume(CreditCardBrandStrategyRegistry.get(brand));
+        }
+    }
+
+    @Benchmark
+    public void concurrentHashMap(Blackhole blackhole) {
+        for (CreditCardBrand brand : brands) {
+            blackhole.consume(concurrentMap.get(brand));
+        }
+    }
+
+    @Benchmark
+    public void enumMap(Blackhole blackhole) {
+        for (CreditCardBrand brand : brands) {
+            blackhole.consume(enumMap.get(brand));
+        }
+    }
+
+    @Benchmark
+    public void enumValueOfName(Blackhole blackhole) {
+        for (CreditCardBrand brand : brands) {
+            blackhole.consume(CreditCardBrandStrategyProvider.valueOf(brand.name()).get());
+        }
+    }
+}
@@ -0,0 +1,81 @@
+package com.example.cards.domain;
+
+import java.util.concurrent.TimeUnit;
+
+import org.apache.kafka.common.header.internals.RecordHeaders;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import com.example.cards.domain.kafka.CreditCardPayloadSerializer;
+
+import tools.jackson.databind.json.JsonMapper;
+
+/**
+ * Custo por cartão de gerar o JSON com o {@link CreditCardJsonCodec} e com o {@link JsonMapper},
+ * e do cadastro inteiro com cards.payload.serialize-once ligado (um {@link PreSerializedCreditCard}
+ * cujos bytes vão para o registro do Kafka e para a resposta HTTP) e desligado (o serializer
+ * do Kafka codifica o cartão e a resposta HTTP passa pelo JsonMapper).
+ *
+ * JMH, fora do mvn test padrão; roda com
+ * {@code mvn -Pbenchmark test-compile exec:exec "-Djmh.args=CreditCardPayloadBenchmark -prof gc"}.
+ * Com -prof gc, a coluna gc.alloc.rate.norm dá os bytes alocados por cartão.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CreditCardPayloadBenchmark {
+
+    private static final String TOPIC = "cartoes-visa";
+
+    private CreditCard card;
+    private JsonMapper jsonMapper;
+    private CreditCardPayloadSerializer serializer;
+
+    @Setup
+    public void setup() {
+        card = new DefaultCreditCard("Ana Souza", "4111111111111111", CreditCardBrand.VISA);
+        jsonMapper = JsonMapper.builder().build();
+        serializer = new CreditCardPayloadSerializer();
+    }
+
+    @TearDown
+    public void tearDown() {
+        serializer.close();
+    }
+
+    @Benchmark
+    public byte[] codec() {
+        return CreditCardJsonCodec.encode(card);
+    }
+
+    @Benchmark
+    public byte[] jsonMapper() {
+        return jsonMapper.writeValueAsBytes(card);
+    }
+
+    @Benchmark
+    public void serializeOnce(Blackhole blackhole) {
+        PreSerializedCreditCard preSerialized = PreSerializedCreditCard.of(card);
+        blackhole.consume(serializer.serialize(TOPIC, new RecordHeaders(), preSerialized));
+        blackhole.consume(preSerialized.getPayload());
+    }
+
+    @Benchmark
+    public void serializePerUse(Blackhole blackhole) {
+        blackhole.consume(serializer.serialize(TOPIC, new RecordHeaders(), card));
+        blackhole.consume(jsonMapper.writeValueAsBytes(card));
+    }
+}
@@ -0,0 +1,97 @@
+package com.example.cards.domain.crypto;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.nio.file.Path;
+import java.util.Base64;
+
+import javax.crypto.AEADBadTagException;
+import javax.crypto.SecretKey;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class PanEnvelopeTest {
+
+    private static final String PAN = "4111111111111111";
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void decryptsWhatTheBatchEncrypted() {
+        MasterKey masterKey = MasterKey.load(dir.resolve("master.key"), true);
+        PanEnvelope envelope = PanEnvelope.forNewBatch(masterKey);
+
+        String first = envelope.encrypt(1L, PAN);
+        String second = envelope.encrypt(2L, PAN);
+        SecretKey dataKey = PanEnvelope.unwrapDataKey(masterKey, envelope.getWrappedKey());
+
+        assertThat(first).doesNotContain(PAN).isNotEqualTo(second);
+        assertThat(PanEnvelope.decrypt(dataKey, 1L, first)).isEqualTo(PAN);
+        assertThat(PanEnvelope.decrypt(dataKey, 2L, second)).isEqualTo(PAN);
+        assertThat(new String(envelope.getMasterKeyId())).isEqualTo(masterKey.getId());
+    }
+
+    @Test
+    void reloadedMasterKeyOpensEarlierBatches() {
+        Path file = dir.resolve("master.key");
+        PanEnvelope envelope = PanEnvelope.forNewBatch(MasterKey.load(file, true));
+        String token = envelope.encrypt(7L, PAN);
+
+        MasterKey reloaded = MasterKey.load(file, false);
+        SecretKey dataKey = PanEnvelope.unwrapDataKey(reloaded, envelope.getWrappedKey());
+
+        assertThat(PanEnvelope.decrypt(dataKey, 7L, token)).isEqualTo(PAN);
+    }
+
+    @Test
+    void rejectsTamperedTag() {
+        MasterKey masterKey = MasterKey.load(dir.resolve("master.key"), true);
+        PanEnvelope envelope = PanEnvelope.forNewBatch(masterKey);
+        byte[] token = Base64.getDecoder().decode(envelope.encrypt(1L, PAN));
+        token[token.length - 1] ^= 0x01;
+        SecretKey dataKey = PanEnvelope.unwrapDataKey(masterKey, envelope.getWrappedKey());
+
+        assertThatThrownBy(() -> PanEnvelope.decrypt(dataKey, 1L, Base64.getEncoder().encodeToString(token)))
+                .isInstanceOf(IllegalStateException.class)
+                .hasCauseInstanceOf(AEADBadTagException.class);
+    }
+
+    @Test
+    void rejectsTokenMovedToAnotherCard() {
+        MasterKey masterKey = MasterKey.load(dir.resolve("master.key"), true);
+        PanEnvelope envelope = PanEnvelope.forNewBatch(masterKey);
+        String token = envelope.encrypt(1L, PAN);
+        SecretKey dataKey = PanEnvelope.unwrapDataKey(masterKey, envelope.getWrappedKey());
+
+        // O ID do cartão é dado autenticado: o token não vale para outro cartão
+        assertThatThrownBy(() -> PanEnvelope.decrypt(dataKey, 2L, token))
+                .isInstanceOf(IllegalStateException.class)
+                .hasCauseInstanceOf(AEADBadTagException.class);
+    }
+
+    @Test
+    void rejectsDataKeyWrappedByAnotherMasterKey() {
+        MasterKey masterKey = MasterKey.load(dir.resolve("master.key"), true);
+        MasterKey other = MasterKey.load(dir.resolve("other.key"), true);
+        PanEnvelope envelope = PanEnvelope.forNewBatch(masterKey);
+
+        assertThat(other.getId()).isNotEqualTo(masterKey.getId());
+        assertThatThrownBy(() -> PanEnvelope.unwrapDataKey(other, envelope.getWrappedKey()))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessageContaining("outra chave mestra");
+    }
+
+    @Test
+    void rejectsTamperedWrappedKey() {
+        MasterKey masterKey = MasterKey.load(dir.resolve("master.key"), true);
+        byte[] wrapped = PanEnvelope.forNewBatch(masterKey).getWrappedKey().clone();
+        wrapped[wrapped.length - 1] ^= 0x01;
+
+        assertThatThrownBy(() -> PanEnvelope.unwrapDataKey(masterKey, wrapped))
+                .isInstanceOf(IllegalStateException.class)
+                .hasCauseInstanceOf(AEADBadTagException.class);
+    }
+}
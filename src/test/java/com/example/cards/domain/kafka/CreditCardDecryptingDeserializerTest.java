@@ -0,0 +1,80 @@
+package com.example.cards.domain.kafka;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.nio.file.Path;
+import java.util.Map;
+
+import org.apache.kafka.common.errors.SerializationException;
+import org.apache.kafka.common.header.Headers;
+import org.apache.kafka.common.header.internals.RecordHeaders;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.example.cards.domain.CreditCard;
+import com.example.cards.domain.CreditCardBrand;
+import com.example.cards.domain.CreditCardJsonCodec;
+import com.example.cards.domain.EncryptedPanCreditCard;
+import com.example.cards.domain.ReceivedCreditCard;
+import com.example.cards.domain.crypto.MasterKey;
+import com.example.cards.domain.crypto.PanEnvelope;
+
+class CreditCardDecryptingDeserializerTest {
+
+    private static final CreditCard CARD =
+            new ReceivedCreditCard(42L, "u-42", "Ana", "4111111111111111", CreditCardBrand.VISA);
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void decryptsRecordWithBatchKeyHeaders() {
+        Path keyFile = dir.resolve("master.key");
+        PanEnvelope envelope = PanEnvelope.forNewBatch(MasterKey.load(keyFile, true));
+        byte[] value = sealed(envelope);
+
+        CreditCard card = deserializer(keyFile).deserialize("cartoes-visa", headers(envelope), value);
+
+        assertThat(card.getNumber()).isEqualTo(CARD.getNumber());
+        assertThat(card.getId()).isEqualTo(CARD.getId());
+        assertThat(card.getHolderName()).isEqualTo(CARD.getHolderName());
+    }
+
+    @Test
+    void rejectsRecordFromAnotherMasterKey() {
+        PanEnvelope envelope = PanEnvelope.forNewBatch(MasterKey.load(dir.resolve("producer.key"), true));
+        Path consumerKey = dir.resolve("consumer.key");
+        MasterKey.load(consumerKey, true);
+
+        assertThatThrownBy(() -> deserializer(consumerKey).deserialize("cartoes-visa", headers(envelope), sealed(envelope)))
+                .isInstanceOf(SerializationException.class)
+                .hasMessageContaining("outra chave mestra");
+    }
+
+    @Test
+    void rejectsEncryptedRecordWithoutMasterKey() {
+        PanEnvelope envelope = PanEnvelope.forNewBatch(MasterKey.load(dir.resolve("master.key"), true));
+        CreditCardDecryptingDeserializer deserializer = new CreditCardDecryptingDeserializer();
+        deserializer.configure(Map.of(), false);
+
+        assertThatThrownBy(() -> deserializer.deserialize("cartoes-visa", headers(envelope), sealed(envelope)))
+                .isInstanceOf(SerializationException.class);
+    }
+
+    private static byte[] sealed(PanEnvelope envelope) {
+        return CreditCardJsonCodec.encode(new EncryptedPanCreditCard(CARD, envelope.encrypt(CARD.getId(), CARD.getNumber())));
+    }
+
+    private static Headers headers(PanEnvelope envelope) {
+        return new RecordHeaders()
+                .add(PanEnvelope.DATA_KEY_HEADER, envelope.getWrappedKey())
+                .add(PanEnvelope.MASTER_KEY_ID_HEADER, envelope.getMasterKeyId());
+    }
+
+    private static CreditCardDecryptingDeserializer deserializer(Path keyFile) {
+        CreditCardDecryptingDeserializer deserializer = new CreditCardDecryptingDeserializer();
+        deserializer.configure(Map.of(CreditCardDecryptingDeserializer.MASTER_KEY_FILE_CONFIG, keyFile.toString()), false);
+        return deserializer;
+    }
+}
@@ -0,0 +1,127 @@
+package com.example.cards.importer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.kafka.test.context.EmbeddedKafka;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import com.example.cards.domain.BrandPipelineSettings;
+import com.example.cards.domain.CreditCardBrand;
+import com.example.cards.domain.KafkaTopicStrategyProvider;
+
+/**
+ * Vazão da importação de arquivo com um registro Kafka por cartão e com envelopes
+ * (cards.pipeline.brands.*.envelope-size), contra um broker embutido de um nó.
+ *
+ * Fora do mvn test padrão; roda com {@code mvn -Pbenchmark test -Dtest=CardEnvelopeImportBenchmark}.
+ * O tamanho do arquivo vem de -Dbench.cards (padrão 400000) e os tamanhos de envelope comparados
+ * de -Dbench.envelope-sizes (padrão 0,100). Cada modo importa o arquivo uma vez para aquecer e
+ * uma vez medida; o resultado sai no log como cartões/s.
+ */
+@SpringBootTest(properties = {
+        "cards.velocity.enabled=false",
+        "cards.tuning.enabled=false",
+        "cards.import.chunk-size=8MB"
+})
+@EmbeddedKafka(partitions = 3, bootstrapServersProperty = "spring.kafka.bootstrap-servers",
+        topics = {"cartoes-visa", "cartoes-mastercard", "cartoes-amex"})
+class CardEnvelopeImportBenchmark {
+
+    private static final org.slf4j.Logger log = org.slf4j.LoggerFactory.getLogger(CardEnvelopeImportBenchmark.class);
+
+    private static final int CARDS = Integer.getInteger("bench.cards", 400_000);
+    private static final String ENVELOPE_SIZES = System.getProperty("bench.envelope-sizes", "0,100");
+
+    @TempDir
+    static Path dataDir;
+
+    @DynamicPropertySource
+    static void dataDirs(DynamicPropertyRegistry registry) {
+        registry.add("cards.import.base-dir", () -> dataDir.resolve("import").toString());
+        registry.add("cards.replay.checkpoint-dir", () -> dataDir.resolve("replay").toString());
+        registry.add("cards.shutdown.spool-file", () -> dataDir.resolve("pending-cards.spool").toString());
+        registry.add("cards.breaker.spool-dir", () -> dataDir.resolve("spool").toString());
+        registry.add("cards.sink.file.dir", () -> dataDir.resolve("sink").toString());
+        registry.add("cards.rules.file", () -> dataDir.resolve("brand-rules.properties").toString());
+    }
+
+    @Autowired
+    private CardFileImportService importService;
+
+    @Autowired
+    private KafkaTopicStrategyProvider topicStrategyProvider;
+
+    @Test
+    void importThroughputByEnvelopeSize() throws IOException {
+        Files.createDirectories(dataDir.resolve("import"));
+        StringBuilder results = new StringBuilder();
+        for (String value : ENVELOPE_SIZES.split(",")) {
+            int envelopeSize = Integer.parseInt(value.trim());
+            for (CreditCardBrand brand : CreditCardBrand.values()) {
+                BrandPipelineSettings s = topicStrategyProvider.getConfiguredPipelineSettings(brand);
+                topicStrategyProvider.updatePipelineSettings(brand, new BrandPipelineSettings(s.bufferCapacity(),
+                        s.flushSize(), s.linger(), s.acks(), s.compression(), s.maxInFlight(), envelopeSize,
+                        s.sink(), s.flushTimeout()));
+            }
+            importFile("aquecimento-" + envelopeSize + ".csv");
+            CardImportJobResponse job = importFile("medido-" + envelopeSize + ".csv");
+            results.append(String.format("%n  envelope-size=%-4d %,10.0f cartões/s", envelopeSize, job.cardsPerSecond()));
+        }
+        log.info("### Importação de {} cartões:{}", CARDS, results);
+    }
+
+    private CardImportJobResponse importFile(String fileName) throws IOException {
+        writeFile(dataDir.resolve("import").resolve(fileName));
+        CardImportJobResponse job = importService.start(fileName);
+        long deadline = System.nanoTime() + Duration.ofMinutes(10).toNanos();
+        while (job.status() == CardImportStatus.RUNNING && System.nanoTime() < deadline) {
+            sleep(50);
+            job = importService.getJob(job.id());
+        }
+        assertThat(job.status()).isEqualTo(CardImportStatus.COMPLETED);
+        assertThat(job.accepted()).isEqualTo(CARDS);
+        return job;
+    }
+
+    /** CSV com as três bandeiras alternadas e números gerados a partir de uma semente fixa */
+    private static void writeFile(Path file) throws IOException {
+        Random random = new Random(42);
+        try (BufferedWriter writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            writer.write("holderName,number,brand\n");
+            for (int i = 0; i < CARDS; i++) {
+                CreditCardBrand brand = CreditCardBrand.values()[i % 3];
+                StringBuilder number = new StringBuilder(switch (brand) {
+                    case VISA -> "4";
+                    case MASTERCARD -> "5";
+                    case AMEX -> "3";
+                });
+                int digits = brand == CreditCardBrand.AMEX ? 14 : 15;
+                for (int d = 0; d < digits; d++) {
+                    number.append((char) ('0' + random.nextInt(10)));
+                }
+                writer.write("Titular " + i + "," + number + "," + brand + "\n");
+            }
+        }
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,250 @@
+package com.example.cards.replay;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.groups.Tuple.tuple;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.kafka.clients.consumer.ConsumerConfig;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.KafkaConsumer;
+import org.apache.kafka.clients.producer.KafkaProducer;
+import org.apache.kafka.clients.producer.ProducerConfig;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.common.serialization.ByteArrayDeserializer;
+import org.apache.kafka.common.serialization.ByteArraySerializer;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.kafka.test.EmbeddedKafkaBroker;
+import org.springframework.kafka.test.context.EmbeddedKafka;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import com.example.cards.domain.CreditCard;
+import com.example.cards.domain.CreditCardBrand;
+import com.example.cards.domain.CreditCardEnvelope;
+import com.example.cards.domain.CreditCardJsonCodec;
+import com.example.cards.domain.ReceivedCreditCard;
+import com.example.cards.domain.kafka.CreditCardDecryptingDeserializer;
+import com.example.cards.domain.kafka.CreditCardEnvelopeDeserializer;
+import com.example.cards.sink.KafkaCardSink;
+
+/**
+ * Replay de ponta a ponta contra um broker embutido: limites por offset e por instante,
+ * retomada do checkpoint e registros em envelope com número cifrado.
+ * A cifragem fica ligada, então todo tópico de destino é lido com a chave mestra do teste.
+ */
+@SpringBootTest(properties = {
+        "cards.encryption.enabled=true",
+        "cards.encryption.create-master-key=true",
+        "cards.pipeline.brands.amex.envelope-size=4",
+        "cards.velocity.enabled=false"
+})
+@EmbeddedKafka(partitions = 2, bootstrapServersProperty = "spring.kafka.bootstrap-servers", topics = {
+        "replay-offsets", "replay-offsets-out",
+        "replay-times", "replay-times-out",
+        "replay-resume", "replay-resume-out",
+        "replay-envelopes", "replay-envelopes-out"
+})
+class CardReplayServiceTest {
+
+    private static final AtomicLong IDS = new AtomicLong(1_000);
+
+    @TempDir
+    static Path dataDir;
+
+    @DynamicPropertySource
+    static void dataDirs(DynamicPropertyRegistry registry) {
+        registry.add("cards.replay.checkpoint-dir", () -> dataDir.resolve("replay").toString());
+        registry.add("cards.encryption.master-key-file", () -> dataDir.resolve("keys/master.key").toString());
+        registry.add("cards.shutdown.spool-file", () -> dataDir.resolve("pending-cards.spool").toString());
+        registry.add("cards.breaker.spool-dir", () -> dataDir.resolve("spool").toString());
+        registry.add("cards.sink.file.dir", () -> dataDir.resolve("sink").toString());
+        registry.add("cards.import.base-dir", () -> dataDir.resolve("import").toString());
+        registry.add("cards.rules.file", () -> dataDir.resolve("brand-rules.properties").toString());
+    }
+
+    @Autowired
+    private CardReplayService replayService;
+
+    @Autowired
+    private KafkaCardSink kafkaCardSink;
+
+    @Autowired
+    private EmbeddedKafkaBroker broker;
+
+    @Test
+    void replaysOffsetRangeOfEveryPartition() {
+        List<CreditCard> p0 = produce("replay-offsets", 0, 10, 0);
+        List<CreditCard> p1 = produce("replay-offsets", 1, 10, 0);
+
+        CardReplayJobResponse job = await(replayService.start("replay-offsets", "replay-offsets-out",
+                2L, 7L, null, null, false, 0));
+
+        assertThat(job.status()).isEqualTo(CardReplayStatus.COMPLETED);
+        assertThat(job.totalRecords()).isEqualTo(10);
+        assertThat(job.replayed()).isEqualTo(10);
+        List<CreditCard> expected = new ArrayList<>(p0.subList(2, 7));
+        expected.addAll(p1.subList(2, 7));
+        assertSameCards(consume("replay-offsets-out", 10), expected);
+    }
+
+    @Test
+    void replaysTimestampRange() {
+        long base = Instant.parse("2026-10-01T00:00:00Z").toEpochMilli();
+        List<CreditCard> p0 = produce("replay-times", 0, 10, base);
+        List<CreditCard> p1 = produce("replay-times", 1, 10, base);
+
+        // Registros gravados em base + i segundos: [3s, 7s) são os offsets 3 a 6
+        CardReplayJobResponse job = await(replayService.start("replay-times", "replay-times-out", null, null,
+                Instant.ofEpochMilli(base + 3_000), Instant.ofEpochMilli(base + 7_000), false, 0));
+
+        assertThat(job.status()).isEqualTo(CardReplayStatus.COMPLETED);
+        assertThat(job.replayed()).isEqualTo(8);
+        List<CreditCard> expected = new ArrayList<>(p0.subList(3, 7));
+        expected.addAll(p1.subList(3, 7));
+        assertSameCards(consume("replay-times-out", 8), expected);
+    }
+
+    @Test
+    void resumesFromCheckpoint() {
+        List<CreditCard> p0 = produce("replay-resume", 0, 10, 0);
+        List<CreditCard> p1 = produce("replay-resume", 1, 10, 0);
+
+        // Execução anterior do mesmo pedido que confirmou a partição 0 até o offset 6
+        String signature = CardReplayService.signature("replay-resume", "replay-resume-out",
+                null, null, null, null, false);
+        Path checkpointFile = replayService.checkpointFile("replay-resume", signature);
+        CardReplayCheckpoint.open(checkpointFile, signature).advance(0, 6);
+
+        CardReplayJobResponse started = replayService.start("replay-resume", "replay-resume-out",
+                null, null, null, null, false, 0);
+        assertThat(started.completedRecords()).isEqualTo(6);
+        CardReplayJobResponse job = await(started);
+
+        assertThat(job.status()).isEqualTo(CardReplayStatus.COMPLETED);
+        assertThat(job.replayed()).isEqualTo(14);
+        assertThat(job.completedRecords()).isEqualTo(20);
+        assertThat(checkpointFile).doesNotExist();
+        List<CreditCard> expected = new ArrayList<>(p0.subList(6, 10));
+        expected.addAll(p1);
+        assertSameCards(consume("replay-resume-out", 14), expected);
+    }
+
+    @Test
+    void replaysEncryptedEnvelopes() {
+        List<CreditCard> cards = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            cards.add(card(CreditCardBrand.AMEX, i));
+        }
+        // AMEX com envelope-size=4: três registros (4, 4 e 2 cartões), todos com o número cifrado
+        assertThat(kafkaCardSink.publish(CreditCardBrand.AMEX, cards, "replay-envelopes").join()).isEmpty();
+        List<ConsumerRecord<byte[], byte[]>> source = records("replay-envelopes", 3);
+        assertThat(source).allSatisfy(record -> {
+            assertThat(record.headers().lastHeader(CreditCardEnvelope.COUNT_HEADER)).isNotNull();
+            assertThat(new String(record.value())).doesNotContain(cards.get(0).getNumber());
+        });
+
+        CardReplayJobResponse job = await(replayService.start("replay-envelopes", "replay-envelopes-out",
+                null, null, null, null, true, 0));
+
+        assertThat(job.status()).isEqualTo(CardReplayStatus.COMPLETED);
+        assertThat(job.rejected()).isZero();
+        assertThat(job.replayed()).isEqualTo(10);
+        assertSameCards(consume("replay-envelopes-out", 10), cards);
+    }
+
+    private CardReplayJobResponse await(CardReplayJobResponse started) {
+        long deadline = System.nanoTime() + Duration.ofSeconds(60).toNanos();
+        CardReplayJobResponse job = started;
+        while (job.status() == CardReplayStatus.RUNNING && System.nanoTime() < deadline) {
+            sleep(100);
+            job = replayService.getJob(started.id());
+        }
+        return job;
+    }
+
+    private static CreditCard card(CreditCardBrand brand, int i) {
+        long id = IDS.incrementAndGet();
+        String digits = String.format("%014d", id * 7919 + i);
+        String number = brand == CreditCardBrand.AMEX ? "3" + digits : "4" + digits + "1";
+        return new ReceivedCreditCard(id, UUID.randomUUID().toString(), "Titular " + id, number, brand);
+    }
+
+    /** Grava count cartões VISA em claro na partição; com firstTimestamp, o registro i é gravado em firstTimestamp + i segundos */
+    private List<CreditCard> produce(String topic, int partition, int count, long firstTimestamp) {
+        List<CreditCard> cards = new ArrayList<>();
+        Map<String, Object> config = Map.of(ProducerConfig.BOOTSTRAP_SERVERS_CONFIG, broker.getBrokersAsString());
+        try (KafkaProducer<byte[], byte[]> producer =
+                     new KafkaProducer<>(config, new ByteArraySerializer(), new ByteArraySerializer())) {
+            for (int i = 0; i < count; i++) {
+                CreditCard card = card(CreditCardBrand.VISA, i);
+                cards.add(card);
+                Long timestamp = firstTimestamp > 0 ? firstTimestamp + i * 1_000L : null;
+                producer.send(new ProducerRecord<>(topic, partition, timestamp, null, CreditCardJsonCodec.encode(card)));
+            }
+            producer.flush();
+        }
+        return cards;
+    }
+
+    private List<CreditCard> consume(String topic, int expected) {
+        CreditCardEnvelopeDeserializer deserializer = new CreditCardEnvelopeDeserializer();
+        deserializer.configure(Map.of(CreditCardDecryptingDeserializer.MASTER_KEY_FILE_CONFIG,
+                dataDir.resolve("keys/master.key").toString()), false);
+        List<CreditCard> cards = new ArrayList<>();
+        for (ConsumerRecord<byte[], byte[]> record : records(topic, -1)) {
+            cards.addAll(deserializer.deserialize(topic, record.headers(), record.value()));
+        }
+        assertThat(cards).hasSize(expected);
+        return cards;
+    }
+
+    /** Registros de todas as partições do tópico; com expected >= 0, espera até haver essa quantidade */
+    private List<ConsumerRecord<byte[], byte[]>> records(String topic, int expected) {
+        Map<String, Object> config = Map.of(
+                ConsumerConfig.BOOTSTRAP_SERVERS_CONFIG, broker.getBrokersAsString(),
+                ConsumerConfig.ENABLE_AUTO_COMMIT_CONFIG, false);
+        List<ConsumerRecord<byte[], byte[]>> records = new ArrayList<>();
+        try (KafkaConsumer<byte[], byte[]> consumer =
+                     new KafkaConsumer<>(config, new ByteArrayDeserializer(), new ByteArrayDeserializer())) {
+            List<TopicPartition> partitions = consumer.partitionsFor(topic).stream()
+                    .map(info -> new TopicPartition(topic, info.partition()))
+                    .toList();
+            consumer.assign(partitions);
+            consumer.seekToBeginning(partitions);
+            Map<TopicPartition, Long> end = consumer.endOffsets(partitions);
+            long total = end.values().stream().mapToLong(Long::longValue).sum();
+            long deadline = System.nanoTime() + Duration.ofSeconds(20).toNanos();
+            while (records.size() < (expected >= 0 ? expected : total) && System.nanoTime() < deadline) {
+                consumer.poll(Duration.ofMillis(200)).forEach(records::add);
+            }
+        }
+        return records;
+    }
+
+    private static void assertSameCards(List<CreditCard> actual, List<CreditCard> expected) {
+        assertThat(actual).extracting(CreditCard::getId, CreditCard::getNumber, CreditCard::getHolderName)
+                .containsExactlyInAnyOrderElementsOf(expected.stream()
+                        .map(card -> tuple(card.getId(), card.getNumber(), card.getHolderName()))
+                        .toList());
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
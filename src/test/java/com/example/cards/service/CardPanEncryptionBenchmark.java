@@ -0,0 +1,81 @@
+package com.example.cards.service;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.example.cards.domain.CreditCard;
+import com.example.cards.domain.CreditCardBrand;
+import com.example.cards.domain.PreSerializedCreditCard;
+import com.example.cards.domain.ReceivedCreditCard;
+import com.example.cards.domain.crypto.PanEnvelope;
+
+/**
+ * Custo por cartão de cifrar o número com o envelope do lote e codificar o JSON
+ * ({@link CardPanEncryption#seal}), contra apenas codificar o JSON em claro
+ * ({@link PreSerializedCreditCard#of}), e o custo de gerar a chave de dados de um lote.
+ *
+ * JMH, fora do mvn test padrão; roda com
+ * {@code mvn -Pbenchmark test-compile exec:exec -Djmh.args=CardPanEncryptionBenchmark}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CardPanEncryptionBenchmark {
+
+    private Path dir;
+    private CardPanEncryption encryption;
+    private PanEnvelope envelope;
+    private CreditCard card;
+
+    @Setup
+    public void setup() throws IOException {
+        dir = Files.createTempDirectory("pan-encryption-bench");
+        encryption = new CardPanEncryption(true, dir.resolve("master.key").toString(), true);
+        envelope = encryption.newEnvelope();
+        card = new ReceivedCreditCard(1879473421984727041L, "3f1c6a52-8d0e-4b7e-9a51-0c4d2f6e7b18",
+                "Ana Souza", "4111111111111111", CreditCardBrand.VISA);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        try (Stream<Path> files = Files.walk(dir)) {
+            for (Path file : files.sorted(Comparator.reverseOrder()).toList()) {
+                Files.delete(file);
+            }
+        }
+    }
+
+    @Benchmark
+    public CreditCard plain() {
+        return PreSerializedCreditCard.of(card);
+    }
+
+    @Benchmark
+    public CreditCard sealed() {
+        return encryption.seal(envelope, card);
+    }
+
+    @Benchmark
+    public PanEnvelope newEnvelope() {
+        return encryption.newEnvelope();
+    }
+}
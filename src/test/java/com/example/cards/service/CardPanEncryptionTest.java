@@ -0,0 +1,84 @@
+package com.example.cards.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+
+import javax.crypto.SecretKey;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.example.cards.domain.CreditCard;
+import com.example.cards.domain.CreditCardBrand;
+import com.example.cards.domain.PreSerializedCreditCard;
+import com.example.cards.domain.ReceivedCreditCard;
+import com.example.cards.domain.crypto.PanEnvelope;
+
+class CardPanEncryptionTest {
+
+    private static final CreditCard CARD =
+            new ReceivedCreditCard(42L, "u-42", "Ana", "4111111111111111", CreditCardBrand.VISA);
+
+    @TempDir
+    Path dir;
+
+    private CardPanEncryption encryption(String keyFile) {
+        return new CardPanEncryption(true, dir.resolve(keyFile).toString(), true);
+    }
+
+    @Test
+    void sealedCardOpensWithItsDataKeyLine() {
+        CardPanEncryption encryption = encryption("master.key");
+        PanEnvelope envelope = encryption.newEnvelope();
+
+        CreditCard sealed = encryption.seal(envelope, PreSerializedCreditCard.of(CARD));
+        String line = encryption.dataKeyLine(envelope);
+        SecretKey dataKey = encryption.openDataKeyLine(line);
+
+        assertThat(line).startsWith(CardPanEncryption.DATA_KEY_LINE_PREFIX);
+        assertThat(sealed.getNumber()).isNotEqualTo(CARD.getNumber());
+        assertThat(new String(((PreSerializedCreditCard) sealed).getPayload(), StandardCharsets.UTF_8))
+                .doesNotContain(CARD.getNumber());
+        assertThat(encryption.unseal(dataKey, CARD.getId(), sealed.getNumber())).isEqualTo(CARD.getNumber());
+    }
+
+    @Test
+    void rejectsLineFromAnotherMasterKey() {
+        CardPanEncryption writer = encryption("old.key");
+        CardPanEncryption reader = encryption("new.key");
+        String line = writer.dataKeyLine(writer.newEnvelope());
+
+        assertThatThrownBy(() -> reader.openDataKeyLine(line))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessageContaining("outra chave mestra");
+    }
+
+    @Test
+    void rejectsLineWithForgedMasterKeyId() {
+        CardPanEncryption writer = encryption("old.key");
+        CardPanEncryption reader = encryption("new.key");
+        String line = writer.dataKeyLine(writer.newEnvelope());
+        // Mesmo com o id da chave trocado, a chave de dados não abre com outra chave mestra
+        String forged = line.substring(0, line.lastIndexOf(' ') + 1)
+                + reader.dataKeyLine(reader.newEnvelope()).substring(line.lastIndexOf(' ') + 1);
+
+        assertThatThrownBy(() -> reader.openDataKeyLine(forged))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessageContaining("outra chave mestra");
+    }
+
+    @Test
+    void rejectsSealedLinesWhenEncryptionIsOff() {
+        CardPanEncryption writer = encryption("master.key");
+        CardPanEncryption disabled = new CardPanEncryption(false, dir.resolve("master.key").toString(), false);
+        String line = writer.dataKeyLine(writer.newEnvelope());
+
+        assertThat(disabled.isEnabled()).isFalse();
+        assertThatThrownBy(() -> disabled.openDataKeyLine(line))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessageContaining("desligada");
+    }
+}
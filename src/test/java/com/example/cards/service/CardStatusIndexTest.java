@@ -0,0 +1,43 @@
+package com.example.cards.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.Duration;
+
+import org.junit.jupiter.api.Test;
+
+import com.example.cards.domain.CardDeliveryStatus;
+
+class CardStatusIndexTest {
+
+    @Test
+    void fullSegmentWithEqualStampsKeepsThreeQuarters() {
+        // 64 segmentos de 32 posições, até 16 entradas cada
+        CardStatusIndex index = new CardStatusIndex(1024, Duration.ofMinutes(10));
+        int cards = 4000;
+        for (long id = 1; id <= cards; id++) {
+            index.markQueued(id);
+        }
+
+        int tracked = 0;
+        for (long id = 1; id <= cards; id++) {
+            if (index.get(id) != null) {
+                tracked++;
+            }
+        }
+        // Cadastros no mesmo segundo: cada segmento cheio descarta um quarto, não tudo
+        assertThat(tracked).isGreaterThanOrEqualTo(64 * 12);
+        assertThat(index.get(cards)).isEqualTo(CardDeliveryStatus.QUEUED);
+    }
+
+    @Test
+    void updatesStatusOfTrackedCard() {
+        CardStatusIndex index = new CardStatusIndex(1024, Duration.ofMinutes(10));
+        index.markQueued(7L);
+        index.markSpooled(7L);
+
+        assertThat(index.get(7L)).isEqualTo(CardDeliveryStatus.SPOOLED);
+        index.markPublished(8L);
+        assertThat(index.get(8L)).isNull();
+    }
+}
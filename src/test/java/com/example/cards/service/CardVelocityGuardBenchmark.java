@@ -0,0 +1,79 @@
+package com.example.cards.service;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.example.cards.config.CardVelocityProperties;
+import com.example.cards.domain.CreditCard;
+import com.example.cards.domain.CreditCardBrand;
+import com.example.cards.domain.ReceivedCreditCard;
+
+/**
+ * Custo de um {@link CardVelocityGuard#check} (titular e BIN, sketches por bandeira com
+ * atualização conservadora), com uma thread e com quatro disputando os mesmos contadores.
+ * Limites e carga esperada são os do application.properties multiplicados por 10^6: os sketches
+ * de titular têm a mesma largura, e os titulares reciclados do benchmark nunca são recusados.
+ *
+ * JMH, fora do mvn test padrão; roda com
+ * {@code mvn -Pbenchmark test-compile exec:exec -Djmh.args=CardVelocityGuardBenchmark}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CardVelocityGuardBenchmark {
+
+    private static final int CARDS = 1 << 16;
+
+    private CardVelocityGuard guard;
+    private CreditCard[] cards;
+
+    /** Posição de cada thread na lista de cartões */
+    @State(Scope.Thread)
+    public static class Cursor {
+        int next;
+    }
+
+    @Setup
+    public void setup() {
+        CardVelocityProperties properties = new CardVelocityProperties();
+        properties.setEnabled(true);
+        for (CreditCardBrand brand : CreditCardBrand.values()) {
+            properties.getMaxPerHolder().put(brand, 5_000_000);
+            properties.getMaxPerBin().put(brand, 2_000_000_000);
+            properties.getExpectedPerWindow().put(brand, 30_000_000_000L);
+        }
+        guard = new CardVelocityGuard(properties);
+        cards = new CreditCard[CARDS];
+        CreditCardBrand[] brands = CreditCardBrand.values();
+        for (int i = 0; i < CARDS; i++) {
+            cards[i] = new ReceivedCreditCard(i, "u-" + i, "Titular " + i,
+                    String.format("4%015d", i), brands[i % brands.length]);
+        }
+    }
+
+    @Benchmark
+    @Threads(1)
+    public void check(Cursor cursor) {
+        guard.check(cards[cursor.next++ & (CARDS - 1)]);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public void checkContended(Cursor cursor) {
+        guard.check(cards[cursor.next++ & (CARDS - 1)]);
+    }
+}
@@ -0,0 +1,77 @@
+package com.example.cards.service;
+
+import static org.assertj.core.api.Assertions.assertThatCode;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.util.unit.DataSize;
+
+import com.example.cards.config.CardVelocityProperties;
+import com.example.cards.domain.CreditCardBrand;
+import com.example.cards.domain.ReceivedCreditCard;
+import com.example.cards.exception.VelocityLimitExceededException;
+
+class CardVelocityGuardTest {
+
+    private static CardVelocityProperties properties() {
+        CardVelocityProperties properties = new CardVelocityProperties();
+        properties.setEnabled(true);
+        properties.getMaxPerHolder().put(CreditCardBrand.VISA, 5);
+        properties.getMaxPerHolder().put(CreditCardBrand.AMEX, 3);
+        properties.getMaxPerBin().put(CreditCardBrand.VISA, 50_000);
+        properties.getExpectedPerWindow().put(CreditCardBrand.VISA, 30_000L);
+        properties.getExpectedPerWindow().put(CreditCardBrand.AMEX, 5_000L);
+        return properties;
+    }
+
+    private static ReceivedCreditCard card(int i, String holder, CreditCardBrand brand) {
+        return new ReceivedCreditCard(i, "u-" + i, holder, String.format("4111%012d", i), brand);
+    }
+
+    @Test
+    void doesNotRejectDistinctHoldersAtTheExpectedLoad() {
+        CardVelocityGuard guard = new CardVelocityGuard(properties());
+
+        assertThatCode(() -> {
+            for (int i = 0; i < 30_000; i++) {
+                guard.check(card(i, "Titular " + i, CreditCardBrand.VISA));
+            }
+        }).doesNotThrowAnyException();
+    }
+
+    @Test
+    void rejectsHolderAboveTheBrandLimit() {
+        CardVelocityGuard guard = new CardVelocityGuard(properties());
+        for (int i = 0; i < 3; i++) {
+            guard.check(card(i, "Ana Souza", CreditCardBrand.AMEX));
+        }
+        // Sketches separados: os cadastros Amex não contam para o limite Visa do mesmo titular
+        for (int i = 0; i < 5; i++) {
+            guard.check(card(i, "Ana Souza", CreditCardBrand.VISA));
+        }
+
+        assertThatThrownBy(() -> guard.check(card(9, "ana souza", CreditCardBrand.AMEX)))
+                .isInstanceOf(VelocityLimitExceededException.class)
+                .hasMessageContaining("titular");
+    }
+
+    @Test
+    void failsWhenTheBudgetCannotKeepTheErrorBelowTheLimit() {
+        CardVelocityProperties properties = properties();
+        properties.setMemoryBudget(DataSize.ofMegabytes(1));
+
+        assertThatThrownBy(() -> new CardVelocityGuard(properties))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessageContaining("memory-budget");
+    }
+
+    @Test
+    void requiresTheExpectedLoadOfBrandsWithLimits() {
+        CardVelocityProperties properties = properties();
+        properties.getExpectedPerWindow().remove(CreditCardBrand.AMEX);
+
+        assertThatThrownBy(() -> new CardVelocityGuard(properties))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessageContaining("expected-per-window.amex");
+    }
+}
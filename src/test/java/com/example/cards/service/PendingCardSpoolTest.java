@@ -0,0 +1,81 @@
+package com.example.cards.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.example.cards.domain.CreditCard;
+import com.example.cards.domain.CreditCardBrand;
+import com.example.cards.domain.PreSerializedCreditCard;
+import com.example.cards.domain.ReceivedCreditCard;
+
+class PendingCardSpoolTest {
+
+    private static final CreditCard VISA =
+            new ReceivedCreditCard(42L, "u-42", "Ana", "4111111111111111", CreditCardBrand.VISA);
+    private static final CreditCard AMEX =
+            new ReceivedCreditCard(43L, "u-43", "Bia", "378282246310005", CreditCardBrand.AMEX);
+
+    @TempDir
+    Path dir;
+
+    private PendingCardSpool spool(boolean encrypted) {
+        return new PendingCardSpool(dir.resolve("pending.spool").toString(),
+                new CardPanEncryption(encrypted, dir.resolve("master.key").toString(), true));
+    }
+
+    @Test
+    void restoresCardsWithTheirIdAndUuid() {
+        PendingCardSpool spool = spool(false);
+        spool.write(List.of(VISA, PreSerializedCreditCard.of(AMEX)));
+
+        assertThat(spool.read())
+                .extracting(CreditCard::getId, CreditCard::getUUID, CreditCard::getNumber, CreditCard::getBrand)
+                .containsExactly(
+                        tuple(42L, "u-42", VISA.getNumber(), CreditCardBrand.VISA),
+                        tuple(43L, "u-43", AMEX.getNumber(), CreditCardBrand.AMEX));
+    }
+
+    @Test
+    void restoresEncryptedCardsWithTheirIdAndUuid() throws Exception {
+        PendingCardSpool spool = spool(true);
+        spool.write(List.of(VISA));
+
+        assertThat(Files.readString(dir.resolve("pending.spool"))).doesNotContain(VISA.getNumber());
+        List<CreditCard> cards = spool.read();
+        assertThat(cards).singleElement().satisfies(card -> {
+            assertThat(card.getId()).isEqualTo(42L);
+            assertThat(card.getUUID()).isEqualTo("u-42");
+            assertThat(card.getNumber()).isEqualTo(VISA.getNumber());
+            assertThat(card.getHolderName()).isEqualTo("Ana");
+        });
+    }
+
+    @Test
+    void keepsTheRemainderIdsAfterRemoveFirst() {
+        PendingCardSpool spool = spool(true);
+        spool.write(List.of(VISA, AMEX));
+
+        spool.removeFirst(1);
+
+        assertThat(spool.read()).extracting(CreditCard::getId, CreditCard::getUUID)
+                .containsExactly(tuple(43L, "u-43"));
+    }
+
+    @Test
+    void readsLinesFromThePreviousFormat() throws Exception {
+        Files.writeString(dir.resolve("pending.spool"), "VISA\t4111111111111111\tAna\n", StandardCharsets.UTF_8);
+
+        assertThat(spool(false).read()).singleElement().satisfies(card -> {
+            assertThat(card.getNumber()).isEqualTo("4111111111111111");
+            assertThat(card.getHolderName()).isEqualTo("Ana");
+        });
+    }
+}
@@ -0,0 +1,148 @@
+package com.example.cards.sink;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import javax.crypto.SecretKey;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.util.unit.DataSize;
+
+import com.example.cards.domain.CreditCard;
+import com.example.cards.domain.CreditCardBrand;
+import com.example.cards.domain.ReceivedCreditCard;
+import com.example.cards.service.CardPanEncryption;
+
+import tools.jackson.databind.JsonNode;
+import tools.jackson.databind.json.JsonMapper;
+
+class FileCardSinkTest {
+
+    private static final JsonMapper JSON = JsonMapper.builder().build();
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void writesOneLinePerCard() throws Exception {
+        FileCardSink sink = sink(new CardPanEncryption(false, "", false));
+        try {
+            List<CreditCard> notWritten = sink.publish(CreditCardBrand.VISA, cards(0, 3)).get(10, TimeUnit.SECONDS);
+
+            assertThat(notWritten).isEmpty();
+            List<String> lines = segmentLines(CreditCardBrand.VISA);
+            assertThat(lines).hasSize(3);
+            JsonNode first = JSON.readTree(lines.get(0));
+            assertThat(first.get("id").asLong()).isZero();
+            assertThat(first.get("uuid").asString()).isEqualTo("u-0");
+            assertThat(first.get("number").asString()).isEqualTo(number(0));
+        } finally {
+            sink.destroy();
+        }
+    }
+
+    @Test
+    void precedesEncryptedBatchWithDataKeyLine() throws Exception {
+        CardPanEncryption encryption = new CardPanEncryption(true, dir.resolve("master.key").toString(), true);
+        FileCardSink sink = sink(encryption);
+        try {
+            sink.publish(CreditCardBrand.AMEX, cards(0, 2)).get(10, TimeUnit.SECONDS);
+
+            List<String> lines = segmentLines(CreditCardBrand.AMEX);
+            assertThat(lines).hasSize(3);
+            assertThat(lines.get(0)).startsWith(CardPanEncryption.DATA_KEY_LINE_PREFIX);
+            SecretKey dataKey = encryption.openDataKeyLine(lines.get(0));
+            for (int i = 0; i < 2; i++) {
+                JsonNode card = JSON.readTree(lines.get(i + 1));
+                assertThat(lines.get(i + 1)).doesNotContain(number(i));
+                assertThat(encryption.unseal(dataKey, i, card.get("number").asString())).isEqualTo(number(i));
+            }
+        } finally {
+            sink.destroy();
+        }
+    }
+
+    @Test
+    void returnsWholeBatchAfterDestroy() throws Exception {
+        FileCardSink sink = sink(new CardPanEncryption(false, "", false));
+        sink.publish(CreditCardBrand.VISA, cards(0, 1)).get(10, TimeUnit.SECONDS);
+        sink.destroy();
+
+        List<CreditCard> batch = cards(1, 2);
+        assertThat(sink.publish(CreditCardBrand.VISA, batch).get(10, TimeUnit.SECONDS)).isEqualTo(batch);
+        assertThat(sink.publish(CreditCardBrand.MASTERCARD, batch).get(10, TimeUnit.SECONDS)).isEqualTo(batch);
+    }
+
+    @Test
+    void completesEveryBatchPublishedDuringDestroy() throws Exception {
+        // A janela entre ver o sink aberto e enfileirar é curta; várias rodadas para cair nela
+        for (int round = 0; round < 10; round++) {
+            FileCardSink sink = new FileCardSink(dir.resolve("race-" + round).toString(), DataSize.ofMegabytes(1), false,
+                    new CardPanEncryption(false, "", false));
+            int publishers = 4;
+            List<List<CompletableFuture<List<CreditCard>>>> futures = new ArrayList<>();
+            CountDownLatch started = new CountDownLatch(publishers);
+            List<Thread> threads = new ArrayList<>();
+            for (int t = 0; t < publishers; t++) {
+                List<CompletableFuture<List<CreditCard>>> own = new ArrayList<>();
+                futures.add(own);
+                threads.add(Thread.ofPlatform().start(() -> {
+                    started.countDown();
+                    for (int i = 0; i < 500; i++) {
+                        own.add(sink.publish(CreditCardBrand.VISA, cards(i, 20)));
+                    }
+                }));
+            }
+            started.await();
+            sink.destroy();
+            for (Thread thread : threads) {
+                thread.join();
+            }
+
+            // Cada lote foi gravado (lista vazia) ou devolvido inteiro; nenhum futuro fica pendente
+            for (List<CompletableFuture<List<CreditCard>>> own : futures) {
+                CompletableFuture.allOf(own.toArray(CompletableFuture[]::new)).get(10, TimeUnit.SECONDS);
+                for (CompletableFuture<List<CreditCard>> future : own) {
+                    assertThat(future.join().size()).isIn(0, 20);
+                }
+            }
+        }
+    }
+
+    private FileCardSink sink(CardPanEncryption encryption) {
+        return new FileCardSink(dir.resolve("sink").toString(), DataSize.ofMegabytes(1), false, encryption);
+    }
+
+    private List<String> segmentLines(CreditCardBrand brand) throws IOException {
+        Path brandDir = dir.resolve("sink").resolve(brand.name().toLowerCase());
+        try (Stream<Path> files = Files.list(brandDir)) {
+            List<String> lines = new ArrayList<>();
+            for (Path segment : files.sorted().toList()) {
+                lines.addAll(Files.readAllLines(segment));
+            }
+            return lines;
+        }
+    }
+
+    private static List<CreditCard> cards(int first, int count) {
+        List<CreditCard> cards = new ArrayList<>(count);
+        for (int i = first; i < first + count; i++) {
+            cards.add(new ReceivedCreditCard(i, "u-" + i, "Titular " + i, number(i), CreditCardBrand.VISA));
+        }
+        return cards;
+    }
+
+    private static String number(int i) {
+        return String.format("4111%012d", i);
+    }
+}
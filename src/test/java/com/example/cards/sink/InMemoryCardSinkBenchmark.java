@@ -0,0 +1,78 @@
+package com.example.cards.sink;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.example.cards.domain.CreditCard;
+import com.example.cards.domain.CreditCardBrand;
+import com.example.cards.domain.ReceivedCreditCard;
+
+/**
+ * Custo de publicar um lote no {@link InMemoryCardSink}, com um publicador e com quatro
+ * disputando o mesmo anel (um único getAndAdd por lote).
+ *
+ * JMH, fora do mvn test padrão; roda com
+ * {@code mvn -Pbenchmark test-compile exec:exec -Djmh.args=InMemoryCardSinkBenchmark}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class InMemoryCardSinkBenchmark {
+
+    private static final int CAPACITY = 65536;
+
+    @Param({"1", "100"})
+    int batchSize;
+
+    private InMemoryCardSink sink;
+    private List<CreditCard> batch;
+
+    @Setup
+    public void setup() {
+        sink = new InMemoryCardSink(CAPACITY);
+        batch = new ArrayList<>(batchSize);
+        for (int i = 0; i < batchSize; i++) {
+            batch.add(new ReceivedCreditCard(i, "u-" + i, "Titular " + i, "4111111111111111", CreditCardBrand.VISA));
+        }
+        // Anel cheio desde o início, para recent ler posições ocupadas
+        for (int published = 0; published < CAPACITY; published += batchSize) {
+            sink.publish(CreditCardBrand.VISA, batch);
+        }
+    }
+
+    @Benchmark
+    @Threads(1)
+    public CompletableFuture<List<CreditCard>> publish() {
+        return sink.publish(CreditCardBrand.VISA, batch);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public CompletableFuture<List<CreditCard>> publishContended() {
+        return sink.publish(CreditCardBrand.VISA, batch);
+    }
+
+    @Benchmark
+    @Threads(1)
+    public List<CreditCard> recent() {
+        return sink.getRecent(CreditCardBrand.VISA, 100);
+    }
+}
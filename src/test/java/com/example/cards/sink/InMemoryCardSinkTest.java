@@ -0,0 +1,84 @@
+package com.example.cards.sink;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+
+import com.example.cards.domain.CreditCard;
+import com.example.cards.domain.CreditCardBrand;
+import com.example.cards.domain.ReceivedCreditCard;
+
+class InMemoryCardSinkTest {
+
+    @Test
+    void keepsRecentCardsInOrder() throws Exception {
+        InMemoryCardSink sink = new InMemoryCardSink(8);
+
+        assertThat(sink.publish(CreditCardBrand.VISA, cards(0, 3)).get(1, TimeUnit.SECONDS)).isEmpty();
+        sink.publish(CreditCardBrand.VISA, cards(3, 2));
+
+        assertThat(ids(sink.getRecent(CreditCardBrand.VISA, 10))).containsExactly(0L, 1L, 2L, 3L, 4L);
+        assertThat(ids(sink.getRecent(CreditCardBrand.VISA, 2))).containsExactly(3L, 4L);
+        assertThat(sink.getRecent(CreditCardBrand.AMEX, 10)).isEmpty();
+        assertThat(sink.getPublishedCount(CreditCardBrand.VISA)).isEqualTo(5);
+    }
+
+    @Test
+    void overwritesOldestWhenFull() {
+        InMemoryCardSink sink = new InMemoryCardSink(4);
+
+        sink.publish(CreditCardBrand.MASTERCARD, cards(0, 3));
+        sink.publish(CreditCardBrand.MASTERCARD, cards(3, 3));
+
+        assertThat(ids(sink.getRecent(CreditCardBrand.MASTERCARD, 10))).containsExactly(2L, 3L, 4L, 5L);
+        assertThat(sink.getPublishedCount(CreditCardBrand.MASTERCARD)).isEqualTo(6);
+    }
+
+    @Test
+    void rejectsCapacityThatIsNotPowerOfTwo() {
+        assertThatThrownBy(() -> new InMemoryCardSink(100))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("potência de 2");
+    }
+
+    @Test
+    void countsEveryCardFromConcurrentPublishers() throws InterruptedException {
+        InMemoryCardSink sink = new InMemoryCardSink(1024);
+        int publishers = 8;
+        int batches = 5_000;
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < publishers; t++) {
+            List<CreditCard> batch = cards(t * 10, 10);
+            threads.add(Thread.ofPlatform().start(() -> {
+                for (int i = 0; i < batches; i++) {
+                    sink.publish(CreditCardBrand.VISA, batch);
+                }
+            }));
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        assertThat(sink.getPublishedCount(CreditCardBrand.VISA)).isEqualTo((long) publishers * batches * 10);
+        // Sem escritas em andamento, o anel está cheio de cartões publicados
+        assertThat(sink.getRecent(CreditCardBrand.VISA, 1024)).hasSize(1024)
+                .allSatisfy(card -> assertThat(card.getId()).isBetween(0L, publishers * 10L - 1));
+    }
+
+    private static List<CreditCard> cards(int first, int count) {
+        List<CreditCard> cards = new ArrayList<>(count);
+        for (int i = first; i < first + count; i++) {
+            cards.add(new ReceivedCreditCard(i, "u-" + i, "Titular " + i, "4111111111111111", CreditCardBrand.VISA));
+        }
+        return cards;
+    }
+
+    private static List<Long> ids(List<CreditCard> cards) {
+        return cards.stream().map(CreditCard::getId).toList();
+    }
+}